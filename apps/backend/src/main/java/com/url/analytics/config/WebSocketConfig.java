@@ -1,17 +1,54 @@
 package com.url.analytics.config;
 
+import com.url.analytics.service.live.WebSocketDeliveryMonitor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.lang.NonNull;
 
+/**
+ * STOMP over WebSocket for live dashboards, with bounded resources so slow or numerous clients
+ * can't starve the redirect path: fixed-size channel executors with bounded queues (a full
+ * outbound queue drops frames rather than growing), per-session send time and buffer limits,
+ * and the slow-consumer policy of {@link WebSocketDeliveryMonitor}.
+ */
 @Configuration
 @EnableWebSocket
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+    private final WebSocketDeliveryMonitor deliveryMonitor;
+    private final int inboundThreads;
+    private final int inboundQueueCapacity;
+    private final int outboundThreads;
+    private final int outboundQueueCapacity;
+    private final int sendTimeLimitMs;
+    private final int sendBufferSizeLimit;
+    private final int messageSizeLimit;
+
+    public WebSocketConfig(
+            WebSocketDeliveryMonitor deliveryMonitor,
+            @Value("${analytics.websocket.inbound-threads:4}") int inboundThreads,
+            @Value("${analytics.websocket.inbound-queue-capacity:1000}") int inboundQueueCapacity,
+            @Value("${analytics.websocket.outbound-threads:8}") int outboundThreads,
+            @Value("${analytics.websocket.outbound-queue-capacity:10000}") int outboundQueueCapacity,
+            @Value("${analytics.websocket.send-time-limit-ms:10000}") int sendTimeLimitMs,
+            @Value("${analytics.websocket.send-buffer-size-limit:524288}") int sendBufferSizeLimit,
+            @Value("${analytics.websocket.message-size-limit:65536}") int messageSizeLimit) {
+        this.deliveryMonitor = deliveryMonitor;
+        this.inboundThreads = inboundThreads;
+        this.inboundQueueCapacity = inboundQueueCapacity;
+        this.outboundThreads = outboundThreads;
+        this.outboundQueueCapacity = outboundQueueCapacity;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        this.messageSizeLimit = messageSizeLimit;
+    }
 
     @Override
     public void registerStompEndpoints(@NonNull StompEndpointRegistry registry) {
@@ -25,4 +62,30 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.enableSimpleBroker("/topic");
         registry.setApplicationDestinationPrefixes("/app");
     }
-} 
\ No newline at end of file
+
+    @Override
+    public void configureClientInboundChannel(@NonNull ChannelRegistration registration) {
+        registration.taskExecutor()
+            .corePoolSize(inboundThreads)
+            .maxPoolSize(inboundThreads)
+            .queueCapacity(inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(@NonNull ChannelRegistration registration) {
+        registration.taskExecutor()
+            .corePoolSize(outboundThreads)
+            .maxPoolSize(outboundThreads)
+            .queueCapacity(outboundQueueCapacity);
+        registration.interceptors(deliveryMonitor);
+    }
+
+    @Override
+    public void configureWebSocketTransport(@NonNull WebSocketTransportRegistration registration) {
+        // Exceeding either send limit closes the session (SESSION_NOT_RELIABLE)
+        registration.setSendTimeLimit(sendTimeLimitMs)
+            .setSendBufferSizeLimit(sendBufferSizeLimit)
+            .setMessageSizeLimit(messageSizeLimit)
+            .addDecoratorFactory(deliveryMonitor::decorate);
+    }
+}
@@ -1,9 +1,10 @@
 package com.url.analytics.controller;
 
 import com.url.analytics.service.AnalyticsService;
-import com.url.analytics.repository.ProjectRepository;
+import com.url.analytics.service.EntityResolutionCache;
 import com.url.analytics.models.Project;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -17,17 +18,20 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class AnalyticsController {
     private final AnalyticsService analyticsService;
-    private final ProjectRepository projectRepository;
+    private final EntityResolutionCache entityResolutionCache;
 
     @GetMapping("/top-pages")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<Map<String, Long>> getTopPages(
             @RequestParam String projectId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        Project project = projectRepository.findByProjectId(projectId)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "desc") String order) {
+        Project project = entityResolutionCache.findProject(projectId)
             .orElseThrow(() -> new IllegalArgumentException("Invalid projectId"));
-        return ResponseEntity.ok(analyticsService.getTopPages(project, startDate, endDate));
+        validateLimit(limit);
+        return ResponseEntity.ok(analyticsService.getTopPages(project, startDate, endDate, limit, Sort.Direction.fromString(order)));
     }
 
     @GetMapping("/top-referrers")
@@ -35,10 +39,13 @@ public class AnalyticsController {
     public ResponseEntity<Map<String, Long>> getTopReferrers(
             @RequestParam String projectId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        Project project = projectRepository.findByProjectId(projectId)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "desc") String order) {
+        Project project = entityResolutionCache.findProject(projectId)
             .orElseThrow(() -> new IllegalArgumentException("Invalid projectId"));
-        return ResponseEntity.ok(analyticsService.getTopReferrers(project, startDate, endDate));
+        validateLimit(limit);
+        return ResponseEntity.ok(analyticsService.getTopReferrers(project, startDate, endDate, limit, Sort.Direction.fromString(order)));
     }
 
     @GetMapping("/device-breakdown")
@@ -47,7 +54,7 @@ public class AnalyticsController {
             @RequestParam String projectId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        Project project = projectRepository.findByProjectId(projectId)
+        Project project = entityResolutionCache.findProject(projectId)
             .orElseThrow(() -> new IllegalArgumentException("Invalid projectId"));
         return ResponseEntity.ok(analyticsService.getDeviceBreakdown(project, startDate, endDate));
     }
@@ -58,8 +65,14 @@ public class AnalyticsController {
             @RequestParam String projectId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        Project project = projectRepository.findByProjectId(projectId)
+        Project project = entityResolutionCache.findProject(projectId)
             .orElseThrow(() -> new IllegalArgumentException("Invalid projectId"));
         return ResponseEntity.ok(analyticsService.getCountryBreakdown(project, startDate, endDate));
     }
-} 
\ No newline at end of file
+
+    private static void validateLimit(Integer limit) {
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+    }
+}
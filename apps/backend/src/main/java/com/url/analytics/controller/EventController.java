@@ -2,9 +2,10 @@ package com.url.analytics.controller;
 
 import com.url.analytics.models.User;
 import com.url.analytics.models.CustomEvent;
+import com.url.analytics.dtos.CustomEventDTO;
 import com.url.analytics.service.EventService;
 import com.url.analytics.service.UserService;
-import com.url.analytics.repository.ProjectRepository;
+import com.url.analytics.service.EntityResolutionCache;
 import com.url.analytics.models.Project;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -20,26 +21,26 @@ public class EventController {
     
     private final EventService eventService;
     private final UserService userService;
-    private final ProjectRepository projectRepository;
+    private final EntityResolutionCache entityResolutionCache;
 
     @PostMapping
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<CustomEvent> event(
+    public ResponseEntity<CustomEventDTO> event(
             @RequestBody com.url.analytics.dtos.TrackEventRequest request) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new IllegalStateException("User must be authenticated to create an event");
         }
         
-        User user = userService.findByUsername(authentication.getName());
+        User user = userService.getUserReference(authentication.getName());
         if (user == null) {
             throw new IllegalStateException("User not found");
         }
         
-        Project project = projectRepository.findByProjectId(request.getProjectId())
+        Project project = entityResolutionCache.findProject(request.getProjectId())
             .orElseThrow(() -> new IllegalArgumentException("Invalid projectId"));
         
         CustomEvent event = eventService.event(request.getEventName(), request.getEventData(), user, project);
-        return ResponseEntity.ok(event);
+        return ResponseEntity.ok(new CustomEventDTO(event));
     }
 } 
\ No newline at end of file
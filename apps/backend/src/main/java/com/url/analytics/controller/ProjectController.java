@@ -9,7 +9,9 @@ import com.url.analytics.dtos.ProjectDTO;
 import com.url.analytics.dtos.ProjectDetailsDTO;
 import com.url.analytics.repository.CustomEventRepository;
 import com.url.analytics.repository.SessionRepository;
-import com.url.analytics.repository.UrlMappingRepository;
+import com.url.analytics.service.UrlMappingService;
+import com.url.analytics.service.EntityResolutionCache;
+import com.url.analytics.service.EntityResolutionCache.EntityType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -29,7 +31,8 @@ public class ProjectController {
     private final UserService userService;
     private final CustomEventRepository customEventRepository;
     private final SessionRepository sessionRepository;
-    private final UrlMappingRepository urlMappingRepository;
+    private final UrlMappingService urlMappingService;
+    private final EntityResolutionCache entityResolutionCache;
 
     // Create a new project
     @PostMapping
@@ -42,9 +45,11 @@ public class ProjectController {
         Project project = Project.builder()
                 .name(request.getName())
                 .description(request.getDescription())
+                .retentionDays(request.getRetentionDays())
                 .owner(user)
                 .build();
         projectRepository.save(project);
+        entityResolutionCache.invalidate(EntityType.PROJECT, project.getProjectId());
         return ResponseEntity.ok(project);
     }
 
@@ -60,14 +65,13 @@ public class ProjectController {
     @GetMapping("/{projectId}/details")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<ProjectDetailsDTO> getProjectDetails(@PathVariable String projectId) {
-        Project project = projectRepository.findByProjectId(projectId)
+        Project project = entityResolutionCache.findProject(projectId)
             .orElseThrow(() -> new IllegalArgumentException("Invalid projectId"));
         List<CustomEventDTO> events = customEventRepository.findByProject(project)
             .stream().map(CustomEventDTO::new).toList();
         List<SessionDTO> sessions = sessionRepository.findByProject(project)
             .stream().map(SessionDTO::new).toList();
-        List<UrlMappingDTO> urlMappings = urlMappingRepository.findByProject(project)
-            .stream().map(UrlMappingDTO::new).toList();
+        List<UrlMappingDTO> urlMappings = urlMappingService.getUrlsByProject(project);
         ProjectDetailsDTO dto = new ProjectDetailsDTO(new ProjectDTO(project), events, sessions, urlMappings);
         return ResponseEntity.ok(dto);
     }
@@ -1,9 +1,9 @@
 package com.url.analytics.controller;
 
-import com.url.analytics.models.ClickEvent;
-import com.url.analytics.models.UrlMapping;
-import com.url.analytics.service.AnalyticsService;
 import com.url.analytics.service.UrlMappingService;
+import com.url.analytics.service.UrlResolutionCache.ResolvedUrl;
+import com.url.analytics.service.ingest.ClickIngestionPipeline;
+import com.url.analytics.service.ingest.RawClick;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
@@ -16,7 +16,7 @@ import jakarta.servlet.http.HttpServletRequest;
 @RequiredArgsConstructor
 public class RedirectController {
     private final UrlMappingService urlMappingService;
-    private final AnalyticsService analyticsService;
+    private final ClickIngestionPipeline clickIngestionPipeline;
 
     @GetMapping("/{shortUrl}")
     public ResponseEntity<Void> redirect(@PathVariable String shortUrl, HttpServletRequest request) {
@@ -25,28 +25,20 @@ public class RedirectController {
         String referrer = request.getHeader("Referer");
         String host = request.getHeader("Host");
 
-        UrlMapping urlMapping;
-        // Try to resolve by custom domain first
-        if (host != null && !host.isBlank()) {
-            urlMapping = urlMappingService.getOriginalUrlByDomain(host, shortUrl);
-        } else {
-            urlMapping = null;
-        }
-        // Fallback to default logic if not found
-        if (urlMapping == null) {
-            urlMapping = urlMappingService.getOriginalUrl(shortUrl, ipAddress, userAgent);
-        }
-        if (urlMapping != null) {
-            // Create and process click event
-            ClickEvent clickEvent = new ClickEvent();
-            clickEvent.setUrlMapping(urlMapping);
-            clickEvent.setIpAddress(ipAddress);
-            clickEvent.setUserAgent(userAgent);
-            clickEvent.setReferrer(referrer);
-            clickEvent.setClickDate(java.time.LocalDateTime.now());
-            analyticsService.processClickEvent(clickEvent);
+        // Resolved from the in-memory cache; custom domain first, then the default lookup
+        ResolvedUrl resolvedUrl = urlMappingService.resolveShortUrl(host, shortUrl);
+        if (resolvedUrl != null) {
+            // Enrichment and persistence happen on the ingestion workers
+            clickIngestionPipeline.submit(new RawClick(
+                resolvedUrl,
+                ipAddress,
+                userAgent,
+                referrer,
+                java.time.LocalDateTime.now(),
+                System.currentTimeMillis()
+            ));
             HttpHeaders httpHeaders = new HttpHeaders();
-            httpHeaders.add("Location", urlMapping.getOriginalUrl());
+            httpHeaders.add("Location", resolvedUrl.originalUrl());
             return ResponseEntity.status(302).headers(httpHeaders).build();
         } else {
             return ResponseEntity.notFound().build();
@@ -5,7 +5,7 @@ import com.url.analytics.dtos.SessionPageViewRequest;
 import com.url.analytics.dtos.SessionEndRequest;
 import com.url.analytics.models.Session;
 import com.url.analytics.service.SessionService;
-import com.url.analytics.repository.ProjectRepository;
+import com.url.analytics.service.EntityResolutionCache;
 import com.url.analytics.models.Project;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -15,7 +15,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import java.util.UUID;
 import com.url.analytics.dtos.SessionDTO;
 import com.url.analytics.dtos.LinkClickRequest;
-import com.url.analytics.repository.LinkClickRepository;
+import com.url.analytics.service.ingest.EventWriteBehind;
 import com.url.analytics.models.LinkClick;
 import java.time.LocalDateTime;
 
@@ -24,12 +24,12 @@ import java.time.LocalDateTime;
 @RequiredArgsConstructor
 public class SessionController {
     private final SessionService sessionService;
-    private final ProjectRepository projectRepository;
-    private final LinkClickRepository linkClickRepository;
+    private final EntityResolutionCache entityResolutionCache;
+    private final EventWriteBehind eventWriteBehind;
 
     @PostMapping("/start")
     public ResponseEntity<SessionDTO> startSession(@RequestBody SessionStartRequest req, HttpServletRequest request) {
-        Project project = projectRepository.findByProjectId(req.getProjectId())
+        Project project = entityResolutionCache.findProject(req.getProjectId())
             .orElseThrow(() -> new IllegalArgumentException("Invalid projectId"));
         String ipAddress = request.getRemoteAddr();
         Session session = sessionService.getOrCreateSession(
@@ -44,7 +44,7 @@ public class SessionController {
 
     @PostMapping("/pageview")
     public ResponseEntity<SessionDTO> pageView(@RequestBody SessionPageViewRequest req) {
-        Project project = projectRepository.findByProjectId(req.getProjectId())
+        Project project = entityResolutionCache.findProject(req.getProjectId())
             .orElseThrow(() -> new IllegalArgumentException("Invalid projectId"));
         Session session = sessionService.incrementPageView(UUID.fromString(req.getSessionId()), req.getPageUrl(), project);
         return ResponseEntity.ok(new SessionDTO(session));
@@ -52,7 +52,7 @@ public class SessionController {
 
     @PostMapping("/end")
     public ResponseEntity<SessionDTO> endSession(@RequestBody SessionEndRequest req) {
-        Project project = projectRepository.findByProjectId(req.getProjectId())
+        Project project = entityResolutionCache.findProject(req.getProjectId())
             .orElseThrow(() -> new IllegalArgumentException("Invalid projectId"));
         Session session = sessionService.endSession(UUID.fromString(req.getSessionId()), req.getLastPageUrl(), project);
         return ResponseEntity.ok(new SessionDTO(session));
@@ -68,7 +68,7 @@ public class SessionController {
         click.setSessionId(req.getSessionId());
         click.setIpAddress(ipAddress);
         click.setTimestamp(LocalDateTime.now());
-        linkClickRepository.save(click);
+        eventWriteBehind.write(click);
         return ResponseEntity.ok().build();
     }
 } 
\ No newline at end of file
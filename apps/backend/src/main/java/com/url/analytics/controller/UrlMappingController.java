@@ -6,7 +6,7 @@ import com.url.analytics.dtos.ShortenUrlRequest;
 import com.url.analytics.models.User;
 import com.url.analytics.service.UrlMappingService;
 import com.url.analytics.service.UserService;
-import com.url.analytics.repository.ProjectRepository;
+import com.url.analytics.service.EntityResolutionCache;
 import com.url.analytics.models.Project;
 import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -26,15 +26,15 @@ import java.util.Map;
 public class UrlMappingController {
     private UrlMappingService urlMappingService;
     private UserService userService;
-    private ProjectRepository projectRepository;
+    private EntityResolutionCache entityResolutionCache;
 
     // {"originalUrl": "https://example.com", "projectId": "123", "customDomain": "https://example.com"}
     @PostMapping("/shorten")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<UrlMappingDTO> createShortUrl(@RequestBody ShortenUrlRequest request,
                                                         Principal principal) {
-        User user = userService.findByUsername(principal.getName());
-        Project project = projectRepository.findByProjectId(request.getProjectId())
+        User user = userService.getUserReference(principal.getName());
+        Project project = entityResolutionCache.findProject(request.getProjectId())
             .orElseThrow(() -> new IllegalArgumentException("Invalid projectId"));
         UrlMappingDTO urlMappingDTO = urlMappingService.createShortUrl(request, user, project);
         return ResponseEntity.ok(urlMappingDTO);
@@ -43,7 +43,7 @@ public class UrlMappingController {
     @GetMapping("/myurls")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<List<UrlMappingDTO>> getUsersUrls(Principal principal) {
-        User user = userService.findByUsername(principal.getName());
+        User user = userService.getUserReference(principal.getName());
         List<UrlMappingDTO> url = urlMappingService.getUrlsByUser(user);
         return ResponseEntity.ok(url);
     }
@@ -66,7 +66,7 @@ public class UrlMappingController {
                                                                       @RequestParam("startDate") String startDate,
                                                                       @RequestParam("endDate") String endDate) {
         DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE;
-        User user = userService.findByUsername(principal.getName());
+        User user = userService.getUserReference(principal.getName());
         LocalDate start = LocalDate.parse(startDate, formatter);
         LocalDate end = LocalDate.parse(endDate, formatter);
         Map<LocalDate, Long> totalClicks = urlMappingService.getTotalClicksByUserAndDate(user, start, end);
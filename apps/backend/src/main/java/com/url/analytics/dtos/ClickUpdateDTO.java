@@ -0,0 +1,12 @@
+package com.url.analytics.dtos;
+
+import java.util.List;
+
+/**
+ * Live click update for one project's links: the clicks each link received since the previous
+ * update. Clients add {@code clicks} to the counts they already show.
+ */
+public record ClickUpdateDTO(String projectId, List<LinkClicks> links) {
+
+    public record LinkClicks(Long id, String shortUrl, long clicks) {}
+}
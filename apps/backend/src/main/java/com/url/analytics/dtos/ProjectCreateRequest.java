@@ -6,4 +6,5 @@ import lombok.Data;
 public class ProjectCreateRequest {
     private String name;
     private String description;
+    private Integer retentionDays;
 } 
\ No newline at end of file
@@ -9,6 +9,7 @@ public class ProjectDTO {
     private String projectId;
     private String name;
     private String description;
+    private Integer retentionDays;
     private String ownerUsername;
 
     public ProjectDTO(Project project) {
@@ -16,6 +17,7 @@ public class ProjectDTO {
         this.projectId = project.getProjectId();
         this.name = project.getName();
         this.description = project.getDescription();
+        this.retentionDays = project.getRetentionDays();
         this.ownerUsername = project.getOwner().getUsername();
     }
 } 
\ No newline at end of file
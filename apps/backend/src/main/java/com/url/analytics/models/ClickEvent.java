@@ -18,25 +18,44 @@ public class ClickEvent extends Auditable {
     private String referrer;
     
     // GeoIP data
+    @Transient
     private String country;
+    @Transient
     private String city;
+    @Transient
     private String region;
     private String postalCode;
     private Double latitude;
     private Double longitude;
+    @Transient
     private String timezone;
     
     // Parsed User Agent data
+    @Transient
     private String deviceType;  // mobile, tablet, desktop
+    @Transient
     private String operatingSystem;
+    @Transient
     private String browser;
+    @Transient
     private String browserVersion;
 
+    // Low-cardinality attributes are stored as ids into dimension_value (see DimensionDictionary);
+    // the text fields above are filled during enrichment and encoded when the event is written
+    private Integer countryId;
+    private Integer cityId;
+    private Integer regionId;
+    private Integer timezoneId;
+    private Integer deviceTypeId;
+    private Integer operatingSystemId;
+    private Integer browserId;
+    private Integer browserVersionId;
+
     @ManyToOne
-    @JoinColumn(name = "url_mapping_id")
+    @JoinColumn(name = "url_mapping_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private UrlMapping urlMapping;
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "project_id")
+    @JoinColumn(name = "project_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Project project;
 }
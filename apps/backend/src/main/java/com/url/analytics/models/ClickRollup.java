@@ -0,0 +1,69 @@
+package com.url.analytics.models;
+
+import com.url.analytics.util.Fnv1a;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated click counts per (project, time bucket, dimension, value).
+ * {@code valueHash} stands in for value + subValue in the unique key so long URLs and
+ * referrers don't hit MySQL's index length limit.
+ */
+@Entity
+@Data
+@Table(name = "click_rollup", uniqueConstraints = @UniqueConstraint(
+    name = "uk_click_rollup_bucket",
+    columnNames = {"project_id", "dimension", "granularity", "bucket_start", "value_hash"}))
+public class ClickRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "project_id", nullable = false)
+    private Long projectId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Dimension dimension;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Granularity granularity;
+
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false)
+    private long valueHash;
+
+    @Column(length = 2048)
+    private String value;
+
+    private String subValue;
+
+    @Column(nullable = false)
+    private long clicks;
+
+    /**
+     * {@link Fnv1a} over value and subValue; the unique-key stand-in for the two strings.
+     */
+    public static long hashValue(String value, String subValue) {
+        long h = Fnv1a.addString(Fnv1a.OFFSET_BASIS, value);
+        h = Fnv1a.addString(Fnv1a.addSeparator(h), subValue);
+        return Fnv1a.finish(h);
+    }
+
+    public enum Dimension {
+        PAGE,       // original URL
+        REFERRER,
+        DEVICE,     // device type / operating system
+        COUNTRY     // country / city
+    }
+
+    public enum Granularity {
+        HOUR,
+        DAY
+    }
+}
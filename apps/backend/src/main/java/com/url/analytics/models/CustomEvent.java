@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.NotFound;
+import org.hibernate.annotations.NotFoundAction;
 
 import java.time.LocalDateTime;
 
@@ -18,7 +20,7 @@ public class CustomEvent extends Auditable {
     private Long id;
 
     @ManyToOne(fetch = FetchType.EAGER)
-    @JoinColumn(name = "user_id", nullable = false)
+    @JoinColumn(name = "user_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private User user;
 
     @Column(nullable = false)
@@ -30,11 +32,14 @@ public class CustomEvent extends Auditable {
     @Column(nullable = false)
     private LocalDateTime timestamp;
 
+    // Sessions are pruned by start time and events by their own timestamp, so an event past
+    // retention may still point at a removed session until it is pruned too
     @ManyToOne(fetch = FetchType.EAGER)
-    @JoinColumn(name = "session_id")
+    @NotFound(action = NotFoundAction.IGNORE)
+    @JoinColumn(name = "session_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Session session;
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "project_id")
+    @JoinColumn(name = "project_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Project project;
 } 
\ No newline at end of file
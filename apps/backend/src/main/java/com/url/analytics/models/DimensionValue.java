@@ -0,0 +1,58 @@
+package com.url.analytics.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Dictionary entry for a low-cardinality {@link ClickEvent} attribute. Click rows store the
+ * {@code id} in an integer column instead of repeating the text.
+ */
+@Entity
+@Data
+@Table(name = "dimension_value", uniqueConstraints = @UniqueConstraint(
+    name = "uk_dimension_value", columnNames = {"kind", "value"}))
+public class DimensionValue {
+    public static final int MAX_LENGTH = 255;
+    public static final String VALUE_TYPE = "VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Kind kind;
+
+    // Binary collation: the dictionary must tell apart values that differ only in case or accents
+    @Column(nullable = false, length = MAX_LENGTH, columnDefinition = VALUE_TYPE)
+    private String value;
+
+    /**
+     * Encoded attributes, with the legacy text column each one replaces on {@code click_event}.
+     * Referrers are not encoded: they are close to unique per click.
+     */
+    public enum Kind {
+        COUNTRY("country"),
+        CITY("city"),
+        REGION("region"),
+        TIMEZONE("timezone"),
+        DEVICE_TYPE("device_type"),
+        OPERATING_SYSTEM("operating_system"),
+        BROWSER("browser"),
+        BROWSER_VERSION("browser_version");
+
+        private final String legacyColumn;
+
+        Kind(String legacyColumn) {
+            this.legacyColumn = legacyColumn;
+        }
+
+        public String legacyColumn() {
+            return legacyColumn;
+        }
+
+        public String idColumn() {
+            return legacyColumn + "_id";
+        }
+    }
+}
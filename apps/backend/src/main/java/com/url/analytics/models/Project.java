@@ -19,6 +19,9 @@ public class Project {
 
     private String description;
 
+    // Days of analytics data to keep; null uses analytics.retention.default-days, 0 keeps forever
+    private Integer retentionDays;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User owner;
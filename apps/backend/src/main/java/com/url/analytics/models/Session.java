@@ -52,6 +52,6 @@ public class Session extends Auditable {
     private Double sessionDuration; // in seconds
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "project_id")
+    @JoinColumn(name = "project_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Project project;
 } 
\ No newline at end of file
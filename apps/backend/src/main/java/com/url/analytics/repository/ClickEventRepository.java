@@ -3,9 +3,14 @@ package com.url.analytics.repository;
 import com.url.analytics.models.ClickEvent;
 import com.url.analytics.models.UrlMapping;
 import com.url.analytics.models.Project;
+import com.url.analytics.models.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -14,8 +19,67 @@ public interface ClickEventRepository extends JpaRepository<ClickEvent, Long> {
     List<ClickEvent> findByUrlMappingAndClickDateBetween(UrlMapping urlMapping, LocalDateTime start, LocalDateTime end);
     List<ClickEvent> findByUrlMappingInAndClickDateBetween(List<UrlMapping> urlMappings, LocalDateTime start, LocalDateTime end);
     List<ClickEvent> findByClickDateBetween(LocalDateTime start, LocalDateTime end);
-    boolean existsByUrlMappingAndIpAddressAndUserAgentAndClickDateBetween(
-        UrlMapping urlMapping, String ipAddress, String userAgent, LocalDateTime start, LocalDateTime end
-    );
     List<ClickEvent> findByProjectAndClickDateBetween(Project project, LocalDateTime start, LocalDateTime end);
+
+    // Aggregates computed in MySQL; each returns one row per group, most clicked first.
+    // Pass Limit.of(n) for a top-N or Limit.unlimited() for every group.
+
+    @Query("SELECT m.originalUrl AS value, COUNT(c) AS clicks FROM ClickEvent c JOIN c.urlMapping m " +
+           "WHERE c.project = :project AND c.clickDate BETWEEN :start AND :end " +
+           "GROUP BY m.originalUrl ORDER BY COUNT(c) DESC")
+    List<ValueCount> countByPage(@Param("project") Project project, @Param("start") LocalDateTime start,
+                                 @Param("end") LocalDateTime end, Limit limit);
+
+    @Query("SELECT c.referrer AS value, COUNT(c) AS clicks FROM ClickEvent c " +
+           "WHERE c.project = :project AND c.clickDate BETWEEN :start AND :end " +
+           "AND c.referrer IS NOT NULL AND c.referrer <> '' " +
+           "GROUP BY c.referrer ORDER BY COUNT(c) DESC")
+    List<ValueCount> countByReferrer(@Param("project") Project project, @Param("start") LocalDateTime start,
+                                     @Param("end") LocalDateTime end, Limit limit);
+
+    // Dictionary-encoded attributes group on their integer ids; decode with DimensionDictionary
+
+    @Query("SELECT c.deviceTypeId AS valueId, c.operatingSystemId AS subValueId, COUNT(c) AS clicks FROM ClickEvent c " +
+           "WHERE c.project = :project AND c.clickDate BETWEEN :start AND :end " +
+           "GROUP BY c.deviceTypeId, c.operatingSystemId ORDER BY COUNT(c) DESC")
+    List<IdBreakdownCount> countByDeviceAndOs(@Param("project") Project project, @Param("start") LocalDateTime start,
+                                            @Param("end") LocalDateTime end, Limit limit);
+
+    @Query("SELECT c.countryId AS valueId, c.cityId AS subValueId, COUNT(c) AS clicks FROM ClickEvent c " +
+           "WHERE c.project = :project AND c.clickDate BETWEEN :start AND :end " +
+           "GROUP BY c.countryId, c.cityId ORDER BY COUNT(c) DESC")
+    List<IdBreakdownCount> countByCountryAndCity(@Param("project") Project project, @Param("start") LocalDateTime start,
+                                               @Param("end") LocalDateTime end, Limit limit);
+
+    @Query("SELECT CAST(c.clickDate AS LocalDate) AS date, COUNT(c) AS clicks FROM ClickEvent c " +
+           "WHERE c.urlMapping = :urlMapping AND c.clickDate BETWEEN :start AND :end " +
+           "GROUP BY CAST(c.clickDate AS LocalDate) ORDER BY CAST(c.clickDate AS LocalDate)")
+    List<DateCount> countByDay(@Param("urlMapping") UrlMapping urlMapping, @Param("start") LocalDateTime start,
+                               @Param("end") LocalDateTime end);
+
+    @Query("SELECT CAST(c.clickDate AS LocalDate) AS date, COUNT(c) AS clicks FROM ClickEvent c " +
+           "WHERE c.urlMapping.user = :user AND c.clickDate BETWEEN :start AND :end " +
+           "GROUP BY CAST(c.clickDate AS LocalDate) ORDER BY CAST(c.clickDate AS LocalDate)")
+    List<DateCount> countByDayForUser(@Param("user") User user, @Param("start") LocalDateTime start,
+                                      @Param("end") LocalDateTime end);
+
+    interface ValueCount {
+        String getValue();
+        Long getClicks();
+    }
+
+    interface BreakdownCount extends ValueCount {
+        String getSubValue();
+    }
+
+    interface IdBreakdownCount {
+        Integer getValueId();
+        Integer getSubValueId();
+        Long getClicks();
+    }
+
+    interface DateCount {
+        LocalDate getDate();
+        Long getClicks();
+    }
 }
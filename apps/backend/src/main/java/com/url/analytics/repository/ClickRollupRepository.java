@@ -0,0 +1,38 @@
+package com.url.analytics.repository;
+
+import com.url.analytics.models.ClickRollup;
+import com.url.analytics.models.ClickRollup.Dimension;
+import com.url.analytics.models.ClickRollup.Granularity;
+import com.url.analytics.repository.ClickEventRepository.BreakdownCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ClickRollupRepository extends JpaRepository<ClickRollup, Long> {
+
+    /**
+     * Sums hourly buckets in [hourStart, dayStart) and [dayEnd, hourEnd) plus daily buckets
+     * in [dayStart, dayEnd), grouped by value.
+     */
+    @Query("SELECT r.value AS value, r.subValue AS subValue, SUM(r.clicks) AS clicks FROM ClickRollup r " +
+           "WHERE r.projectId = :projectId AND r.dimension = :dimension AND (" +
+           "(r.granularity = :hour AND ((r.bucketStart >= :hourStart AND r.bucketStart < :dayStart) " +
+           "OR (r.bucketStart >= :dayEnd AND r.bucketStart < :hourEnd))) " +
+           "OR (r.granularity = :day AND r.bucketStart >= :dayStart AND r.bucketStart < :dayEnd)) " +
+           "GROUP BY r.valueHash, r.value, r.subValue")
+    List<BreakdownCount> sumByValue(
+        @Param("projectId") Long projectId,
+        @Param("dimension") Dimension dimension,
+        @Param("hour") Granularity hour,
+        @Param("day") Granularity day,
+        @Param("hourStart") LocalDateTime hourStart,
+        @Param("dayStart") LocalDateTime dayStart,
+        @Param("dayEnd") LocalDateTime dayEnd,
+        @Param("hourEnd") LocalDateTime hourEnd
+    );
+}
@@ -0,0 +1,112 @@
+package com.url.analytics.repository;
+
+import com.url.analytics.models.DimensionValue;
+import com.url.analytics.models.DimensionValue.Kind;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads and inserts {@code dimension_value} rows, and re-encodes legacy text columns of
+ * {@code click_event} written before the dictionary existed.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DimensionValueRepository {
+    private static final String INSERT_IGNORE =
+        "INSERT IGNORE INTO dimension_value (kind, value) VALUES (?, ?)";
+
+    private static final String FIND_ID =
+        "SELECT id FROM dimension_value WHERE kind = ? AND value = ?";
+
+    private static final String FIND_BY_ID =
+        "SELECT id, kind, value FROM dimension_value WHERE id = ?";
+
+    private static final String FIND_ALL =
+        "SELECT id, kind, value FROM dimension_value";
+
+    private static final String COLUMN_EXISTS =
+        "SELECT COUNT(*) FROM information_schema.columns " +
+        "WHERE table_schema = DATABASE() AND table_name = 'click_event' AND column_name = ?";
+
+    private static final String VALUE_COLLATION =
+        "SELECT COLLATION_NAME FROM information_schema.COLUMNS " +
+        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'dimension_value' AND COLUMN_NAME = 'value'";
+
+    // The legacy columns compare case- and accent-insensitively; compare as the dictionary does
+    // %1$s legacy text column, %2$s id column
+    private static final String BACKFILL_VALUES =
+        "INSERT IGNORE INTO dimension_value (kind, value) " +
+        "SELECT DISTINCT ?, LEFT(c.%1$s, 255) COLLATE utf8mb4_bin FROM click_event c " +
+        "WHERE c.id >= ? AND c.id < ? AND c.%1$s IS NOT NULL AND c.%2$s IS NULL";
+
+    private static final String BACKFILL_IDS =
+        "UPDATE click_event c JOIN dimension_value d ON d.kind = ? AND d.value = LEFT(c.%1$s, 255) COLLATE utf8mb4_bin " +
+        "SET c.%2$s = d.id, c.%1$s = NULL " +
+        "WHERE c.id >= ? AND c.id < ? AND c.%1$s IS NOT NULL AND c.%2$s IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Id of {@code value}, inserting it first if it is new. Safe to call concurrently from
+     * several nodes: the unique key makes the insert a no-op for the loser.
+     */
+    public int getOrCreateId(Kind kind, String value) {
+        jdbcTemplate.update(INSERT_IGNORE, kind.name(), value);
+        return jdbcTemplate.queryForObject(FIND_ID, Integer.class, kind.name(), value);
+    }
+
+    /**
+     * Switches {@code value} to a binary collation on tables created before it was declared.
+     * Returns true if the column was altered.
+     */
+    public boolean ensureBinaryCollation() {
+        String collation = jdbcTemplate.query(VALUE_COLLATION, (rs, rowNum) -> rs.getString(1))
+            .stream().findFirst().orElse(null);
+        if (collation == null || collation.equals("utf8mb4_bin")) {
+            return false;
+        }
+        jdbcTemplate.execute("ALTER TABLE dimension_value MODIFY value " + DimensionValue.VALUE_TYPE + " NOT NULL");
+        return true;
+    }
+
+    public Optional<Entry> findById(int id) {
+        return jdbcTemplate.query(FIND_BY_ID, (rs, rowNum) -> toEntry(rs.getInt("id"), rs.getString("kind"),
+            rs.getString("value")), id).stream().findFirst();
+    }
+
+    public List<Entry> findAll() {
+        return jdbcTemplate.query(FIND_ALL, (rs, rowNum) -> toEntry(rs.getInt("id"), rs.getString("kind"),
+            rs.getString("value")));
+    }
+
+    public boolean hasLegacyColumn(Kind kind) {
+        Integer count = jdbcTemplate.queryForObject(COLUMN_EXISTS, Integer.class, kind.legacyColumn());
+        return count != null && count > 0;
+    }
+
+    public long maxClickEventId() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM click_event", Long.class);
+        return max != null ? max : 0;
+    }
+
+    /**
+     * Moves the legacy text of {@code kind} into the id column for click ids in [fromId, toId),
+     * clearing the text. Returns the number of rows re-encoded.
+     */
+    @Transactional
+    public int backfill(Kind kind, long fromId, long toId) {
+        jdbcTemplate.update(BACKFILL_VALUES.formatted(kind.legacyColumn(), kind.idColumn()), kind.name(), fromId, toId);
+        return jdbcTemplate.update(BACKFILL_IDS.formatted(kind.legacyColumn(), kind.idColumn()), kind.name(), fromId, toId);
+    }
+
+    private static Entry toEntry(int id, String kind, String value) {
+        return new Entry(id, Kind.valueOf(kind), value);
+    }
+
+    public record Entry(int id, Kind kind, String value) {}
+}
@@ -0,0 +1,114 @@
+package com.url.analytics.repository;
+
+import com.url.analytics.models.ClickEvent;
+import com.url.analytics.models.CustomEvent;
+import com.url.analytics.models.LinkClick;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multi-row inserts for the append-only event tables, plus batched counter updates.
+ *
+ * These bypass Hibernate: with {@code GenerationType.IDENTITY} it cannot batch inserts, so the
+ * rows are written through JDBC batches (rewritten into multi-row INSERTs by the driver) and
+ * MySQL assigns the auto-increment ids.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EventBatchRepository {
+    private static final String INSERT_CLICK_EVENT =
+        "INSERT INTO click_event (click_date, ip_address, user_agent, referrer, country_id, city_id, region_id, " +
+        "postal_code, latitude, longitude, timezone_id, device_type_id, operating_system_id, browser_id, browser_version_id, " +
+        "url_mapping_id, project_id, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_CUSTOM_EVENT =
+        "INSERT INTO custom_events (user_id, event_name, event_data, timestamp, session_id, project_id, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_LINK_CLICK =
+        "INSERT INTO link_click (project_id, url, type, session_id, ip_address, timestamp) " +
+        "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String INCREMENT_CLICK_COUNT =
+        "UPDATE url_mapping SET click_count = click_count + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts click events whose dictionary ids have already been filled in.
+     */
+    @Transactional
+    public void insertClickEvents(List<ClickEvent> events) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_CLICK_EVENT, events, events.size(), (ps, event) -> {
+            ps.setTimestamp(1, toTimestamp(event.getClickDate()));
+            ps.setString(2, event.getIpAddress());
+            ps.setString(3, event.getUserAgent());
+            ps.setString(4, event.getReferrer());
+            ps.setObject(5, event.getCountryId(), Types.INTEGER);
+            ps.setObject(6, event.getCityId(), Types.INTEGER);
+            ps.setObject(7, event.getRegionId(), Types.INTEGER);
+            ps.setString(8, event.getPostalCode());
+            ps.setObject(9, event.getLatitude(), Types.DOUBLE);
+            ps.setObject(10, event.getLongitude(), Types.DOUBLE);
+            ps.setObject(11, event.getTimezoneId(), Types.INTEGER);
+            ps.setObject(12, event.getDeviceTypeId(), Types.INTEGER);
+            ps.setObject(13, event.getOperatingSystemId(), Types.INTEGER);
+            ps.setObject(14, event.getBrowserId(), Types.INTEGER);
+            ps.setObject(15, event.getBrowserVersionId(), Types.INTEGER);
+            ps.setObject(16, event.getUrlMapping() != null ? event.getUrlMapping().getId() : null, Types.BIGINT);
+            ps.setObject(17, event.getProject() != null ? event.getProject().getId() : null, Types.BIGINT);
+            ps.setTimestamp(18, now);
+            ps.setTimestamp(19, now);
+        });
+    }
+
+    @Transactional
+    public void insertCustomEvents(List<CustomEvent> events) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_CUSTOM_EVENT, events, events.size(), (ps, event) -> {
+            ps.setObject(1, event.getUser() != null ? event.getUser().getId() : null, Types.BIGINT);
+            ps.setString(2, event.getEventName());
+            ps.setString(3, event.getEventData());
+            ps.setTimestamp(4, toTimestamp(event.getTimestamp()));
+            ps.setBytes(5, event.getSession() != null ? UuidBytes.toBytes(event.getSession().getId()) : null);
+            ps.setObject(6, event.getProject() != null ? event.getProject().getId() : null, Types.BIGINT);
+            ps.setTimestamp(7, now);
+            ps.setTimestamp(8, now);
+        });
+    }
+
+    @Transactional
+    public void insertLinkClicks(List<LinkClick> clicks) {
+        jdbcTemplate.batchUpdate(INSERT_LINK_CLICK, clicks, clicks.size(), (ps, click) -> {
+            ps.setString(1, click.getProjectId());
+            ps.setString(2, click.getUrl());
+            ps.setString(3, click.getType());
+            ps.setString(4, click.getSessionId());
+            ps.setString(5, click.getIpAddress());
+            ps.setTimestamp(6, toTimestamp(click.getTimestamp()));
+        });
+    }
+
+    @Transactional
+    public void incrementClickCounts(Map<Long, Long> deltas) {
+        List<Map.Entry<Long, Long>> entries = List.copyOf(deltas.entrySet());
+        jdbcTemplate.batchUpdate(INCREMENT_CLICK_COUNT, entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+        });
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime dateTime) {
+        return dateTime != null ? Timestamp.valueOf(dateTime) : null;
+    }
+}
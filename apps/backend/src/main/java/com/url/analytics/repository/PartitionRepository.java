@@ -0,0 +1,125 @@
+package com.url.analytics.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * MySQL partition DDL for the time-series tables. Tables are partitioned by
+ * {@code RANGE COLUMNS(<date column>)} into monthly partitions named {@code pYYYYMM}, followed
+ * by a catch-all {@code p_future} partition.
+ *
+ * Identifiers come from {@code PartitionMaintenanceService.ManagedTable}, never from user input.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PartitionRepository {
+    public static final String FUTURE_PARTITION = "p_future";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private static final String FIND_PARTITIONS =
+        "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL " +
+        "ORDER BY PARTITION_ORDINAL_POSITION";
+
+    // Partitioned InnoDB tables can neither have nor be the target of foreign keys
+    private static final String FIND_FOREIGN_KEYS =
+        "SELECT TABLE_NAME, CONSTRAINT_NAME FROM information_schema.REFERENTIAL_CONSTRAINTS " +
+        "WHERE CONSTRAINT_SCHEMA = DATABASE() AND (TABLE_NAME = ? OR REFERENCED_TABLE_NAME = ?)";
+
+    // Events are pruned by their own timestamp, so they can outlive the session they belong to
+    private static final String CLEAR_EVENT_SESSIONS =
+        "UPDATE custom_events ce JOIN sessions s ON s.id = ce.session_id SET ce.session_id = NULL " +
+        "WHERE s.start_time < ? AND ce.timestamp >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<Partition> findPartitions(String table) {
+        return jdbcTemplate.query(FIND_PARTITIONS, (rs, rowNum) -> new Partition(
+            rs.getString("PARTITION_NAME"), rs.getString("PARTITION_DESCRIPTION")), table);
+    }
+
+    public LocalDate findMinDate(String table, String dateColumn) {
+        Timestamp min = jdbcTemplate.queryForObject("SELECT MIN(" + dateColumn + ") FROM " + table, Timestamp.class);
+        return min != null ? min.toLocalDateTime().toLocalDate() : null;
+    }
+
+    /**
+     * Converts a plain table to monthly partitions covering [firstMonth, lastMonth]. This rebuilds
+     * the table: run it in a maintenance window. The primary key is widened to (id, dateColumn),
+     * as MySQL requires every unique key to include the partitioning column.
+     */
+    public void partition(String table, String dateColumn, LocalDate firstMonth, LocalDate lastMonth) {
+        jdbcTemplate.query(FIND_FOREIGN_KEYS, rs -> {
+            jdbcTemplate.execute("ALTER TABLE " + rs.getString("TABLE_NAME")
+                + " DROP FOREIGN KEY " + rs.getString("CONSTRAINT_NAME"));
+        }, table, table);
+        // A key column can't be NULL; such rows only come from clients that never set the time.
+        // They go to the start of the first month: an older date would widen the partition range
+        // (MIN is computed again if this conversion fails and is retried)
+        jdbcTemplate.update("UPDATE " + table + " SET " + dateColumn + " = ? WHERE " + dateColumn + " IS NULL",
+            Timestamp.valueOf(firstMonth.atStartOfDay()));
+        jdbcTemplate.execute("ALTER TABLE " + table
+            + " MODIFY " + dateColumn + " DATETIME(6) NOT NULL, DROP PRIMARY KEY, ADD PRIMARY KEY (id, " + dateColumn + ")"
+            + " PARTITION BY RANGE COLUMNS(" + dateColumn + ") (" + monthlyPartitions(firstMonth, lastMonth) + ")");
+    }
+
+    /**
+     * Splits new monthly partitions up to and including {@code lastMonth} off {@code p_future}.
+     * Cheap as long as {@code p_future} is empty, which it is while months are added ahead.
+     */
+    public void addPartitions(String table, LocalDate firstMonth, LocalDate lastMonth) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " REORGANIZE PARTITION " + FUTURE_PARTITION
+            + " INTO (" + monthlyPartitions(firstMonth, lastMonth) + ")");
+    }
+
+    public void dropPartitions(String table, List<String> partitions) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP PARTITION " + String.join(", ", partitions));
+    }
+
+    /**
+     * Deletes at most {@code limit} rows of one project older than {@code cutoff}; only the
+     * partitions before the cutoff are scanned.
+     */
+    public int deleteOlderThan(String table, String projectColumn, Object projectKey, String dateColumn,
+                               LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.update("DELETE FROM " + table + " WHERE " + projectColumn + " = ? AND "
+            + dateColumn + " < ? LIMIT " + limit, projectKey, Timestamp.valueOf(cutoff));
+    }
+
+    /**
+     * Clears {@code custom_events.session_id} on events from {@code before} on whose session
+     * started before it (in one project, unless {@code projectId} is null), ahead of those
+     * sessions being removed. Older events are removed by the same retention.
+     */
+    public int clearEventSessions(Long projectId, LocalDateTime before) {
+        if (projectId == null) {
+            return jdbcTemplate.update(CLEAR_EVENT_SESSIONS, Timestamp.valueOf(before), Timestamp.valueOf(before));
+        }
+        return jdbcTemplate.update(CLEAR_EVENT_SESSIONS + " AND s.project_id = ?",
+            Timestamp.valueOf(before), Timestamp.valueOf(before), projectId);
+    }
+
+    public static String partitionName(LocalDate month) {
+        return PARTITION_NAME.format(month);
+    }
+
+    private static String monthlyPartitions(LocalDate firstMonth, LocalDate lastMonth) {
+        return firstMonth.datesUntil(lastMonth.plusMonths(1), Period.ofMonths(1))
+            .map(month -> "PARTITION " + partitionName(month) + " VALUES LESS THAN ('" + month.plusMonths(1) + "')")
+            .collect(Collectors.joining(", ")) + ", PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE)";
+    }
+
+    /**
+     * {@code description} is the quoted upper bound, e.g. {@code '2026-11-01'}, or {@code MAXVALUE}.
+     */
+    public record Partition(String name, String description) {}
+}
@@ -2,6 +2,8 @@ package com.url.analytics.repository;
 
 import com.url.analytics.models.Project;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
 import java.util.List;
@@ -9,5 +11,8 @@ import java.util.List;
 @Repository
 public interface ProjectRepository extends JpaRepository<Project, Long> {
     Optional<Project> findByProjectId(String projectId);
+
+    @Query("SELECT p.id FROM Project p WHERE p.projectId = :projectId")
+    Optional<Long> findIdByProjectId(@Param("projectId") String projectId);
     List<Project> findByOwnerUsername(String username);
 } 
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.url.analytics.repository;
+
+import com.url.analytics.models.ClickRollup;
+import com.url.analytics.models.ClickRollup.Dimension;
+import com.url.analytics.models.ClickRollup.Granularity;
+import com.url.analytics.models.DimensionValue.Kind;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batched writes to {@code click_rollup}, the GROUP BY scans of {@code click_event} used to
+ * rebuild it, and its coverage watermark ({@code click_rollup_coverage}).
+ */
+@Repository
+@RequiredArgsConstructor
+public class RollupBatchRepository {
+    private static final String UPSERT_ROLLUP =
+        "INSERT INTO click_rollup (project_id, dimension, granularity, bucket_start, value_hash, value, sub_value, clicks) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE clicks = clicks + VALUES(clicks)";
+
+    private static final String DELETE_ROLLUPS_BETWEEN =
+        "DELETE FROM click_rollup WHERE bucket_start >= ? AND bucket_start < ?";
+
+    private static final String CREATE_COVERAGE_TABLE =
+        "CREATE TABLE IF NOT EXISTS click_rollup_coverage (" +
+        "id INT NOT NULL PRIMARY KEY, " +
+        "covered_from DATETIME(6) NOT NULL)";
+
+    private static final String FIND_COVERED_FROM = "SELECT covered_from FROM click_rollup_coverage WHERE id = 1";
+
+    private static final String INSERT_COVERED_FROM =
+        "INSERT IGNORE INTO click_rollup_coverage (id, covered_from) VALUES (1, ?)";
+
+    private static final String LOWER_COVERED_FROM =
+        "UPDATE click_rollup_coverage SET covered_from = LEAST(covered_from, ?) WHERE id = 1";
+
+    private static final String DELETE_COVERAGE = "DELETE FROM click_rollup_coverage";
+
+    private static final String HOUR_BUCKET = "TIMESTAMP(DATE(c.click_date), MAKETIME(HOUR(c.click_date), 0, 0))";
+
+    // Older rows never had click_event.project_id set, so fall back to the link's project
+    private static final String HOURLY_COUNTS =
+        "SELECT COALESCE(c.project_id, m.project_id) AS project_id, " + HOUR_BUCKET + " AS bucket_start, " +
+        "%s AS value, %s AS sub_value, COUNT(*) AS clicks " +
+        "FROM click_event c JOIN url_mapping m ON m.id = c.url_mapping_id %s" +
+        "WHERE c.click_date >= ? AND c.click_date < ? AND COALESCE(c.project_id, m.project_id) IS NOT NULL %s " +
+        "GROUP BY project_id, bucket_start, value, sub_value";
+
+    // Dictionary-encoded attributes are joined back to their text
+    private static final String DICTIONARY_JOINS =
+        "LEFT JOIN dimension_value v ON v.id = c.%s LEFT JOIN dimension_value sv ON sv.id = c.%s ";
+
+    private static final Map<Dimension, String> HOURLY_COUNTS_BY_DIMENSION = Map.of(
+        Dimension.PAGE, HOURLY_COUNTS.formatted("m.original_url", "NULL", "", ""),
+        Dimension.REFERRER, HOURLY_COUNTS.formatted("c.referrer", "NULL", "", "AND c.referrer IS NOT NULL AND c.referrer <> ''"),
+        Dimension.DEVICE, HOURLY_COUNTS.formatted("v.value", "sv.value",
+            DICTIONARY_JOINS.formatted(Kind.DEVICE_TYPE.idColumn(), Kind.OPERATING_SYSTEM.idColumn()), ""),
+        Dimension.COUNTRY, HOURLY_COUNTS.formatted("v.value", "sv.value",
+            DICTIONARY_JOINS.formatted(Kind.COUNTRY.idColumn(), Kind.CITY.idColumn()), "")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds the deltas to existing buckets, creating missing ones. Callers should pass the
+     * deltas in a stable order so concurrent flushes from several nodes lock rows consistently.
+     */
+    @Transactional
+    public void upsert(List<RollupDelta> deltas) {
+        jdbcTemplate.batchUpdate(UPSERT_ROLLUP, deltas, deltas.size(), (ps, delta) -> {
+            ps.setLong(1, delta.projectId());
+            ps.setString(2, delta.dimension().name());
+            ps.setString(3, delta.granularity().name());
+            ps.setTimestamp(4, Timestamp.valueOf(delta.bucketStart()));
+            ps.setLong(5, ClickRollup.hashValue(delta.value(), delta.subValue()));
+            ps.setString(6, delta.value());
+            ps.setString(7, delta.subValue());
+            ps.setLong(8, delta.clicks());
+        });
+    }
+
+    /**
+     * Replaces every bucket starting in [from, to) with the given deltas in one transaction.
+     */
+    @Transactional
+    public void replace(LocalDateTime from, LocalDateTime to, List<RollupDelta> deltas) {
+        jdbcTemplate.update(DELETE_ROLLUPS_BETWEEN, Timestamp.valueOf(from), Timestamp.valueOf(to));
+        if (!deltas.isEmpty()) {
+            upsert(deltas);
+        }
+    }
+
+    /**
+     * Hourly click counts from {@code click_event} for one dimension, grouped in the database.
+     */
+    public List<RollupDelta> countHourly(Dimension dimension, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(HOURLY_COUNTS_BY_DIMENSION.get(dimension), (rs, rowNum) -> new RollupDelta(
+            rs.getLong("project_id"),
+            dimension,
+            Granularity.HOUR,
+            rs.getTimestamp("bucket_start").toLocalDateTime(),
+            rs.getString("value"),
+            rs.getString("sub_value"),
+            rs.getLong("clicks")
+        ), Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    public void createCoverageTable() {
+        jdbcTemplate.execute(CREATE_COVERAGE_TABLE);
+    }
+
+    /**
+     * The instant from which {@code click_rollup} holds every click, or null if none is recorded.
+     */
+    public LocalDateTime findCoveredFrom() {
+        List<Timestamp> rows = jdbcTemplate.queryForList(FIND_COVERED_FROM, Timestamp.class);
+        return rows.isEmpty() ? null : rows.get(0).toLocalDateTime();
+    }
+
+    /**
+     * Records the watermark unless one is already recorded, e.g. by another node.
+     */
+    public void initCoveredFrom(LocalDateTime coveredFrom) {
+        jdbcTemplate.update(INSERT_COVERED_FROM, Timestamp.valueOf(coveredFrom));
+    }
+
+    /**
+     * Moves the watermark back to {@code coveredFrom}; never moves it forward.
+     */
+    public void lowerCoveredFrom(LocalDateTime coveredFrom) {
+        jdbcTemplate.update(LOWER_COVERED_FROM, Timestamp.valueOf(coveredFrom));
+    }
+
+    public void deleteCoverage() {
+        jdbcTemplate.update(DELETE_COVERAGE);
+    }
+
+    public record RollupDelta(
+        long projectId,
+        Dimension dimension,
+        Granularity granularity,
+        LocalDateTime bucketStart,
+        String value,
+        String subValue,
+        long clicks
+    ) {}
+}
@@ -0,0 +1,144 @@
+package com.url.analytics.repository;
+
+import com.url.analytics.service.schema.GeneratedColumn;
+import com.url.analytics.service.schema.IndexDefinition;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bookkeeping for versioned schema migrations ({@code schema_version}) and index DDL/metadata.
+ *
+ * Table, index and column names come from {@code SchemaMigrations} and {@code IndexAdvisor},
+ * never from user input.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SchemaRepository {
+    private static final String CREATE_VERSION_TABLE =
+        "CREATE TABLE IF NOT EXISTS schema_version (" +
+        "version INT NOT NULL PRIMARY KEY, " +
+        "description VARCHAR(255) NOT NULL, " +
+        "applied_at DATETIME(6) NOT NULL, " +
+        "execution_ms BIGINT NOT NULL)";
+
+    private static final String FIND_VERSIONS = "SELECT version FROM schema_version";
+
+    private static final String INSERT_VERSION =
+        "INSERT INTO schema_version (version, description, applied_at, execution_ms) VALUES (?, ?, ?, ?)";
+
+    private static final String FIND_INDEXES =
+        "SELECT INDEX_NAME, COLUMN_NAME FROM information_schema.STATISTICS " +
+        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY INDEX_NAME, SEQ_IN_INDEX";
+
+    private static final String TABLE_EXISTS =
+        "SELECT COUNT(*) FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+
+    private static final String COLUMN_EXISTS =
+        "SELECT COUNT(*) FROM information_schema.COLUMNS " +
+        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void createVersionTable() {
+        jdbcTemplate.execute(CREATE_VERSION_TABLE);
+    }
+
+    public Set<Integer> findAppliedVersions() {
+        return new HashSet<>(jdbcTemplate.queryForList(FIND_VERSIONS, Integer.class));
+    }
+
+    public void recordVersion(int version, String description, long executionMs) {
+        jdbcTemplate.update(INSERT_VERSION, version, description, Timestamp.valueOf(LocalDateTime.now()), executionMs);
+    }
+
+    public boolean tableExists(String table) {
+        Integer count = jdbcTemplate.queryForObject(TABLE_EXISTS, Integer.class, table);
+        return count != null && count > 0;
+    }
+
+    public boolean columnExists(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject(COLUMN_EXISTS, Integer.class, table, column);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Adds a virtual generated column; a metadata-only change, so the table isn't rebuilt.
+     */
+    public void addGeneratedColumn(GeneratedColumn column) {
+        jdbcTemplate.execute("ALTER TABLE " + column.table() + " ADD COLUMN " + column.name() + " " + column.type()
+            + " GENERATED ALWAYS AS (" + column.expression() + ") VIRTUAL, ALGORITHM=INPLACE, LOCK=NONE");
+    }
+
+    /**
+     * Index name to its columns in key order, for every index on {@code table} (PRIMARY included).
+     */
+    public Map<String, List<String>> findIndexes(String table) {
+        Map<String, List<String>> indexes = new LinkedHashMap<>();
+        jdbcTemplate.query(FIND_INDEXES, rs -> {
+            indexes.computeIfAbsent(rs.getString("INDEX_NAME"), name -> new ArrayList<>())
+                .add(rs.getString("COLUMN_NAME").toLowerCase());
+        }, table);
+        return indexes;
+    }
+
+    /**
+     * Builds the index online: reads and writes continue while InnoDB builds it.
+     */
+    public void createIndex(IndexDefinition index) {
+        jdbcTemplate.execute("CREATE " + (index.unique() ? "UNIQUE " : "") + "INDEX " + index.name()
+            + " ON " + index.table() + " (" + String.join(", ", index.columns()) + ") ALGORITHM=INPLACE LOCK=NONE");
+    }
+
+    /**
+     * Number of distinct key values held by more than one row; rows with a NULL key column are
+     * ignored, as a unique index allows them. To count NULLs as a value, key on a generated
+     * column that maps them to one (see {@code SchemaMigrations} version 3).
+     */
+    public long countDuplicateKeys(String table, List<String> columns) {
+        String key = String.join(", ", columns);
+        String notNull = String.join(" IS NOT NULL AND ", columns) + " IS NOT NULL";
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM " + table + " WHERE " + notNull
+            + " GROUP BY " + key + " HAVING COUNT(*) > 1) duplicates", Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Runs {@code work} while holding the MySQL named lock {@code name}, so only one node
+     * runs it at a time. Returns false, without running it, if the lock isn't granted in time.
+     */
+    public boolean withLock(String name, int timeoutSeconds, Runnable work) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            try (PreparedStatement lock = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+                lock.setString(1, name);
+                lock.setInt(2, timeoutSeconds);
+                try (ResultSet rs = lock.executeQuery()) {
+                    if (!rs.next() || rs.getInt(1) != 1) {
+                        return false;
+                    }
+                }
+            }
+            try {
+                work.run();
+                return true;
+            } finally {
+                try (PreparedStatement release = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                    release.setString(1, name);
+                    release.execute();
+                }
+            }
+        }));
+    }
+}
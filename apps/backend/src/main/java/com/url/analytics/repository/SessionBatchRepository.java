@@ -0,0 +1,116 @@
+package com.url.analytics.repository;
+
+import com.url.analytics.models.Session;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Batched upserts of session state held in memory by {@code ActiveSessionStore}. A session's
+ * first write inserts it; later writes only update the columns that change after it starts.
+ * Also closes out abandoned sessions in bulk.
+ *
+ * Several nodes may hold the same session, so updates merge rather than overwrite: page views
+ * are added as the node's unwritten increment, the latest activity (and its exit page) wins,
+ * and a closed session is never reopened. Bounces are decided from the merged page views when
+ * the session closes.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SessionBatchRepository {
+    private static final String UPSERT_SESSION =
+        "INSERT INTO sessions (id, ip_address, user_agent, start_time, last_activity_time, is_active, referrer, " +
+        "entry_page, exit_page, page_views, bounce_count, session_duration, project_id, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        // Assignments apply left to right and see the columns already updated
+        "ON DUPLICATE KEY UPDATE " +
+        "exit_page = CASE WHEN VALUES(last_activity_time) >= last_activity_time THEN VALUES(exit_page) ELSE exit_page END, " +
+        "last_activity_time = GREATEST(last_activity_time, VALUES(last_activity_time)), " +
+        "session_duration = GREATEST(COALESCE(session_duration, VALUES(session_duration)), " +
+        "COALESCE(VALUES(session_duration), session_duration)), " +
+        "page_views = COALESCE(page_views, 0) + ?, " +
+        "bounce_count = CASE WHEN is_active AND NOT VALUES(is_active) " +
+        "THEN CASE WHEN page_views = 1 THEN 1 ELSE 0 END ELSE bounce_count END, " +
+        "is_active = is_active AND VALUES(is_active), " +
+        "updated_at = VALUES(updated_at)";
+
+    // Same duration and bounce rules as an explicit end, timed at the last activity. Oldest first,
+    // along ix_sessions_active_last_activity, so each batch reads only the rows it closes.
+    private static final String EXPIRE_IDLE_SESSIONS =
+        "UPDATE sessions SET is_active = FALSE, " +
+        "session_duration = TIMESTAMPDIFF(MICROSECOND, start_time, last_activity_time) / 1000000, " +
+        "bounce_count = IF(page_views = 1, 1, 0), updated_at = ? " +
+        "WHERE is_active = TRUE AND last_activity_time < ? ORDER BY last_activity_time LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void upsertSessions(List<SessionRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_SESSION, rows, rows.size(), (ps, row) -> {
+            ps.setBytes(1, UuidBytes.toBytes(row.id()));
+            ps.setString(2, row.ipAddress());
+            ps.setString(3, row.userAgent());
+            ps.setTimestamp(4, toTimestamp(row.startTime()));
+            ps.setTimestamp(5, toTimestamp(row.lastActivityTime()));
+            ps.setBoolean(6, row.active());
+            ps.setString(7, row.referrer());
+            ps.setString(8, row.entryPage());
+            ps.setString(9, row.exitPage());
+            ps.setObject(10, row.pageViews(), Types.INTEGER);
+            ps.setObject(11, row.bounceCount(), Types.INTEGER);
+            ps.setObject(12, row.sessionDuration(), Types.DOUBLE);
+            ps.setObject(13, row.projectId(), Types.BIGINT);
+            ps.setTimestamp(14, now);
+            ps.setTimestamp(15, now);
+            ps.setInt(16, row.newPageViews());
+        });
+    }
+
+    /**
+     * Closes at most {@code limit} active sessions whose last activity is before {@code cutoff};
+     * returns how many were closed.
+     */
+    public int expireIdleSessions(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.update(EXPIRE_IDLE_SESSIONS, Timestamp.valueOf(LocalDateTime.now()),
+            Timestamp.valueOf(cutoff), limit);
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime dateTime) {
+        return dateTime != null ? Timestamp.valueOf(dateTime) : null;
+    }
+
+    /**
+     * Point-in-time copy of a {@link Session}, taken while the session is locked so the
+     * write sees a consistent state. {@code newPageViews} are the page views counted since the
+     * node last wrote the session (or loaded it), which an update adds to the stored count.
+     */
+    public record SessionRow(UUID id, String ipAddress, String userAgent, LocalDateTime startTime,
+                             LocalDateTime lastActivityTime, boolean active, String referrer, String entryPage,
+                             String exitPage, Integer pageViews, Integer bounceCount, Double sessionDuration,
+                             Long projectId, int newPageViews) {
+
+        /**
+         * @param writtenPageViews page views already stored, i.e. the count when the session
+         *                         was loaded or last written by this node
+         */
+        public static SessionRow of(Session session, int writtenPageViews) {
+            return new SessionRow(session.getId(), session.getIpAddress(), session.getUserAgent(),
+                session.getStartTime(), session.getLastActivityTime(), session.isActive(), session.getReferrer(),
+                session.getEntryPage(), session.getExitPage(), session.getPageViews(), session.getBounceCount(),
+                session.getSessionDuration(), session.getProject() != null ? session.getProject().getId() : null,
+                pageViews(session) - writtenPageViews);
+        }
+
+        public static int pageViews(Session session) {
+            return session.getPageViews() != null ? session.getPageViews() : 0;
+        }
+    }
+}
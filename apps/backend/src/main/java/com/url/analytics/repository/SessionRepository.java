@@ -18,6 +18,8 @@ public interface SessionRepository extends JpaRepository<Session, UUID> {
     Optional<Session> findFirstByIpAddressAndUserAgentAndLastActivityTimeAfterAndIsActiveTrue(
         String ipAddress, String userAgent, LocalDateTime lastActivityTime);
 
+    List<Session> findByIsActiveTrueAndLastActivityTimeAfter(LocalDateTime lastActivityTime);
+
     @Query("SELECT COUNT(s) FROM Session s WHERE s.entryPage = :url " +
            "AND s.startTime BETWEEN :startDate AND :endDate")
     long countSessionsByUrl(
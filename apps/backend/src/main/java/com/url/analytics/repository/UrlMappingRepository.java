@@ -11,6 +11,7 @@ import java.util.List;
 @Repository
 public interface UrlMappingRepository extends JpaRepository<UrlMapping, Long> {
     UrlMapping findByShortUrl(String shortUrl);
+    UrlMapping findFirstByShortUrlAndCustomDomainIgnoreCase(String shortUrl, String customDomain);
     List<UrlMapping> findByUser(User user);
     List<UrlMapping> findByProject(Project project);
 }
@@ -0,0 +1,22 @@
+package com.url.analytics.repository;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Converts UUIDs to the {@code binary(16)} layout Hibernate uses for UUID columns on MySQL
+ * (most significant bits first), for the hand-written JDBC statements.
+ */
+final class UuidBytes {
+    private UuidBytes() {}
+
+    static byte[] toBytes(UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        return ByteBuffer.allocate(16)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .array();
+    }
+}
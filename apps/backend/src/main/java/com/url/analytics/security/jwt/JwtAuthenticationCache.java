@@ -0,0 +1,136 @@
+package com.url.analytics.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HexFormat;
+
+/**
+ * Caches the two expensive steps of authenticating a bearer token: verifying the token and
+ * loading the user.
+ *
+ * Verified tokens are keyed by the SHA-256 of the token, so raw tokens aren't kept in memory,
+ * and map to their subject until the token's own {@code exp}; a hit is therefore never an
+ * expired token. Tokens without an expiry aren't cached. Invalid tokens aren't cached either,
+ * so garbage tokens can't crowd out real ones.
+ *
+ * {@link UserDetails} are kept for {@code analytics.auth.user-cache.ttl-seconds}, which bounds how
+ * long a change to a user (or its removal) takes to reach authenticated requests; call
+ * {@link #invalidateUser} to apply one immediately.
+ */
+@Component
+@Slf4j
+public class JwtAuthenticationCache {
+    private final JwtUtils jwtUtils;
+    private final UserDetailsService userDetailsService;
+    private final Cache<String, VerifiedToken> tokens;
+    private final Cache<String, UserDetails> users;
+
+    public JwtAuthenticationCache(
+            JwtUtils jwtUtils,
+            UserDetailsService userDetailsService,
+            @Value("${analytics.auth.token-cache.max-size:50000}") long tokenCacheSize,
+            @Value("${analytics.auth.user-cache.max-size:10000}") long userCacheSize,
+            @Value("${analytics.auth.user-cache.ttl-seconds:30}") long userTtlSeconds) {
+        this.jwtUtils = jwtUtils;
+        this.userDetailsService = userDetailsService;
+        this.tokens = Caffeine.newBuilder()
+            .maximumSize(tokenCacheSize)
+            .expireAfter(new Expiry<String, VerifiedToken>() {
+                @Override
+                public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                    return Math.max(0, Duration.ofMillis(value.expiresAtMillis() - System.currentTimeMillis()).toNanos());
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, value, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+        this.users = Caffeine.newBuilder()
+            .maximumSize(userCacheSize)
+            .expireAfterWrite(Duration.ofSeconds(userTtlSeconds))
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Returns the subject of a valid token, or null if the token is invalid or expired.
+     */
+    public String getUsername(String token) {
+        String key = hash(token);
+        VerifiedToken cached = tokens.getIfPresent(key);
+        if (cached != null) {
+            return cached.username();
+        }
+        Claims claims = jwtUtils.verifyToken(token);
+        if (claims == null) {
+            return null;
+        }
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            tokens.put(key, new VerifiedToken(claims.getSubject(), expiration.getTime()));
+        }
+        return claims.getSubject();
+    }
+
+    /**
+     * Loads the user through the {@link UserDetailsService} on a miss; a missing user isn't cached.
+     */
+    public UserDetails getUserDetails(String username) {
+        return users.get(username, userDetailsService::loadUserByUsername);
+    }
+
+    public void invalidateUser(String username) {
+        users.invalidate(username);
+    }
+
+    public CacheStats getTokenStats() {
+        return tokens.stats();
+    }
+
+    public CacheStats getUserStats() {
+        return users.stats();
+    }
+
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void logStats() {
+        CacheStats tokenStats = tokens.stats();
+        CacheStats userStats = users.stats();
+        log.info("Auth cache: tokens={}, tokenHitRate={}, users={}, userHitRate={}",
+            tokens.estimatedSize(), String.format("%.4f", tokenStats.hitRate()),
+            users.estimatedSize(), String.format("%.4f", userStats.hitRate()));
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record VerifiedToken(String username, long expiresAtMillis) {}
+}
@@ -22,10 +22,15 @@ public class JwtUtils {
     private int jwtExpirationInMs;
 
     private SecretKey key;
+    // Immutable and thread-safe, so one instance serves every request
+    private JwtParser parser;
 
     @PostConstruct
     public void init() {
         this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .build();
     }
 
     public String generateToken(Authentication authentication) {
@@ -42,21 +47,21 @@ public class JwtUtils {
     }
 
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.getSubject();
+        return parser.parseSignedClaims(token)
+                .getPayload()
+                .getSubject();
     }
 
     public boolean validateToken(String token) {
+        return verifyToken(token) != null;
+    }
+
+    /**
+     * Checks the signature and expiry once and returns the claims, or null if the token is invalid.
+     */
+    public Claims verifyToken(String token) {
         try {
-            Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token);
-            return true;
+            return parser.parseSignedClaims(token).getPayload();
         } catch (SecurityException ex) {
             log.error("Invalid JWT signature");
         } catch (MalformedJwtException ex) {
@@ -68,6 +73,6 @@ public class JwtUtils {
         } catch (IllegalArgumentException ex) {
             log.error("JWT claims string is empty");
         }
-        return false;
+        return null;
     }
 }
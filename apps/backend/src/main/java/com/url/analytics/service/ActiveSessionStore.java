@@ -0,0 +1,418 @@
+package com.url.analytics.service;
+
+import com.url.analytics.models.Session;
+import com.url.analytics.repository.SessionBatchRepository;
+import com.url.analytics.repository.SessionBatchRepository.SessionRow;
+import com.url.analytics.repository.SessionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Holds active sessions in memory, indexed by id and by visitor (IP address and user agent), so
+ * session starts and page views don't touch the database. Changed sessions are upserted into
+ * {@code sessions} every {@code analytics.sessions.flush-interval-ms}; an ended session is
+ * written immediately. Sessions idle past {@code analytics.sessions.timeout-minutes} are evicted
+ * once their last state has been written.
+ *
+ * The store is warmed on startup with the sessions still active. A visitor or id unknown to this
+ * node is looked up in the database, as with several replicas the session may have been started
+ * on another node. Nodes holding the same session write merged updates; see
+ * {@link SessionBatchRepository}.
+ *
+ * All database writes happen under {@code writeLock} and take their snapshot inside it, so the
+ * last write for a session always carries its latest state. A mutation that finds its entry
+ * evicted reloads the session rather than modifying a copy that will never be written.
+ */
+@Component
+@Slf4j
+public class ActiveSessionStore {
+    private final SessionRepository sessionRepository;
+    private final SessionBatchRepository sessionBatchRepository;
+    private final Map<UUID, Entry> byId = new ConcurrentHashMap<>();
+    private final Map<VisitorKey, Entry> byVisitor = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+    private final int timeoutMinutes;
+    private final int maxActive;
+    private final int flushSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder untracked = new LongAdder();
+
+    public ActiveSessionStore(
+            SessionRepository sessionRepository,
+            SessionBatchRepository sessionBatchRepository,
+            @Value("${analytics.sessions.timeout-minutes:30}") int timeoutMinutes,
+            @Value("${analytics.sessions.max-active:200000}") int maxActive,
+            @Value("${analytics.sessions.flush-size:500}") int flushSize,
+            @Value("${analytics.sessions.flush-interval-ms:5000}") long flushIntervalMs) {
+        this.sessionRepository = sessionRepository;
+        this.sessionBatchRepository = sessionBatchRepository;
+        this.timeoutMinutes = timeoutMinutes;
+        this.maxActive = maxActive;
+        this.flushSize = flushSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        List<Session> sessions = sessionRepository.findByIsActiveTrueAndLastActivityTimeAfter(activeAfter());
+        for (Session session : sessions) {
+            if (byId.size() >= maxActive) {
+                break;
+            }
+            Entry entry = new Entry(session, SessionRow.pageViews(session));
+            if (byId.putIfAbsent(session.getId(), entry) == null) {
+                byVisitor.merge(entry.visitor, entry, ActiveSessionStore::moreRecent);
+            }
+        }
+        log.info("Loaded {} active sessions", byId.size());
+    }
+
+    /**
+     * Applies {@code mutation} to the visitor's session if it is active and not timed out.
+     */
+    public Optional<Session> updateActive(String ipAddress, String userAgent, Consumer<Session> mutation) {
+        VisitorKey visitor = new VisitorKey(ipAddress, userAgent);
+        while (true) {
+            Entry entry = byVisitor.get(visitor);
+            if (entry != null) {
+                hits.increment();
+            } else {
+                entry = loadVisitor(visitor);
+                if (entry == null) {
+                    return Optional.empty();
+                }
+            }
+            synchronized (entry) {
+                Session session = entry.session;
+                if (entry.evicted) {
+                    continue;
+                }
+                if (!session.isActive() || !session.getLastActivityTime().isAfter(activeAfter())) {
+                    return Optional.empty();
+                }
+                mutation.accept(session);
+                if (entry.tracked) {
+                    entry.dirty = true;
+                    return Optional.of(session);
+                }
+            }
+            write(List.of(SessionRow.of(entry.session, entry.writtenPageViews)));
+            return Optional.of(entry.session);
+        }
+    }
+
+    // The visitor's active session in the database, started or last tracked by another node, or
+    // null. Queried outside the write lock, as most misses are new visitors
+    private Entry loadVisitor(VisitorKey visitor) {
+        Optional<Session> found = sessionRepository.findFirstByIpAddressAndUserAgentAndLastActivityTimeAfterAndIsActiveTrue(
+            visitor.ipAddress(), visitor.userAgent(), activeAfter());
+        if (found.isEmpty()) {
+            return null;
+        }
+        Session session = found.get();
+        writeLock.lock();
+        try {
+            Entry entry = byId.get(session.getId());
+            if (entry != null) {
+                return entry;
+            }
+            loads.increment();
+            Entry loaded = new Entry(session, SessionRow.pageViews(session));
+            if (byId.size() >= maxActive) {
+                untracked.increment();
+                loaded.tracked = false;
+                return loaded;
+            }
+            byId.put(session.getId(), loaded);
+            byVisitor.merge(visitor, loaded, ActiveSessionStore::moreRecent);
+            return loaded;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Starts tracking a new session, assigning its id. It becomes the visitor's current session.
+     */
+    public Session add(Session session) {
+        if (session.getId() == null) {
+            session.setId(UUID.randomUUID());
+        }
+        created.increment();
+        Entry entry = new Entry(session, 0);
+        if (byId.size() >= maxActive) {
+            untracked.increment();
+            write(List.of(SessionRow.of(session, 0)));
+            return session;
+        }
+        entry.dirty = true;
+        byId.put(session.getId(), entry);
+        byVisitor.put(entry.visitor, entry);
+        return session;
+    }
+
+    /**
+     * Applies {@code mutation} to the session with {@code id}; exceptions it throws propagate
+     * and leave the session unchanged.
+     *
+     * @throws RuntimeException if no such session exists
+     */
+    public Session update(UUID id, Consumer<Session> mutation) {
+        while (true) {
+            Entry entry = acquire(id);
+            synchronized (entry) {
+                if (entry.evicted) {
+                    continue;
+                }
+                mutation.accept(entry.session);
+                if (entry.tracked) {
+                    entry.dirty = true;
+                    return entry.session;
+                }
+            }
+            write(List.of(SessionRow.of(entry.session, entry.writtenPageViews)));
+            return entry.session;
+        }
+    }
+
+    /**
+     * Applies {@code mutation}, writes the session immediately and stops tracking it.
+     */
+    public Session end(UUID id, Consumer<Session> mutation) {
+        while (true) {
+            Entry entry = acquire(id);
+            writeLock.lock();
+            try {
+                SessionRow row;
+                synchronized (entry) {
+                    if (entry.evicted) {
+                        continue;
+                    }
+                    mutation.accept(entry.session);
+                    row = SessionRow.of(entry.session, entry.writtenPageViews);
+                    untrack(entry);
+                }
+                try {
+                    write(List.of(row));
+                } catch (RuntimeException e) {
+                    // Keep it so the next flush retries the final state
+                    synchronized (entry) {
+                        if (entry.tracked) {
+                            entry.evicted = false;
+                            entry.dirty = true;
+                            byId.putIfAbsent(id, entry);
+                            // Its visitor still finds it, rather than reloading the row still active in the database
+                            byVisitor.merge(entry.visitor, entry, ActiveSessionStore::moreRecent);
+                        }
+                    }
+                    throw e;
+                }
+                return entry.session;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private Entry acquire(UUID id) {
+        Entry entry = byId.get(id);
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+        // Under the write lock, so a session ended or evicted concurrently has been written first
+        writeLock.lock();
+        try {
+            entry = byId.get(id);
+            if (entry != null) {
+                return entry;
+            }
+            Session session = sessionRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Session not found"));
+            loads.increment();
+            Entry loaded = new Entry(session, SessionRow.pageViews(session));
+            if (byId.size() >= maxActive) {
+                untracked.increment();
+                loaded.tracked = false;
+                return loaded;
+            }
+            byId.put(id, loaded);
+            if (session.isActive()) {
+                byVisitor.merge(loaded.visitor, loaded, ActiveSessionStore::moreRecent);
+            }
+            return loaded;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes every changed session and evicts those that were already written and are idle.
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            LocalDateTime idleBefore = activeAfter();
+            List<Entry> dirty = new ArrayList<>();
+            List<SessionRow> rows = new ArrayList<>();
+            for (Entry entry : byId.values()) {
+                synchronized (entry) {
+                    if (entry.evicted) {
+                        continue;
+                    }
+                    if (entry.dirty) {
+                        entry.dirty = false;
+                        dirty.add(entry);
+                        rows.add(SessionRow.of(entry.session, entry.writtenPageViews));
+                    } else if (entry.session.getLastActivityTime().isBefore(idleBefore)) {
+                        untrack(entry);
+                        evicted.increment();
+                    }
+                }
+                if (rows.size() >= flushSize) {
+                    writeOrRestore(rows, dirty);
+                }
+            }
+            if (!rows.isEmpty()) {
+                writeOrRestore(rows, dirty);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void writeOrRestore(List<SessionRow> rows, List<Entry> dirty) {
+        try {
+            write(rows);
+            for (int i = 0; i < dirty.size(); i++) {
+                Entry entry = dirty.get(i);
+                synchronized (entry) {
+                    entry.writtenPageViews += rows.get(i).newPageViews();
+                }
+            }
+        } catch (RuntimeException e) {
+            failedFlushes.increment();
+            log.error("Session flush failed ({} sessions): {}", rows.size(), e.getMessage());
+            for (Entry entry : dirty) {
+                synchronized (entry) {
+                    entry.dirty = true;
+                }
+            }
+        }
+        rows.clear();
+        dirty.clear();
+    }
+
+    private void write(List<SessionRow> rows) {
+        writeLock.lock();
+        try {
+            sessionBatchRepository.upsertSessions(rows);
+            written.add(rows.size());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Caller holds the entry's monitor
+    private void untrack(Entry entry) {
+        entry.evicted = true;
+        entry.dirty = false;
+        byId.remove(entry.session.getId(), entry);
+        byVisitor.remove(entry.visitor, entry);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Unexpected error flushing sessions: {}", e.getMessage(), e);
+        }
+    }
+
+    private LocalDateTime activeAfter() {
+        return LocalDateTime.now().minusMinutes(timeoutMinutes);
+    }
+
+    private static Entry moreRecent(Entry a, Entry b) {
+        return b.session.getLastActivityTime().isAfter(a.session.getLastActivityTime()) ? b : a;
+    }
+
+    public SessionStoreStats getStats() {
+        return new SessionStoreStats(byId.size(), hits.sum(), loads.sum(), created.sum(), written.sum(),
+            failedFlushes.sum(), evicted.sum(), untracked.sum());
+    }
+
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void logStats() {
+        SessionStoreStats stats = getStats();
+        log.info("Active sessions: tracked={}, hits={}, loads={}, created={}, written={}, failedFlushes={}, "
+                + "evicted={}, untracked={}", stats.tracked(), stats.hits(), stats.loads(), stats.created(),
+            stats.written(), stats.failedFlushes(), stats.evicted(), stats.untracked());
+    }
+
+    /**
+     * Stops the periodic flush and writes whatever is still pending on the calling thread.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private static final class Entry {
+        final Session session;
+        final VisitorKey visitor;
+        boolean tracked = true;
+        boolean dirty;
+        boolean evicted;
+        // Page views already stored; only the rest are added by the next write
+        int writtenPageViews;
+
+        Entry(Session session, int writtenPageViews) {
+            this.session = session;
+            this.writtenPageViews = writtenPageViews;
+            this.visitor = new VisitorKey(session.getIpAddress(), session.getUserAgent());
+        }
+    }
+
+    private record VisitorKey(String ipAddress, String userAgent) {}
+
+    public record SessionStoreStats(int tracked, long hits, long loads, long created, long written,
+                                    long failedFlushes, long evicted, long untracked) {}
+}
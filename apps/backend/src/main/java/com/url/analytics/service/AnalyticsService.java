@@ -1,18 +1,28 @@
 package com.url.analytics.service;
 
 import com.url.analytics.models.ClickEvent;
+import com.url.analytics.models.ClickRollup.Dimension;
 import com.url.analytics.models.Project;
 import com.url.analytics.repository.ClickEventRepository;
+import com.url.analytics.repository.ClickEventRepository.BreakdownCount;
+import com.url.analytics.repository.ClickEventRepository.ValueCount;
 import com.url.analytics.service.geoip.GeoLocationService;
-import eu.bitwalker.useragentutils.UserAgent;
+import com.url.analytics.service.geoip.ReservedAddressClassifier;
+import com.url.analytics.service.ingest.EventWriteBehind;
+import com.url.analytics.service.useragent.ParsedUserAgent;
+import com.url.analytics.service.useragent.UserAgentEnricher;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -20,52 +30,28 @@ public class AnalyticsService {
     private static final Logger logger = LoggerFactory.getLogger(AnalyticsService.class);
     private final ClickEventRepository clickEventRepository;
     private final GeoLocationService geoLocationService;
+    private final ReservedAddressClassifier reservedAddressClassifier;
+    private final UserAgentEnricher userAgentEnricher;
+    private final EventWriteBehind eventWriteBehind;
+    private final ClickRollupService clickRollupService;
+    private final HeavyHitterTracker heavyHitterTracker;
+    private final DimensionDictionary dimensionDictionary;
 
-    private boolean isLocalhostOrPrivateIP(String ipAddress) {
-        if (ipAddress == null) return true;
-        
-        // Check for IPv6 localhost
-        if (ipAddress.equals("0:0:0:0:0:0:0:1")) return true;
-        
-        // Check for IPv4 localhost
-        if (ipAddress.equals("127.0.0.1")) return true;
-        
-        // Check for private IP ranges
-        if (ipAddress.startsWith("192.168.") || 
-            ipAddress.startsWith("10.") || 
-            ipAddress.startsWith("172.16.") || 
-            ipAddress.startsWith("172.17.") || 
-            ipAddress.startsWith("172.18.") || 
-            ipAddress.startsWith("172.19.") || 
-            ipAddress.startsWith("172.20.") || 
-            ipAddress.startsWith("172.21.") || 
-            ipAddress.startsWith("172.22.") || 
-            ipAddress.startsWith("172.23.") || 
-            ipAddress.startsWith("172.24.") || 
-            ipAddress.startsWith("172.25.") || 
-            ipAddress.startsWith("172.26.") || 
-            ipAddress.startsWith("172.27.") || 
-            ipAddress.startsWith("172.28.") || 
-            ipAddress.startsWith("172.29.") || 
-            ipAddress.startsWith("172.30.") || 
-            ipAddress.startsWith("172.31.")) {
-            return true;
-        }
-        
-        return false;
-    }
+    // Top-N queries over shorter ranges are always answered exactly
+    @Value("${analytics.top-n.exact-max-hours:48}")
+    private long exactMaxHours;
 
     public void processClickEvent(ClickEvent clickEvent) {
         try {
             // Parse User Agent
-            UserAgent userAgent = UserAgent.parseUserAgentString(clickEvent.getUserAgent());
-            clickEvent.setDeviceType(userAgent.getOperatingSystem().getDeviceType().getName());
-            clickEvent.setOperatingSystem(userAgent.getOperatingSystem().getName());
-            clickEvent.setBrowser(userAgent.getBrowser().getName());
-            clickEvent.setBrowserVersion(userAgent.getBrowserVersion().getVersion());
+            ParsedUserAgent userAgent = userAgentEnricher.parse(clickEvent.getUserAgent());
+            clickEvent.setDeviceType(userAgent.deviceType());
+            clickEvent.setOperatingSystem(userAgent.operatingSystem());
+            clickEvent.setBrowser(userAgent.browser());
+            clickEvent.setBrowserVersion(userAgent.browserVersion());
 
             // Get location data
-            if (isLocalhostOrPrivateIP(clickEvent.getIpAddress())) {
+            if (reservedAddressClassifier.isReserved(clickEvent.getIpAddress())) {
                 logger.info("Local or private IP detected: {}", clickEvent.getIpAddress());
                 // Set all location-related fields for local development
                 clickEvent.setCountry("Local");
@@ -86,7 +72,7 @@ public class AnalyticsService {
                 clickEvent.setTimezone(location.getTimezone());
             }
 
-            clickEventRepository.save(clickEvent);
+            eventWriteBehind.write(clickEvent);
         } catch (Exception e) {
             logger.error("Error processing click event: {}", e.getMessage(), e);
             // Set default values if processing fails
@@ -101,51 +87,135 @@ public class AnalyticsService {
             clickEvent.setOperatingSystem("Unknown");
             clickEvent.setBrowser("Unknown");
             clickEvent.setBrowserVersion("Unknown");
-            clickEventRepository.save(clickEvent);
+            eventWriteBehind.write(clickEvent);
         }
     }
 
     // Analytics Queries
-    public Map<String, Long> getTopPages(Project project, LocalDateTime startDate, LocalDateTime endDate) {
-        return clickEventRepository.findByProjectAndClickDateBetween(project, startDate, endDate)
-                .stream()
-                .collect(Collectors.groupingBy(
-                    event -> event.getUrlMapping().getOriginalUrl(),
-                    Collectors.counting()
-                ));
+    /**
+     * Click counts per page, ordered by count. With a {@code limit}, descending order and a
+     * range of whole days longer than {@code exactMaxHours} the answer comes from the in-memory
+     * heavy-hitter sketches when they cover the range, so counts are estimates; otherwise it is
+     * exact.
+     */
+    public Map<String, Long> getTopPages(Project project, LocalDateTime startDate, LocalDateTime endDate,
+                                         Integer limit, Sort.Direction order) {
+        if (useSketch(startDate, endDate, limit, order)) {
+            return heavyHitterTracker.getTop(project.getId(), Dimension.PAGE, startDate, endDate, limit);
+        }
+        return top(countMap(project, Dimension.PAGE, startDate, endDate, sqlLimit(limit, order),
+            (start, end, sqlLimit) -> clickEventRepository.countByPage(project, start, end, sqlLimit)), limit, order);
+    }
+
+    /**
+     * Click counts per referrer; see {@link #getTopPages} for how {@code limit} and
+     * {@code order} are served.
+     */
+    public Map<String, Long> getTopReferrers(Project project, LocalDateTime startDate, LocalDateTime endDate,
+                                             Integer limit, Sort.Direction order) {
+        if (useSketch(startDate, endDate, limit, order)) {
+            return heavyHitterTracker.getTop(project.getId(), Dimension.REFERRER, startDate, endDate, limit);
+        }
+        return top(countMap(project, Dimension.REFERRER, startDate, endDate, sqlLimit(limit, order),
+            (start, end, sqlLimit) -> clickEventRepository.countByReferrer(project, start, end, sqlLimit)), limit, order);
+    }
+
+    private boolean useSketch(LocalDateTime startDate, LocalDateTime endDate, Integer limit, Sort.Direction order) {
+        return limit != null
+            && order == Sort.Direction.DESC
+            && Duration.between(startDate, endDate).toHours() >= exactMaxHours
+            && heavyHitterTracker.covers(startDate, endDate, limit);
     }
 
-    public Map<String, Long> getTopReferrers(Project project, LocalDateTime startDate, LocalDateTime endDate) {
-        return clickEventRepository.findByProjectAndClickDateBetween(project, startDate, endDate)
-                .stream()
-                .filter(event -> event.getReferrer() != null && !event.getReferrer().isEmpty())
-                .collect(Collectors.groupingBy(
-                    ClickEvent::getReferrer,
-                    Collectors.counting()
-                ));
+    // The projection queries sort by count descending, so only then can SQL apply the limit
+    private static Limit sqlLimit(Integer limit, Sort.Direction order) {
+        return limit != null && order == Sort.Direction.DESC ? Limit.of(limit) : Limit.unlimited();
+    }
+
+    private static Map<String, Long> top(Map<String, Long> counts, Integer limit, Sort.Direction order) {
+        Comparator<Map.Entry<String, Long>> byCount = order == Sort.Direction.ASC
+            ? Map.Entry.comparingByValue()
+            : Map.Entry.<String, Long>comparingByValue().reversed();
+        Map<String, Long> top = new LinkedHashMap<>();
+        counts.entrySet().stream()
+            .sorted(byCount)
+            .limit(limit != null ? limit : Long.MAX_VALUE)
+            .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
     }
 
     public Map<String, Map<String, Long>> getDeviceBreakdown(Project project, LocalDateTime startDate, LocalDateTime endDate) {
-        return clickEventRepository.findByProjectAndClickDateBetween(project, startDate, endDate)
-                .stream()
-                .collect(Collectors.groupingBy(
-                    ClickEvent::getDeviceType,
-                    Collectors.groupingBy(
-                        ClickEvent::getOperatingSystem,
-                        Collectors.counting()
-                    )
-                ));
+        return toBreakdownMap(breakdownCounts(project, Dimension.DEVICE, startDate, endDate,
+            (start, end, limit) -> dimensionDictionary.decode(clickEventRepository.countByDeviceAndOs(project, start, end, limit))));
     }
 
     public Map<String, Map<String, Long>> getCountryBreakdown(Project project, LocalDateTime startDate, LocalDateTime endDate) {
-        return clickEventRepository.findByProjectAndClickDateBetween(project, startDate, endDate)
-                .stream()
-                .collect(Collectors.groupingBy(
-                    ClickEvent::getCountry,
-                    Collectors.groupingBy(
-                        ClickEvent::getCity,
-                        Collectors.counting()
-                    )
-                ));
+        return toBreakdownMap(breakdownCounts(project, Dimension.COUNTRY, startDate, endDate,
+            (start, end, limit) -> dimensionDictionary.decode(clickEventRepository.countByCountryAndCity(project, start, end, limit))));
+    }
+
+    /**
+     * Counts from the rollups for the part of the range they cover and exactly for the rest;
+     * {@code limit} only applies when the exact query answers the whole range.
+     */
+    private Map<String, Long> countMap(Project project, Dimension dimension, LocalDateTime startDate,
+                                       LocalDateTime endDate, Limit limit, ExactCounts<? extends ValueCount> exact) {
+        LocalDateTime rollupStart = clickRollupService.rollupStart(startDate, endDate);
+        if (rollupStart == null) {
+            return toCountMap(exact.count(startDate, endDate, limit));
+        }
+        Map<String, Long> counts = toCountMap(clickRollupService.getCounts(project.getId(), dimension, rollupStart, endDate));
+        if (rollupStart.isAfter(startDate)) {
+            toCountMap(exact.count(startDate, justBefore(rollupStart), Limit.unlimited()))
+                .forEach((value, clicks) -> counts.merge(value, clicks, Long::sum));
+        }
+        return counts;
+    }
+
+    /** Like {@link #countMap} for two-level breakdowns. */
+    private List<BreakdownCount> breakdownCounts(Project project, Dimension dimension, LocalDateTime startDate,
+                                                 LocalDateTime endDate, ExactCounts<BreakdownCount> exact) {
+        LocalDateTime rollupStart = clickRollupService.rollupStart(startDate, endDate);
+        if (rollupStart == null) {
+            return exact.count(startDate, endDate, Limit.unlimited());
+        }
+        List<BreakdownCount> counts = new ArrayList<>(
+            clickRollupService.getCounts(project.getId(), dimension, rollupStart, endDate));
+        if (rollupStart.isAfter(startDate)) {
+            counts.addAll(exact.count(startDate, justBefore(rollupStart), Limit.unlimited()));
+        }
+        return counts;
+    }
+
+    // The exact queries' BETWEEN includes both ends; click dates have microsecond precision
+    private static LocalDateTime justBefore(LocalDateTime time) {
+        return time.minus(1, ChronoUnit.MICROS);
+    }
+
+    @FunctionalInterface
+    private interface ExactCounts<T> {
+        List<T> count(LocalDateTime start, LocalDateTime end, Limit limit);
+    }
+
+    private static Map<String, Long> toCountMap(List<? extends ValueCount> rows) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (ValueCount row : rows) {
+            counts.merge(orUnknown(row.getValue()), row.getClicks(), Long::sum);
+        }
+        return counts;
+    }
+
+    private static Map<String, Map<String, Long>> toBreakdownMap(List<? extends BreakdownCount> rows) {
+        Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+        for (BreakdownCount row : rows) {
+            counts.computeIfAbsent(orUnknown(row.getValue()), value -> new LinkedHashMap<>())
+                .merge(orUnknown(row.getSubValue()), row.getClicks(), Long::sum);
+        }
+        return counts;
+    }
+
+    // JSON object keys can't be null
+    private static String orUnknown(String value) {
+        return value != null ? value : "Unknown";
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.url.analytics.service;
+
+import com.url.analytics.repository.EventBatchRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates per-link click counts in memory and flushes them as atomic
+ * {@code click_count = click_count + delta} updates, instead of a read-modify-write of
+ * {@code UrlMapping.clickCount} per redirect.
+ *
+ * Idle cells are removed from the map but drained once more on the following flush, so an
+ * increment that raced with the removal is still counted.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ClickCounterAggregator {
+    private final EventBatchRepository eventBatchRepository;
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    private List<Map.Entry<Long, LongAdder>> retired = new ArrayList<>();
+
+    public void increment(Long urlMappingId) {
+        pending.computeIfAbsent(urlMappingId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * Clicks counted on this node that are not yet reflected in {@code url_mapping.click_count}.
+     */
+    public long getPendingCount(Long urlMappingId) {
+        LongAdder adder = pending.get(urlMappingId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.click-counter.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        // Sorted by id so concurrent flushes from several nodes lock rows in the same order
+        Map<Long, Long> deltas = new TreeMap<>();
+        for (Map.Entry<Long, LongAdder> entry : retired) {
+            addDelta(deltas, entry.getKey(), entry.getValue().sumThenReset());
+        }
+        retired = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta > 0) {
+                addDelta(deltas, entry.getKey(), delta);
+            } else if (pending.remove(entry.getKey(), entry.getValue())) {
+                retired.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            eventBatchRepository.incrementClickCounts(deltas);
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} click counters, retrying next cycle: {}", deltas.size(), e.getMessage());
+            deltas.forEach((id, delta) -> pending.computeIfAbsent(id, key -> new LongAdder()).add(delta));
+        }
+    }
+
+    private static void addDelta(Map<Long, Long> deltas, Long id, long delta) {
+        if (delta > 0) {
+            deltas.merge(id, delta, Long::sum);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        // A second pass picks up cells retired by the first one
+        flush();
+    }
+}
@@ -0,0 +1,164 @@
+package com.url.analytics.service;
+
+import com.url.analytics.util.Fnv1a;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sliding-window duplicate-click detection with rotating Bloom filters.
+ *
+ * Time is cut into {@code buckets} slices of {@code window / buckets}; each slice has its own
+ * filter and one extra filter is kept so a click is compared against at least the full window
+ * (and at most one slice more). Expired filters are cleared in place and reused, so memory is
+ * fixed at {@code memory-bytes} regardless of traffic or the size of {@code click_event}.
+ * A false positive means a genuine click is treated as a duplicate and not counted.
+ */
+@Component
+@Slf4j
+public class ClickDeduplicator {
+    private final Filter[] ring;
+    private final long bucketMillis;
+    private final int bitsPerFilter;
+    private final int hashFunctions;
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    public ClickDeduplicator(
+            @Value("${analytics.dedupe.window-seconds:10}") long windowSeconds,
+            @Value("${analytics.dedupe.buckets:5}") int buckets,
+            @Value("${analytics.dedupe.memory-bytes:4194304}") long memoryBytes,
+            @Value("${analytics.dedupe.hash-functions:4}") int hashFunctions) {
+        this.bucketMillis = Math.max(1, windowSeconds * 1000 / buckets);
+        this.hashFunctions = hashFunctions;
+        this.ring = new Filter[buckets + 1];
+        long wordsPerFilter = Math.max(1, memoryBytes / 8 / ring.length);
+        this.bitsPerFilter = (int) Math.min(Integer.MAX_VALUE - 63, wordsPerFilter * 64);
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new Filter(bitsPerFilter / 64);
+        }
+    }
+
+    /**
+     * Records the click and returns {@code true} if the same link, IP and user agent was
+     * already seen within the window.
+     */
+    public boolean isDuplicate(long urlMappingId, String ipAddress, String userAgent) {
+        checks.increment();
+        long hash = hash(urlMappingId, ipAddress, userAgent);
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        for (Filter filter : ring) {
+            long age = epoch - filter.epoch;
+            if (age >= 0 && age < ring.length && filter.mightContain(hash, hashFunctions, bitsPerFilter)) {
+                duplicates.increment();
+                return true;
+            }
+        }
+        current(epoch).put(hash, hashFunctions, bitsPerFilter);
+        return false;
+    }
+
+    private Filter current(long epoch) {
+        Filter filter = ring[(int) (epoch % ring.length)];
+        if (filter.epoch != epoch) {
+            synchronized (filter) {
+                if (filter.epoch != epoch) {
+                    filter.reset(epoch);
+                }
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Probability that a new, distinct click is reported as a duplicate, estimated from the
+     * number of insertions into each live filter.
+     */
+    public double getEstimatedFalsePositiveRate() {
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        double notFalsePositive = 1.0;
+        for (Filter filter : ring) {
+            long age = epoch - filter.epoch;
+            if (age >= 0 && age < ring.length) {
+                double fill = 1.0 - Math.exp(-(double) hashFunctions * filter.insertions.sum() / bitsPerFilter);
+                notFalsePositive *= 1.0 - Math.pow(fill, hashFunctions);
+            }
+        }
+        return 1.0 - notFalsePositive;
+    }
+
+    public DedupeStats getStats() {
+        return new DedupeStats(checks.sum(), duplicates.sum(), getEstimatedFalsePositiveRate(),
+            (long) ring.length * bitsPerFilter / 8);
+    }
+
+    @Scheduled(fixedRate = 60000) // Every minute
+    public void logStats() {
+        DedupeStats stats = getStats();
+        log.info("Click dedupe: checks={}, duplicates={}, estimatedFalsePositiveRate={}, memoryBytes={}",
+            stats.checks(), stats.duplicates(), String.format("%.6f", stats.estimatedFalsePositiveRate()),
+            stats.memoryBytes());
+    }
+
+    // Fnv1a over the key fields; no intermediate strings
+    private static long hash(long urlMappingId, String ipAddress, String userAgent) {
+        long h = Fnv1a.addLong(Fnv1a.OFFSET_BASIS, urlMappingId);
+        h = Fnv1a.addString(h, ipAddress);
+        h = Fnv1a.addString(Fnv1a.addSeparator(h), userAgent);
+        return Fnv1a.finish(h);
+    }
+
+    private static final class Filter {
+        private final AtomicLongArray bits;
+        private final LongAdder insertions = new LongAdder();
+        private volatile long epoch = -1;
+
+        Filter(int words) {
+            this.bits = new AtomicLongArray(words);
+        }
+
+        boolean mightContain(long hash, int k, int m) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < k; i++) {
+                int bit = Math.floorMod(h1 + i * h2, m);
+                if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void put(long hash, int k, int m) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < k; i++) {
+                int bit = Math.floorMod(h1 + i * h2, m);
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+                long current;
+                while (((current = bits.get(word)) & mask) == 0) {
+                    if (bits.compareAndSet(word, current, current | mask)) {
+                        break;
+                    }
+                }
+            }
+            insertions.increment();
+        }
+
+        void reset(long newEpoch) {
+            for (int i = 0; i < bits.length(); i++) {
+                bits.set(i, 0);
+            }
+            insertions.reset();
+            epoch = newEpoch;
+        }
+    }
+
+    public record DedupeStats(long checks, long duplicates, double estimatedFalsePositiveRate, long memoryBytes) {}
+}
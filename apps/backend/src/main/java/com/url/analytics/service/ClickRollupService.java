@@ -0,0 +1,343 @@
+package com.url.analytics.service;
+
+import com.url.analytics.models.ClickEvent;
+import com.url.analytics.models.ClickRollup;
+import com.url.analytics.models.ClickRollup.Dimension;
+import com.url.analytics.models.ClickRollup.Granularity;
+import com.url.analytics.repository.ClickEventRepository.BreakdownCount;
+import com.url.analytics.repository.ClickRollupRepository;
+import com.url.analytics.repository.RollupBatchRepository;
+import com.url.analytics.repository.RollupBatchRepository.RollupDelta;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Maintains {@code click_rollup}: click counts per project, dimension and value in hourly and
+ * daily buckets, so breakdown queries read one row per distinct value and bucket instead of
+ * every click.
+ *
+ * Clicks are counted in memory per hour and flushed as additive upserts; the daily rows are
+ * derived from the same deltas at flush time. A range query reads whole days from the daily
+ * rows and only the partial days at either end from the hourly rows, so results have
+ * one-hour resolution.
+ *
+ * The rollups are only trusted from a coverage watermark on: the first whole hour after they
+ * were enabled, moved back as finished days are rebuilt from {@code click_event} (the partly
+ * counted first day once it is over, then any older days requested with {@code rebuild-days}).
+ * Callers count the part of a range before it exactly; see {@link #rollupStart}. Disabling
+ * rollups drops the watermark, since clicks aren't counted in the meantime.
+ */
+@Service
+@Slf4j
+public class ClickRollupService {
+    private static final int MAX_VALUE_LENGTH = 2048;
+    private static final int MAX_SUB_VALUE_LENGTH = 255;
+    private static final String UNKNOWN = "Unknown";
+    // Lets late writes for a finished day land before it is rebuilt
+    private static final Duration DAY_SETTLE_TIME = Duration.ofMinutes(10);
+
+    private static final Comparator<RollupDelta> LOCK_ORDER = Comparator
+        .comparingLong(RollupDelta::projectId)
+        .thenComparing(RollupDelta::dimension)
+        .thenComparing(RollupDelta::granularity)
+        .thenComparing(RollupDelta::bucketStart)
+        .thenComparingLong(delta -> ClickRollup.hashValue(delta.value(), delta.subValue()));
+
+    private final ClickRollupRepository clickRollupRepository;
+    private final RollupBatchRepository rollupBatchRepository;
+    private final boolean enabled;
+    private final int rebuildDays;
+    private final ReentrantLock backfillLock = new ReentrantLock();
+    private final ScheduledExecutorService backfiller;
+    private volatile LocalDateTime coveredFrom;
+
+    private final ConcurrentHashMap<HourKey, LongAdder> pending = new ConcurrentHashMap<>();
+    private List<Map.Entry<HourKey, LongAdder>> retired = new ArrayList<>();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+
+    public ClickRollupService(
+            ClickRollupRepository clickRollupRepository,
+            RollupBatchRepository rollupBatchRepository,
+            @Value("${analytics.rollup.enabled:true}") boolean enabled,
+            @Value("${analytics.rollup.rebuild-days:0}") int rebuildDays) {
+        this.clickRollupRepository = clickRollupRepository;
+        this.rollupBatchRepository = rollupBatchRepository;
+        this.enabled = enabled;
+        this.rebuildDays = rebuildDays;
+        // Rebuilding days can take minutes, so it stays off the shared scheduler thread
+        this.backfiller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "click-rollup-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start of the part of [start, end] the rollups can answer: {@code start} when they cover the
+     * whole range, the coverage watermark when they only cover its tail, or null when they
+     * cover none of it.
+     */
+    public LocalDateTime rollupStart(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime from = coveredFrom;
+        if (!enabled || from == null || from.isAfter(end)) {
+            return null;
+        }
+        return start.isBefore(from) ? from : start;
+    }
+
+    public LocalDateTime getCoveredFrom() {
+        return coveredFrom;
+    }
+
+    /**
+     * Counts an enriched click towards the rollups of its project. {@code pageUrl} is passed
+     * separately because the event only holds a reference to its {@code UrlMapping}.
+     */
+    public void record(Long projectId, String pageUrl, ClickEvent event) {
+        if (!enabled || projectId == null || event.getClickDate() == null) {
+            return;
+        }
+        LocalDateTime hour = event.getClickDate().truncatedTo(ChronoUnit.HOURS);
+        increment(new HourKey(projectId, Dimension.PAGE, hour, value(pageUrl), null));
+        if (event.getReferrer() != null && !event.getReferrer().isEmpty()) {
+            increment(new HourKey(projectId, Dimension.REFERRER, hour, value(event.getReferrer()), null));
+        }
+        increment(new HourKey(projectId, Dimension.DEVICE, hour, value(event.getDeviceType()), subValue(event.getOperatingSystem())));
+        increment(new HourKey(projectId, Dimension.COUNTRY, hour, value(event.getCountry()), subValue(event.getCity())));
+        recorded.increment();
+    }
+
+    private void increment(HourKey key) {
+        pending.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Click counts per value for clicks between {@code start} and {@code end}, widened to
+     * whole hours.
+     */
+    public List<BreakdownCount> getCounts(Long projectId, Dimension dimension, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime hourStart = start.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime hourEnd = end.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        LocalDateTime dayStart = hourStart.toLocalTime().equals(LocalTime.MIDNIGHT)
+            ? hourStart
+            : hourStart.toLocalDate().plusDays(1).atStartOfDay();
+        LocalDateTime dayEnd = hourEnd.toLocalDate().atStartOfDay();
+        if (!dayStart.isBefore(dayEnd)) {
+            // No complete day in range: answer from hourly buckets only
+            dayStart = hourEnd;
+            dayEnd = hourEnd;
+        }
+        return clickRollupRepository.sumByValue(projectId, dimension, Granularity.HOUR, Granularity.DAY,
+            hourStart, dayStart, dayEnd, hourEnd);
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.rollup.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        Map<HourKey, Long> hourly = new HashMap<>();
+        for (Map.Entry<HourKey, LongAdder> entry : retired) {
+            addDelta(hourly, entry.getKey(), entry.getValue().sumThenReset());
+        }
+        retired = new ArrayList<>();
+        for (Map.Entry<HourKey, LongAdder> entry : pending.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta > 0) {
+                addDelta(hourly, entry.getKey(), delta);
+            } else if (pending.remove(entry.getKey(), entry.getValue())) {
+                retired.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        if (hourly.isEmpty()) {
+            return;
+        }
+        List<RollupDelta> deltas = toDeltas(hourly);
+        try {
+            rollupBatchRepository.upsert(deltas);
+            flushedRows.add(deltas.size());
+        } catch (RuntimeException e) {
+            failedFlushes.increment();
+            log.error("Failed to flush {} rollup buckets, retrying next cycle: {}", hourly.size(), e.getMessage());
+            hourly.forEach((key, delta) -> pending.computeIfAbsent(key, k -> new LongAdder()).add(delta));
+        }
+    }
+
+    private static void addDelta(Map<HourKey, Long> hourly, HourKey key, long delta) {
+        if (delta > 0) {
+            hourly.merge(key, delta, Long::sum);
+        }
+    }
+
+    // Emits each hourly delta plus the daily deltas summed from them, in lock order
+    private static List<RollupDelta> toDeltas(Map<HourKey, Long> hourly) {
+        Map<HourKey, Long> daily = new HashMap<>();
+        List<RollupDelta> deltas = new ArrayList<>(hourly.size() * 2);
+        hourly.forEach((key, clicks) -> {
+            deltas.add(key.toDelta(Granularity.HOUR, clicks));
+            daily.merge(key.withHour(key.hour().truncatedTo(ChronoUnit.DAYS)), clicks, Long::sum);
+        });
+        daily.forEach((key, clicks) -> deltas.add(key.toDelta(Granularity.DAY, clicks)));
+        deltas.sort(LOCK_ORDER);
+        return deltas;
+    }
+
+    /**
+     * Recomputes the rollups for the days in [from, to) from {@code click_event}, one day per
+     * transaction. Meant for complete past days (initial backfill or repair); rows for a day
+     * still receiving live clicks would be overwritten with a snapshot.
+     */
+    public void rebuild(LocalDate from, LocalDate to) {
+        for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+            LocalDateTime dayStart = day.atStartOfDay();
+            LocalDateTime dayEnd = dayStart.plusDays(1);
+            Map<HourKey, Long> hourly = new HashMap<>();
+            for (Dimension dimension : Dimension.values()) {
+                for (RollupDelta row : rollupBatchRepository.countHourly(dimension, dayStart, dayEnd)) {
+                    String subValue = dimension == Dimension.DEVICE || dimension == Dimension.COUNTRY
+                        ? subValue(row.subValue())
+                        : null;
+                    HourKey key = new HourKey(row.projectId(), dimension, row.bucketStart(), value(row.value()), subValue);
+                    hourly.merge(key, row.clicks(), Long::sum);
+                }
+            }
+            List<RollupDelta> deltas = toDeltas(hourly);
+            rollupBatchRepository.replace(dayStart, dayEnd, deltas);
+            log.info("Rebuilt click rollups for {}: {} rows", day, deltas.size());
+        }
+    }
+
+    /**
+     * Rebuilds finished days before the coverage watermark, newest first, lowering the watermark
+     * after each: the partly counted day it falls in, then older days back to
+     * {@code rebuild-days} before today. Days already covered aren't rebuilt again. Returns at
+     * once if a backfill is already running.
+     */
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        if (!backfillLock.tryLock()) {
+            log.debug("Click rollup backfill already running, skipped");
+            return;
+        }
+        try {
+            LocalDateTime watermark = rollupBatchRepository.findCoveredFrom();
+            coveredFrom = watermark;
+            if (watermark == null) {
+                return;
+            }
+            LocalDate oldest = LocalDate.now().minusDays(rebuildDays);
+            LocalDate unfinished = LocalDateTime.now().minus(DAY_SETTLE_TIME).toLocalDate();
+            while (true) {
+                boolean partial = !watermark.toLocalTime().equals(LocalTime.MIDNIGHT);
+                LocalDate day = partial ? watermark.toLocalDate() : watermark.toLocalDate().minusDays(1);
+                if (!day.isBefore(unfinished) || (!partial && day.isBefore(oldest))) {
+                    return;
+                }
+                rebuild(day, day.plusDays(1));
+                watermark = day.atStartOfDay();
+                rollupBatchRepository.lowerCoveredFrom(watermark);
+                coveredFrom = watermark;
+            }
+        } finally {
+            backfillLock.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initCoverage() {
+        try {
+            rollupBatchRepository.createCoverageTable();
+            if (!enabled) {
+                rollupBatchRepository.deleteCoverage();
+                return;
+            }
+            // This node may have missed clicks earlier in the current hour; a no-op if another
+            // node already recorded a watermark
+            rollupBatchRepository.initCoveredFrom(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1));
+        } catch (RuntimeException e) {
+            log.error("Failed to record click rollup coverage, breakdowns use exact queries: {}", e.getMessage(), e);
+            return;
+        }
+        backfiller.scheduleWithFixedDelay(this::backfillSafely, 0, 1, TimeUnit.HOURS);
+    }
+
+    private void backfillSafely() {
+        try {
+            backfill();
+        } catch (RuntimeException e) {
+            log.error("Click rollup backfill failed, retrying next hour: {}", e.getMessage(), e);
+        }
+    }
+
+    public RollupStats getStats() {
+        return new RollupStats(pending.size(), recorded.sum(), flushedRows.sum(), failedFlushes.sum());
+    }
+
+    @Scheduled(fixedRate = 60000) // Every minute
+    public void logStats() {
+        if (!enabled) {
+            return;
+        }
+        RollupStats stats = getStats();
+        log.info("Click rollups: pendingBuckets={}, recorded={}, flushedRows={}, failedFlushes={}, coveredFrom={}",
+            stats.pendingBuckets(), stats.recorded(), stats.flushedRows(), stats.failedFlushes(), coveredFrom);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfiller.shutdownNow();
+        flush();
+        // A second pass picks up cells retired by the first one
+        flush();
+    }
+
+    private static String value(String value) {
+        if (value == null || value.isEmpty()) {
+            return UNKNOWN;
+        }
+        return value.length() > MAX_VALUE_LENGTH ? value.substring(0, MAX_VALUE_LENGTH) : value;
+    }
+
+    private static String subValue(String subValue) {
+        if (subValue == null || subValue.isEmpty()) {
+            return UNKNOWN;
+        }
+        return subValue.length() > MAX_SUB_VALUE_LENGTH ? subValue.substring(0, MAX_SUB_VALUE_LENGTH) : subValue;
+    }
+
+    private record HourKey(long projectId, Dimension dimension, LocalDateTime hour, String value, String subValue) {
+        HourKey withHour(LocalDateTime newHour) {
+            return new HourKey(projectId, dimension, newHour, value, subValue);
+        }
+
+        RollupDelta toDelta(Granularity granularity, long clicks) {
+            return new RollupDelta(projectId, dimension, granularity, hour, value, subValue, clicks);
+        }
+    }
+
+    public record RollupStats(long pendingBuckets, long recorded, long flushedRows, long failedFlushes) {}
+}
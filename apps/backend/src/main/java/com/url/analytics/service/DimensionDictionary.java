@@ -0,0 +1,201 @@
+package com.url.analytics.service;
+
+import com.url.analytics.models.ClickEvent;
+import com.url.analytics.models.DimensionValue;
+import com.url.analytics.models.DimensionValue.Kind;
+import com.url.analytics.repository.ClickEventRepository.BreakdownCount;
+import com.url.analytics.repository.ClickEventRepository.IdBreakdownCount;
+import com.url.analytics.repository.DimensionValueRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process, bidirectional cache of {@code dimension_value}: text to id when click events are
+ * written, id to text when analytics results are returned.
+ *
+ * The dictionaries are small (countries, cities, browsers...), so they are loaded whole at
+ * startup and then grow as new values appear. Only a value never seen by this node costs a
+ * round trip, on the write-behind flush thread rather than the redirect path.
+ */
+@Service
+@Slf4j
+public class DimensionDictionary {
+    private final DimensionValueRepository dimensionValueRepository;
+    private final Map<Kind, Map<String, Integer>> ids = new EnumMap<>(Kind.class);
+    private final Map<Integer, String> values = new ConcurrentHashMap<>();
+    private final boolean backfillEnabled;
+    private final int backfillBatchSize;
+
+    private final LongAdder inserts = new LongAdder();
+    private final LongAdder reverseLoads = new LongAdder();
+    private final LongAdder backfilledRows = new LongAdder();
+
+    public DimensionDictionary(
+            DimensionValueRepository dimensionValueRepository,
+            @Value("${analytics.dimensions.backfill-enabled:true}") boolean backfillEnabled,
+            @Value("${analytics.dimensions.backfill-batch-size:10000}") int backfillBatchSize) {
+        this.dimensionValueRepository = dimensionValueRepository;
+        this.backfillEnabled = backfillEnabled;
+        this.backfillBatchSize = backfillBatchSize;
+        for (Kind kind : Kind.values()) {
+            ids.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Id for {@code value}, creating the dictionary entry if needed; {@code null} for a null value.
+     * Values longer than the column are truncated.
+     */
+    public Integer encode(Kind kind, String value) {
+        if (value == null) {
+            return null;
+        }
+        String key = value.length() > DimensionValue.MAX_LENGTH ? value.substring(0, DimensionValue.MAX_LENGTH) : value;
+        Map<String, Integer> byValue = ids.get(kind);
+        Integer id = byValue.get(key);
+        if (id == null) {
+            // Racing callers may both insert; INSERT IGNORE plus the unique key give both the same id
+            id = dimensionValueRepository.getOrCreateId(kind, key);
+            inserts.increment();
+            byValue.putIfAbsent(key, id);
+            values.putIfAbsent(id, key);
+        }
+        return id;
+    }
+
+    /**
+     * Text for {@code id}, or {@code null} for a null or unknown id.
+     */
+    public String decode(Integer id) {
+        if (id == null) {
+            return null;
+        }
+        String value = values.get(id);
+        if (value == null) {
+            // Written by another node since we loaded
+            value = dimensionValueRepository.findById(id).map(entry -> {
+                reverseLoads.increment();
+                ids.get(entry.kind()).putIfAbsent(entry.value(), entry.id());
+                values.putIfAbsent(entry.id(), entry.value());
+                return entry.value();
+            }).orElse(null);
+        }
+        return value;
+    }
+
+    /**
+     * Fills the id columns of {@code events} from their text attributes.
+     */
+    public void encode(List<ClickEvent> events) {
+        for (ClickEvent event : events) {
+            event.setCountryId(encode(Kind.COUNTRY, event.getCountry()));
+            event.setCityId(encode(Kind.CITY, event.getCity()));
+            event.setRegionId(encode(Kind.REGION, event.getRegion()));
+            event.setTimezoneId(encode(Kind.TIMEZONE, event.getTimezone()));
+            event.setDeviceTypeId(encode(Kind.DEVICE_TYPE, event.getDeviceType()));
+            event.setOperatingSystemId(encode(Kind.OPERATING_SYSTEM, event.getOperatingSystem()));
+            event.setBrowserId(encode(Kind.BROWSER, event.getBrowser()));
+            event.setBrowserVersionId(encode(Kind.BROWSER_VERSION, event.getBrowserVersion()));
+        }
+    }
+
+    /**
+     * Decodes rows grouped by dictionary ids into text rows.
+     */
+    public List<BreakdownCount> decode(List<IdBreakdownCount> rows) {
+        List<BreakdownCount> decoded = new ArrayList<>(rows.size());
+        for (IdBreakdownCount row : rows) {
+            decoded.add(new DecodedCount(decode(row.getValueId()), decode(row.getSubValueId()), row.getClicks()));
+        }
+        return decoded;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            if (dimensionValueRepository.ensureBinaryCollation()) {
+                log.info("Switched dimension_value.value to a binary collation");
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to switch dimension_value.value to a binary collation: {}", e.getMessage(), e);
+        }
+        List<DimensionValueRepository.Entry> entries = dimensionValueRepository.findAll();
+        for (DimensionValueRepository.Entry entry : entries) {
+            ids.get(entry.kind()).put(entry.value(), entry.id());
+            values.put(entry.id(), entry.value());
+        }
+        log.info("Loaded {} dimension dictionary entries", entries.size());
+        if (backfillEnabled) {
+            Thread thread = new Thread(() -> {
+                try {
+                    backfill();
+                } catch (RuntimeException e) {
+                    log.error("Dimension backfill failed: {}", e.getMessage(), e);
+                }
+            }, "dimension-backfill");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Re-encodes click rows written before the dictionary existed, in id-range batches so no
+     * statement locks much of the table. Idempotent; columns already dropped are skipped.
+     */
+    public void backfill() {
+        long maxId = dimensionValueRepository.maxClickEventId();
+        for (Kind kind : Kind.values()) {
+            if (!dimensionValueRepository.hasLegacyColumn(kind)) {
+                continue;
+            }
+            long rows = 0;
+            for (long from = 0; from <= maxId; from += backfillBatchSize) {
+                rows += dimensionValueRepository.backfill(kind, from, from + backfillBatchSize);
+            }
+            backfilledRows.add(rows);
+            log.info("Backfilled {} click events for dimension {}; click_event.{} is no longer written and can be dropped",
+                rows, kind, kind.legacyColumn());
+        }
+    }
+
+    public DictionaryStats getStats() {
+        return new DictionaryStats(values.size(), inserts.sum(), reverseLoads.sum(), backfilledRows.sum());
+    }
+
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void logStats() {
+        DictionaryStats stats = getStats();
+        log.info("Dimension dictionary: entries={}, inserts={}, reverseLoads={}, backfilledRows={}",
+            stats.entries(), stats.inserts(), stats.reverseLoads(), stats.backfilledRows());
+    }
+
+    private record DecodedCount(String value, String subValue, Long clicks) implements BreakdownCount {
+        @Override
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public String getSubValue() {
+            return subValue;
+        }
+
+        @Override
+        public Long getClicks() {
+            return clicks;
+        }
+    }
+
+    public record DictionaryStats(int entries, long inserts, long reverseLoads, long backfilledRows) {}
+}
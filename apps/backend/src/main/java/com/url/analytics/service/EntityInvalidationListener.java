@@ -0,0 +1,14 @@
+package com.url.analytics.service;
+
+import com.url.analytics.service.EntityResolutionCache.EntityType;
+
+/**
+ * Notified when a cached {@link EntityResolutionCache} entry is invalidated on this node.
+ *
+ * Implementations forward the invalidation to the other nodes, which apply it with
+ * {@link EntityResolutionCache#evict} (not {@code invalidate}, so it isn't forwarded again).
+ * Without one, other nodes see a change once their entries expire.
+ */
+public interface EntityInvalidationListener {
+    void onInvalidate(EntityType type, String key);
+}
@@ -0,0 +1,155 @@
+package com.url.analytics.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.url.analytics.models.Project;
+import com.url.analytics.models.User;
+import com.url.analytics.repository.ProjectRepository;
+import com.url.analytics.repository.UserRepository;
+import com.url.analytics.security.jwt.JwtAuthenticationCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Resolves public project ids and usernames to entities without a lookup query per request.
+ *
+ * Only the primary key is cached: both keys are immutable, so the mapping can't go stale while
+ * the row exists. Callers get a reference ({@code getReferenceById}) bound to their own
+ * persistence context, which passes as a query parameter or association without loading the
+ * row and loads it on first access to any other field, so no detached state is shared between
+ * requests. Unknown keys are cached for {@code negative-ttl-seconds}; creating a project or user
+ * invalidates its entry.
+ *
+ * {@link #invalidate} also notifies {@link EntityInvalidationListener}s so other nodes can drop
+ * their entries; {@link #evict} applies an invalidation received from another node.
+ */
+@Component
+@Slf4j
+public class EntityResolutionCache {
+    private final ProjectRepository projectRepository;
+    private final UserRepository userRepository;
+    private final JwtAuthenticationCache authenticationCache;
+    private final ObjectProvider<EntityInvalidationListener> listeners;
+    private final Cache<String, Optional<Long>> projects;
+    private final Cache<String, Optional<Long>> users;
+
+    public EntityResolutionCache(
+            ProjectRepository projectRepository,
+            UserRepository userRepository,
+            JwtAuthenticationCache authenticationCache,
+            ObjectProvider<EntityInvalidationListener> listeners,
+            @Value("${analytics.entity-cache.max-size:100000}") long maxSize,
+            @Value("${analytics.entity-cache.ttl-minutes:60}") long ttlMinutes,
+            @Value("${analytics.entity-cache.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        this.projectRepository = projectRepository;
+        this.userRepository = userRepository;
+        this.authenticationCache = authenticationCache;
+        this.listeners = listeners;
+        this.projects = buildCache(maxSize, Duration.ofMinutes(ttlMinutes), Duration.ofSeconds(negativeTtlSeconds));
+        this.users = buildCache(maxSize, Duration.ofMinutes(ttlMinutes), Duration.ofSeconds(negativeTtlSeconds));
+    }
+
+    private static Cache<String, Optional<Long>> buildCache(long maxSize, Duration ttl, Duration negativeTtl) {
+        return Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new Expiry<String, Optional<Long>>() {
+                @Override
+                public long expireAfterCreate(String key, Optional<Long> value, long currentTime) {
+                    return value.isPresent() ? ttl.toNanos() : negativeTtl.toNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, Optional<Long> value, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, value, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String key, Optional<Long> value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Returns a reference to the project with the given public id; must be called within a
+     * persistence context (any request thread) if the project's fields are read.
+     */
+    public Optional<Project> findProject(String projectId) {
+        if (projectId == null) {
+            return Optional.empty();
+        }
+        return projects.get(projectId, projectRepository::findIdByProjectId)
+            .map(projectRepository::getReferenceById);
+    }
+
+    /**
+     * Returns a reference to the user with the given username; see {@link #findProject}.
+     */
+    public Optional<User> findUser(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        return users.get(username, userRepository::findIdByUsername)
+            .map(userRepository::getReferenceById);
+    }
+
+    /**
+     * Drops the entry on this node and notifies the listeners. Call after creating, renaming or
+     * deleting a project or user.
+     */
+    public void invalidate(EntityType type, String key) {
+        evict(type, key);
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onInvalidate(type, key);
+            } catch (RuntimeException e) {
+                log.warn("Entity invalidation listener failed for {} {}: {}", type, key, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Drops the entry on this node only.
+     */
+    public void evict(EntityType type, String key) {
+        switch (type) {
+            case PROJECT -> projects.invalidate(key);
+            case USER -> {
+                users.invalidate(key);
+                authenticationCache.invalidateUser(key);
+            }
+        }
+    }
+
+    public CacheStats getProjectStats() {
+        return projects.stats();
+    }
+
+    public CacheStats getUserStats() {
+        return users.stats();
+    }
+
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void logStats() {
+        log.info("Entity resolution cache: projects={}, projectHitRate={}, users={}, userHitRate={}",
+            projects.estimatedSize(), String.format("%.4f", projects.stats().hitRate()),
+            users.estimatedSize(), String.format("%.4f", users.stats().hitRate()));
+    }
+
+    public enum EntityType {
+        /** Keyed by the public {@code projectId}. */
+        PROJECT,
+        /** Keyed by username. */
+        USER
+    }
+}
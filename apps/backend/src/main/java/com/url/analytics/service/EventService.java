@@ -3,10 +3,9 @@ package com.url.analytics.service;
 import com.url.analytics.models.CustomEvent;
 import com.url.analytics.models.User;
 import com.url.analytics.models.Project;
-import com.url.analytics.repository.CustomEventRepository;
+import com.url.analytics.service.ingest.EventWriteBehind;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 
@@ -14,10 +13,9 @@ import java.time.LocalDateTime;
 @RequiredArgsConstructor
 public class EventService {
     
-    private final CustomEventRepository customEventRepository;
+    private final EventWriteBehind eventWriteBehind;
 
 
-    @Transactional
     public CustomEvent event(String eventName, String eventData, User user, Project project) {
         if (user == null) {
             throw new IllegalArgumentException("User cannot be null when creating an event");
@@ -31,13 +29,8 @@ public class EventService {
         event.setUser(user);
         event.setProject(project);
         event.setTimestamp(LocalDateTime.now());
-        CustomEvent savedEvent = customEventRepository.save(event);
-        if (savedEvent.getUser() == null) {
-            savedEvent.setUser(user);
-        }
-        if (savedEvent.getProject() == null) {
-            savedEvent.setProject(project);
-        }
-        return savedEvent;
+        // Persisted asynchronously in batches; the returned event has no id yet
+        eventWriteBehind.write(event);
+        return event;
     }
 } 
\ No newline at end of file
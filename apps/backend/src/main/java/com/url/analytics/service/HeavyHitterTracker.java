@@ -0,0 +1,236 @@
+package com.url.analytics.service;
+
+import com.url.analytics.models.ClickRollup.Dimension;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Approximate top-N pages and referrers per project and day, kept in memory with Space-Saving
+ * summaries of at most {@code capacity} values each.
+ *
+ * Each summary holds the values most likely to be frequent; a reported count over-estimates
+ * the true count by at most the summary's smallest count. Only whole days this node observed
+ * from start to finish are answerable, so a range is served here only when {@link #covers} says
+ * so. With several nodes behind a load balancer each node sees only part of the traffic, so the
+ * sketches are off by default and stay off whenever the live update relay (which implies
+ * several nodes) is enabled.
+ */
+@Component
+@Slf4j
+public class HeavyHitterTracker {
+    private static final LocalTime LAST_SECOND = LocalTime.of(23, 59, 59);
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int retentionDays;
+    private final LocalDate firstCompleteDay = LocalDate.now().plusDays(1);
+    private final ConcurrentHashMap<SketchKey, SpaceSaving> sketches = new ConcurrentHashMap<>();
+
+    public HeavyHitterTracker(
+            @Value("${analytics.top-n.sketch-enabled:false}") boolean enabled,
+            @Value("${analytics.top-n.sketch-capacity:500}") int capacity,
+            @Value("${analytics.top-n.retention-days:8}") int retentionDays,
+            @Value("${analytics.live.relay.enabled:false}") boolean relayEnabled) {
+        if (enabled && relayEnabled) {
+            log.warn("Top-N sketches disabled: the live relay is enabled, so this node sees only part of the clicks");
+        }
+        this.enabled = enabled && !relayEnabled;
+        this.capacity = capacity;
+        this.retentionDays = retentionDays;
+    }
+
+    public void record(Long projectId, String pageUrl, String referrer, LocalDateTime clickDate) {
+        if (!enabled || projectId == null || clickDate == null) {
+            return;
+        }
+        LocalDate day = clickDate.toLocalDate();
+        if (pageUrl != null) {
+            sketch(projectId, Dimension.PAGE, day).offer(pageUrl);
+        }
+        if (referrer != null && !referrer.isEmpty()) {
+            sketch(projectId, Dimension.REFERRER, day).offer(referrer);
+        }
+    }
+
+    private SpaceSaving sketch(Long projectId, Dimension dimension, LocalDate day) {
+        return sketches.computeIfAbsent(new SketchKey(projectId, dimension, day), key -> new SpaceSaving(capacity));
+    }
+
+    /**
+     * Whether a top-{@code limit} query over [start, end] can be answered from the sketches: the
+     * range is made of whole days (it starts at midnight and ends at midnight or in the last
+     * second of a day), every day in it was fully observed and is still retained, and the
+     * summaries track at least ten times {@code limit} values, which keeps the ranking stable
+     * for the long-tailed distributions referrers and pages usually have.
+     */
+    public boolean covers(LocalDateTime start, LocalDateTime end, int limit) {
+        return enabled
+            && limit <= capacity / 10
+            && start.toLocalTime().equals(LocalTime.MIDNIGHT)
+            && lastDay(end) != null
+            && !start.toLocalDate().isBefore(firstCompleteDay)
+            && !start.toLocalDate().isBefore(LocalDate.now().minusDays(retentionDays));
+    }
+
+    // The day a whole-day range ending at end finishes on, or null if end isn't a day boundary
+    private static LocalDate lastDay(LocalDateTime end) {
+        if (end.toLocalTime().equals(LocalTime.MIDNIGHT)) {
+            return end.toLocalDate().minusDays(1);
+        }
+        return end.toLocalTime().isBefore(LAST_SECOND) ? null : end.toLocalDate();
+    }
+
+    /**
+     * Estimated top values by click count, highest first, for a range {@link #covers} accepts.
+     */
+    public LinkedHashMap<String, Long> getTop(Long projectId, Dimension dimension,
+                                              LocalDateTime start, LocalDateTime end, int limit) {
+        Map<String, Long> merged = new HashMap<>();
+        for (LocalDate day = start.toLocalDate(); !day.isAfter(lastDay(end)); day = day.plusDays(1)) {
+            SpaceSaving sketch = sketches.get(new SketchKey(projectId, dimension, day));
+            if (sketch != null) {
+                sketch.forEach((value, count) -> merged.merge(value, count, Long::sum));
+            }
+        }
+        LinkedHashMap<String, Long> top = new LinkedHashMap<>();
+        merged.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .limit(limit)
+            .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    @Scheduled(cron = "0 5 0 * * *") // Daily, just after midnight
+    public void evictExpired() {
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        sketches.keySet().removeIf(key -> key.day().isBefore(cutoff));
+    }
+
+    public HeavyHitterStats getStats() {
+        long values = 0;
+        for (SpaceSaving sketch : sketches.values()) {
+            values += sketch.size();
+        }
+        return new HeavyHitterStats(sketches.size(), values);
+    }
+
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void logStats() {
+        if (!enabled) {
+            return;
+        }
+        HeavyHitterStats stats = getStats();
+        log.info("Top-N sketches: sketches={}, trackedValues={}", stats.sketches(), stats.trackedValues());
+    }
+
+    private record SketchKey(long projectId, Dimension dimension, LocalDate day) {}
+
+    /**
+     * Space-Saving (Metwally et al.) over an indexed min-heap: increments sift the counter
+     * down, and a new value replaces the minimum once the summary is full, inheriting its
+     * count + 1.
+     */
+    static final class SpaceSaving {
+        private final int capacity;
+        private final Map<String, Counter> counters;
+        private final Counter[] heap;
+        private int size;
+
+        SpaceSaving(int capacity) {
+            this.capacity = capacity;
+            this.counters = new HashMap<>();
+            this.heap = new Counter[capacity];
+        }
+
+        synchronized void offer(String value) {
+            Counter counter = counters.get(value);
+            if (counter != null) {
+                counter.count++;
+                siftDown(counter.index);
+                return;
+            }
+            if (size < capacity) {
+                counter = new Counter(value, 1, size);
+                heap[size++] = counter;
+                counters.put(value, counter);
+                siftUp(counter.index);
+                return;
+            }
+            Counter min = heap[0];
+            counters.remove(min.value);
+            min.value = value;
+            min.count++;
+            counters.put(value, min);
+            siftDown(0);
+        }
+
+        synchronized void forEach(BiConsumer<String, Long> action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(heap[i].value, heap[i].count);
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private void siftUp(int index) {
+            Counter counter = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heap[parent].count <= counter.count) {
+                    break;
+                }
+                place(heap[parent], index);
+                index = parent;
+            }
+            place(counter, index);
+        }
+
+        private void siftDown(int index) {
+            Counter counter = heap[index];
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                int right = child + 1;
+                if (right < size && heap[right].count < heap[child].count) {
+                    child = right;
+                }
+                if (counter.count <= heap[child].count) {
+                    break;
+                }
+                place(heap[child], index);
+                index = child;
+            }
+            place(counter, index);
+        }
+
+        private void place(Counter counter, int index) {
+            heap[index] = counter;
+            counter.index = index;
+        }
+
+        private static final class Counter {
+            private String value;
+            private long count;
+            private int index;
+
+            Counter(String value, long count, int index) {
+                this.value = value;
+                this.count = count;
+                this.index = index;
+            }
+        }
+    }
+
+    public record HeavyHitterStats(long sketches, long trackedValues) {}
+}
@@ -0,0 +1,248 @@
+package com.url.analytics.service;
+
+import com.url.analytics.models.Project;
+import com.url.analytics.repository.PartitionRepository;
+import com.url.analytics.repository.PartitionRepository.Partition;
+import com.url.analytics.repository.ProjectRepository;
+import com.url.analytics.repository.SchemaRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the time-series tables in monthly partitions and applies data retention.
+ *
+ * Each run creates partitions {@code analytics.partitioning.months-ahead} months ahead, so
+ * inserts never land in {@code p_future}, then enforces retention. Months older than every
+ * project's retention are removed with {@code DROP PARTITION} (a metadata operation); projects
+ * that keep less than that have their older rows deleted in bounded batches, which only touch
+ * the old partitions.
+ *
+ * A project's retention is {@link Project#getRetentionDays()}, or
+ * {@code analytics.retention.default-days} when unset; zero or less keeps data forever.
+ *
+ * Runs on a thread of its own, since DDL and retention deletes can take a long time, and
+ * under a MySQL named lock, so with several replicas only one node maintains the tables at a
+ * time; the others skip the run.
+ *
+ * Disabled by default: the first run converts existing tables, which rebuilds them.
+ */
+@Service
+@Slf4j
+public class PartitionMaintenanceService {
+    private static final String LOCK_NAME = "analytics_partition_maintenance";
+
+    static final ManagedTable SESSIONS = new ManagedTable("sessions", "start_time", "project_id", false);
+    static final List<ManagedTable> TABLES = List.of(
+        new ManagedTable("click_event", "click_date", "project_id", false),
+        SESSIONS,
+        new ManagedTable("custom_events", "timestamp", "project_id", false),
+        new ManagedTable("link_click", "timestamp", "project_id", true)
+    );
+
+    private final PartitionRepository partitionRepository;
+    private final ProjectRepository projectRepository;
+    private final SchemaRepository schemaRepository;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int defaultRetentionDays;
+    private final int deleteBatchSize;
+    private final int maxDeleteBatches;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final ExecutorService maintainer;
+
+    public PartitionMaintenanceService(
+            PartitionRepository partitionRepository,
+            ProjectRepository projectRepository,
+            SchemaRepository schemaRepository,
+            @Value("${analytics.partitioning.enabled:false}") boolean enabled,
+            @Value("${analytics.partitioning.months-ahead:3}") int monthsAhead,
+            @Value("${analytics.retention.default-days:0}") int defaultRetentionDays,
+            @Value("${analytics.retention.delete-batch-size:10000}") int deleteBatchSize,
+            @Value("${analytics.retention.max-delete-batches:100}") int maxDeleteBatches) {
+        this.partitionRepository = partitionRepository;
+        this.projectRepository = projectRepository;
+        this.schemaRepository = schemaRepository;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.defaultRetentionDays = defaultRetentionDays;
+        this.deleteBatchSize = deleteBatchSize;
+        this.maxDeleteBatches = maxDeleteBatches;
+        this.maintainer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "partition-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainOnStartup() {
+        scheduleMaintenance();
+    }
+
+    @Scheduled(cron = "${analytics.partitioning.cron:0 30 2 * * ?}") // Daily at 2:30 AM
+    public void scheduleMaintenance() {
+        if (enabled) {
+            maintainer.execute(this::maintainSafely);
+        }
+    }
+
+    private void maintainSafely() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.error("Partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    public void maintain() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Another node holding the lock is doing the same work, so don't wait for it
+            boolean locked = schemaRepository.withLock(LOCK_NAME, 0, () -> {
+                LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+                List<Project> projects = projectRepository.findAll();
+                for (ManagedTable table : TABLES) {
+                    try {
+                        ensurePartitions(table, thisMonth);
+                        applyRetention(table, projects);
+                    } catch (RuntimeException e) {
+                        log.error("Partition maintenance failed for {}: {}", table.name(), e.getMessage(), e);
+                    }
+                }
+            });
+            if (!locked) {
+                log.info("Partition maintenance skipped; another node is running it");
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        maintainer.shutdownNow();
+    }
+
+    private void ensurePartitions(ManagedTable table, LocalDate thisMonth) {
+        LocalDate lastMonth = thisMonth.plusMonths(monthsAhead);
+        List<Partition> partitions = partitionRepository.findPartitions(table.name());
+        if (partitions.isEmpty()) {
+            LocalDate minDate = partitionRepository.findMinDate(table.name(), table.dateColumn());
+            LocalDate firstMonth = minDate != null && minDate.isBefore(thisMonth) ? minDate.withDayOfMonth(1) : thisMonth;
+            log.info("Partitioning {} by {} from {} to {} (rebuilds the table)",
+                table.name(), table.dateColumn(), firstMonth, lastMonth);
+            partitionRepository.partition(table.name(), table.dateColumn(), firstMonth, lastMonth);
+            return;
+        }
+        LocalDate nextMonth = null;
+        for (Partition partition : partitions) {
+            LocalDate bound = upperBound(partition);
+            if (bound != null) {
+                nextMonth = bound;
+            }
+        }
+        if (nextMonth != null && !nextMonth.isAfter(lastMonth)) {
+            partitionRepository.addPartitions(table.name(), nextMonth, lastMonth);
+            log.info("Added partitions to {} for {} through {}", table.name(), nextMonth, lastMonth);
+        }
+    }
+
+    private void applyRetention(ManagedTable table, List<Project> projects) {
+        if (projects.isEmpty()) {
+            return;
+        }
+        int longest = 0;
+        boolean anyForever = false;
+        for (Project project : projects) {
+            int days = retentionDays(project);
+            anyForever |= days <= 0;
+            longest = Math.max(longest, days);
+        }
+
+        if (!anyForever) {
+            LocalDate cutoff = LocalDate.now().minusDays(longest);
+            List<String> expired = new ArrayList<>();
+            LocalDate expiredBefore = null;
+            for (Partition partition : partitionRepository.findPartitions(table.name())) {
+                LocalDate bound = upperBound(partition);
+                if (bound != null && !bound.isAfter(cutoff)) {
+                    expired.add(partition.name());
+                    expiredBefore = bound;
+                }
+            }
+            if (!expired.isEmpty()) {
+                if (table.equals(SESSIONS)) {
+                    clearEventSessions(null, expiredBefore.atStartOfDay());
+                }
+                partitionRepository.dropPartitions(table.name(), expired);
+                log.info("Dropped {} partitions of {} older than {}: {}", expired.size(), table.name(), cutoff, expired);
+            }
+        }
+
+        for (Project project : projects) {
+            int days = retentionDays(project);
+            if (days <= 0 || (!anyForever && days == longest)) {
+                continue; // kept forever, or already covered by the partition drop
+            }
+            LocalDateTime cutoff = LocalDate.now().minusDays(days).atStartOfDay();
+            Object key = table.projectByPublicId() ? project.getProjectId() : project.getId();
+            if (table.equals(SESSIONS)) {
+                clearEventSessions(project.getId(), cutoff);
+            }
+            long deleted = 0;
+            for (int batch = 0; batch < maxDeleteBatches; batch++) {
+                int rows = partitionRepository.deleteOlderThan(table.name(), table.projectColumn(), key,
+                    table.dateColumn(), cutoff, deleteBatchSize);
+                deleted += rows;
+                if (rows < deleteBatchSize) {
+                    break;
+                }
+            }
+            if (deleted > 0) {
+                log.info("Deleted {} rows of {} for project {} older than {}", deleted, table.name(), project.getId(), cutoff);
+            }
+        }
+    }
+
+    // Custom events reference their session; unlink the ones that outlive it
+    private void clearEventSessions(Long projectId, LocalDateTime before) {
+        int cleared = partitionRepository.clearEventSessions(projectId, before);
+        if (cleared > 0) {
+            log.info("Cleared the session of {} custom events whose session started before {}", cleared, before);
+        }
+    }
+
+    private int retentionDays(Project project) {
+        return project.getRetentionDays() != null ? project.getRetentionDays() : defaultRetentionDays;
+    }
+
+    // "'2026-11-01'" (or with a time part) for a monthly partition, null for MAXVALUE
+    private static LocalDate upperBound(Partition partition) {
+        String description = partition.description();
+        if (description == null || !description.startsWith("'")) {
+            return null;
+        }
+        return LocalDate.parse(description.substring(1, 11));
+    }
+
+    /**
+     * A partitioned table: its date column, and how its rows reference a project
+     * ({@code projectByPublicId} when the column holds {@link Project#getProjectId()}).
+     */
+    record ManagedTable(String name, String dateColumn, String projectColumn, boolean projectByPublicId) {}
+}
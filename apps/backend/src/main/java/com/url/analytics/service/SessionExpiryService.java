@@ -0,0 +1,88 @@
+package com.url.analytics.service;
+
+import com.url.analytics.repository.SessionBatchRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closes sessions the SDK never ended (closed tabs, lost connectivity): once idle past
+ * {@code analytics.sessions.timeout-minutes} they are marked inactive with their duration and
+ * bounce flag, as {@code /api/sessions/end} would have done.
+ *
+ * Each tick runs at most {@code expiry-max-batches} bulk updates of {@code expiry-batch-size}
+ * rows, oldest first, so a large backlog after an outage drains over several ticks instead of
+ * holding locks on {@code sessions} for long.
+ *
+ * Session writes never reopen a closed row, so a session must not be closed while
+ * {@link ActiveSessionStore} may still reuse it. Activity there reaches the database on the
+ * next flush, so the sweeper waits a flush interval plus {@link #FLUSH_GRACE} longer than the
+ * timeout before treating a row as idle.
+ */
+@Service
+@Slf4j
+public class SessionExpiryService {
+    // Allows for a slow or retried flush
+    private static final Duration FLUSH_GRACE = Duration.ofMinutes(1);
+
+    private final SessionBatchRepository sessionBatchRepository;
+    private final Duration idleTimeout;
+    private final int batchSize;
+    private final int maxBatches;
+
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder backloggedTicks = new LongAdder();
+
+    public SessionExpiryService(
+            SessionBatchRepository sessionBatchRepository,
+            @Value("${analytics.sessions.timeout-minutes:30}") int timeoutMinutes,
+            @Value("${analytics.sessions.expiry-batch-size:1000}") int batchSize,
+            @Value("${analytics.sessions.expiry-max-batches:20}") int maxBatches,
+            @Value("${analytics.sessions.flush-interval-ms:5000}") long flushIntervalMs) {
+        this.sessionBatchRepository = sessionBatchRepository;
+        this.idleTimeout = Duration.ofMinutes(timeoutMinutes).plusMillis(flushIntervalMs).plus(FLUSH_GRACE);
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.sessions.expiry-interval-ms:60000}")
+    public void expireIdleSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(idleTimeout);
+        int closed = 0;
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                int rows = sessionBatchRepository.expireIdleSessions(cutoff, batchSize);
+                closed += rows;
+                if (rows < batchSize) {
+                    return;
+                }
+            }
+            // Budget used up with rows left; the next tick continues
+            backloggedTicks.increment();
+        } catch (RuntimeException e) {
+            log.error("Session expiry failed: {}", e.getMessage(), e);
+        } finally {
+            expired.add(closed);
+            if (closed > 0) {
+                log.debug("Expired {} idle sessions", closed);
+            }
+        }
+    }
+
+    public ExpiryStats getStats() {
+        return new ExpiryStats(expired.sum(), backloggedTicks.sum());
+    }
+
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void logStats() {
+        ExpiryStats stats = getStats();
+        log.info("Session expiry: expired={}, backloggedTicks={}", stats.expired(), stats.backloggedTicks());
+    }
+
+    public record ExpiryStats(long expired, long backloggedTicks) {}
+}
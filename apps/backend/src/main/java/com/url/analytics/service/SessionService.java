@@ -5,29 +5,25 @@ import com.url.analytics.models.Project;
 import com.url.analytics.repository.SessionRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * Session lifecycle for the tracking SDK. Sessions are read and changed in
+ * {@link ActiveSessionStore}, which persists them in batches.
+ */
 @Service
 @RequiredArgsConstructor
 public class SessionService {
     private final SessionRepository sessionRepository;
-    private static final int SESSION_TIMEOUT_MINUTES = 30;
+    private final ActiveSessionStore activeSessionStore;
 
-    @Transactional
     public Session getOrCreateSession(String ipAddress, String userAgent, Project project, String entryPage, String referrer) {
-        LocalDateTime timeoutThreshold = LocalDateTime.now().minusMinutes(SESSION_TIMEOUT_MINUTES);
-
-        Optional<Session> existingSession = sessionRepository.findFirstByIpAddressAndUserAgentAndLastActivityTimeAfterAndIsActiveTrue(
-            ipAddress, userAgent, timeoutThreshold);
-
+        Optional<Session> existingSession = activeSessionStore.updateActive(ipAddress, userAgent, this::updateSession);
         if (existingSession.isPresent()) {
-            Session session = existingSession.get();
-            updateSession(session);
-            return session;
+            return existingSession.get();
         }
 
         Session newSession = new Session();
@@ -42,65 +38,58 @@ public class SessionService {
         // Optionally set user if available
         // newSession.setUser(user);
 
-        return sessionRepository.save(newSession);
+        return activeSessionStore.add(newSession);
     }
 
-    @Transactional
-    public void updateSession(Session session) {
+    private void updateSession(Session session) {
         session.setLastActivityTime(LocalDateTime.now());
         session.setSessionDuration(
             java.time.Duration.between(session.getStartTime(), session.getLastActivityTime()).toMillis() / 1000.0
         );
-        sessionRepository.save(session);
     }
 
-    @Transactional
     public void endSession(UUID sessionId) {
-        sessionRepository.findById(sessionId).ifPresent(session -> {
+        activeSessionStore.end(sessionId, session -> {
             session.setActive(false);
             session.setLastActivityTime(LocalDateTime.now());
             session.setSessionDuration(
                 java.time.Duration.between(session.getStartTime(), session.getLastActivityTime()).toMillis() / 1000.0
             );
-            sessionRepository.save(session);
         });
     }
 
-    @Transactional
     public Session incrementPageView(UUID sessionId, String pageUrl, Project project) {
-        Session session = sessionRepository.findById(sessionId)
-            .orElseThrow(() -> new RuntimeException("Session not found"));
-        if (!session.getProject().equals(project)) {
-            throw new IllegalArgumentException("Session does not belong to the specified project");
-        }
-        session.setPageViews(session.getPageViews() == null ? 1 : session.getPageViews() + 1);
-        session.setLastActivityTime(LocalDateTime.now());
-        session.setExitPage(pageUrl);
-        sessionRepository.save(session);
-        return session;
+        return activeSessionStore.update(sessionId, session -> {
+            checkProject(session, project);
+            session.setPageViews(session.getPageViews() == null ? 1 : session.getPageViews() + 1);
+            session.setLastActivityTime(LocalDateTime.now());
+            session.setExitPage(pageUrl);
+        });
     }
 
-    @Transactional
     public Session endSession(UUID sessionId, String lastPageUrl, Project project) {
-        Session session = sessionRepository.findById(sessionId)
-            .orElseThrow(() -> new RuntimeException("Session not found"));
-        if (!session.getProject().equals(project)) {
+        return activeSessionStore.end(sessionId, session -> {
+            checkProject(session, project);
+            session.setActive(false);
+            session.setLastActivityTime(LocalDateTime.now());
+            session.setExitPage(lastPageUrl);
+            session.setSessionDuration(
+                java.time.Duration.between(session.getStartTime(), session.getLastActivityTime()).toMillis() / 1000.0
+            );
+            // Bounce: only 1 page view
+            if (session.getPageViews() != null && session.getPageViews() == 1) {
+                session.setBounceCount(1);
+            } else {
+                session.setBounceCount(0);
+            }
+        });
+    }
+
+    // By id: sessions outlive the persistence context their project was loaded in
+    private static void checkProject(Session session, Project project) {
+        if (!session.getProject().getId().equals(project.getId())) {
             throw new IllegalArgumentException("Session does not belong to the specified project");
         }
-        session.setActive(false);
-        session.setLastActivityTime(LocalDateTime.now());
-        session.setExitPage(lastPageUrl);
-        session.setSessionDuration(
-            java.time.Duration.between(session.getStartTime(), session.getLastActivityTime()).toMillis() / 1000.0
-        );
-        // Bounce: only 1 page view
-        if (session.getPageViews() != null && session.getPageViews() == 1) {
-            session.setBounceCount(1);
-        } else {
-            session.setBounceCount(0);
-        }
-        sessionRepository.save(session);
-        return session;
     }
 
     public double calculateBounceRate(String url, LocalDateTime startDate, LocalDateTime endDate) {
@@ -3,18 +3,19 @@ package com.url.analytics.service;
 import com.url.analytics.dtos.ClickEventDTO;
 import com.url.analytics.dtos.UrlMappingDTO;
 import com.url.analytics.dtos.ShortenUrlRequest;
-import com.url.analytics.models.ClickEvent;
 import com.url.analytics.models.UrlMapping;
 import com.url.analytics.models.User;
 import com.url.analytics.models.Project;
 import com.url.analytics.repository.ClickEventRepository;
 import com.url.analytics.repository.UrlMappingRepository;
+import com.url.analytics.service.UrlResolutionCache.ResolvedUrl;
+import com.url.analytics.service.live.ClickBroadcaster;
 import lombok.AllArgsConstructor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -27,7 +28,10 @@ public class UrlMappingService {
 
     private UrlMappingRepository urlMappingRepository;
     private ClickEventRepository clickEventRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final UrlResolutionCache urlResolutionCache;
+    private final ClickCounterAggregator clickCounterAggregator;
+    private final ClickDeduplicator clickDeduplicator;
+    private final ClickBroadcaster clickBroadcaster;
 
     public UrlMappingDTO createShortUrl(ShortenUrlRequest request, User user, Project project) {
         String alias = request.getCustomAlias();
@@ -59,11 +63,17 @@ public class UrlMappingService {
         urlMapping.setCustomDomain(customDomain);
         urlMapping.setProject(project);
         UrlMapping savedUrlMapping = urlMappingRepository.save(urlMapping);
+        // Drop any cached miss for this alias so the new link resolves immediately
+        urlResolutionCache.invalidate(customDomain, alias);
+        urlResolutionCache.invalidate(null, alias);
         return convertToDto(savedUrlMapping);
     }
 
     private UrlMappingDTO convertToDto(UrlMapping urlMapping) {
-        return new UrlMappingDTO(urlMapping);
+        UrlMappingDTO dto = new UrlMappingDTO(urlMapping);
+        // Include clicks counted in memory but not flushed yet
+        dto.setClickCount(dto.getClickCount() + (int) clickCounterAggregator.getPendingCount(urlMapping.getId()));
+        return dto;
     }
 
     private String generateShortUrl() {
@@ -82,16 +92,20 @@ public class UrlMappingService {
                 .toList();
     }
 
+    public List<UrlMappingDTO> getUrlsByProject(Project project) {
+        return urlMappingRepository.findByProject(project).stream()
+                .map(this::convertToDto)
+                .toList();
+    }
+
     public List<ClickEventDTO> getClickEventsByDate(String shortUrl, LocalDateTime start, LocalDateTime end) {
         UrlMapping urlMapping = urlMappingRepository.findByShortUrl(shortUrl);
         if (urlMapping != null) {
-            return clickEventRepository.findByUrlMappingAndClickDateBetween(urlMapping, start, end).stream()
-                    .collect(Collectors.groupingBy(click -> click.getClickDate().toLocalDate(), Collectors.counting()))
-                    .entrySet().stream()
-                    .map(entry -> {
+            return clickEventRepository.countByDay(urlMapping, start, end).stream()
+                    .map(row -> {
                         ClickEventDTO clickEventDTO = new ClickEventDTO();
-                        clickEventDTO.setClickDate(entry.getKey());
-                        clickEventDTO.setCount(entry.getValue());
+                        clickEventDTO.setClickDate(row.getDate());
+                        clickEventDTO.setCount(row.getClicks());
                         return clickEventDTO;
                     })
                     .collect(Collectors.toList());
@@ -100,31 +114,40 @@ public class UrlMappingService {
     }
 
     public Map<LocalDate, Long> getTotalClicksByUserAndDate(User user, LocalDate start, LocalDate end) {
-        List<UrlMapping> urlMappings = urlMappingRepository.findByUser(user);
-        List<ClickEvent> clickEvents = clickEventRepository.findByUrlMappingInAndClickDateBetween(urlMappings, start.atStartOfDay(), end.plusDays(1).atStartOfDay());
-        return clickEvents.stream()
-                .collect(Collectors.groupingBy(
-                    click -> click.getClickDate().toLocalDate(),
-                    Collectors.counting()
+        return clickEventRepository.countByDayForUser(user, start.atStartOfDay(), end.plusDays(1).atStartOfDay()).stream()
+                .collect(Collectors.toMap(
+                    ClickEventRepository.DateCount::getDate,
+                    ClickEventRepository.DateCount::getClicks,
+                    Long::sum,
+                    LinkedHashMap::new
                 ));
     }
 
-    public UrlMapping getOriginalUrl(String shortUrl, String ipAddress, String userAgent) {
-        UrlMapping urlMapping = urlMappingRepository.findByShortUrl(shortUrl);
-        if (urlMapping != null) {
-            LocalDateTime now = LocalDateTime.now();
-            LocalDateTime windowStart = now.minusSeconds(10); // 10-second window
-            boolean recentClick = clickEventRepository.existsByUrlMappingAndIpAddressAndUserAgentAndClickDateBetween(
-                urlMapping, ipAddress, userAgent, windowStart, now
-            );
-            if (!recentClick) {
-                urlMapping.setClickCount(urlMapping.getClickCount() + 1);
-                urlMappingRepository.save(urlMapping);
-                // Send update to WebSocket topic
-                messagingTemplate.convertAndSend("/topic/clicks", new UrlMappingDTO(urlMapping));
+    public ResolvedUrl resolveShortUrl(String host, String shortUrl) {
+        // Try to resolve by custom domain first
+        if (host != null && !host.isBlank()) {
+            ResolvedUrl byDomain = urlResolutionCache.get(host, shortUrl,
+                () -> urlMappingRepository.findFirstByShortUrlAndCustomDomainIgnoreCase(shortUrl, host));
+            if (byDomain != null) {
+                return byDomain;
             }
         }
-        return urlMapping;
+        // Fallback to the default lookup
+        return urlResolutionCache.get(null, shortUrl, () -> urlMappingRepository.findByShortUrl(shortUrl));
+    }
+
+    public void registerClick(ResolvedUrl resolvedUrl, String ipAddress, String userAgent) {
+        // Repeated clicks from the same client within the dedupe window are not counted
+        if (clickDeduplicator.isDuplicate(resolvedUrl.id(), ipAddress, userAgent)) {
+            return;
+        }
+        clickCounterAggregator.increment(resolvedUrl.id());
+        // Coalesced into the next live update for the link's project
+        clickBroadcaster.record(resolvedUrl);
+    }
+
+    public UrlMapping getReference(ResolvedUrl resolvedUrl) {
+        return urlMappingRepository.getReferenceById(resolvedUrl.id());
     }
 
     public UrlMapping getUrlMapping(Long id) {
@@ -151,10 +174,4 @@ public class UrlMappingService {
         // Simple regex for domain validation (does not check ownership)
         return domain.matches("^(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,}$");
     }
-
-    public UrlMapping getOriginalUrlByDomain(String customDomain, String shortUrl) {
-        return urlMappingRepository.findAll().stream()
-            .filter(mapping -> shortUrl.equals(mapping.getShortUrl()) && customDomain.equalsIgnoreCase(mapping.getCustomDomain()))
-            .findFirst().orElse(null);
-    }
 }
@@ -0,0 +1,109 @@
+package com.url.analytics.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.url.analytics.models.UrlMapping;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Short-code resolution cache used by the redirect path.
+ *
+ * Entries are keyed by (customDomain, shortUrl) and hold an immutable {@link ResolvedUrl}
+ * instead of the {@link UrlMapping} entity, so a hit never touches the persistence context.
+ * Misses are cached too (with a short TTL) because most redirects carry a Host header that
+ * is not a custom domain and would otherwise query MySQL on every hit.
+ */
+@Component
+@Slf4j
+public class UrlResolutionCache {
+    private static final String DEFAULT_DOMAIN = "";
+
+    private final Cache<Key, Optional<ResolvedUrl>> cache;
+
+    public UrlResolutionCache(
+            @Value("${analytics.redirect.cache.max-size:100000}") long maxSize,
+            @Value("${analytics.redirect.cache.ttl-minutes:60}") long ttlMinutes,
+            @Value("${analytics.redirect.cache.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        long ttlNanos = Duration.ofMinutes(ttlMinutes).toNanos();
+        long negativeTtlNanos = Duration.ofSeconds(negativeTtlSeconds).toNanos();
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new Expiry<Key, Optional<ResolvedUrl>>() {
+                @Override
+                public long expireAfterCreate(Key key, Optional<ResolvedUrl> value, long currentTime) {
+                    return value.isPresent() ? ttlNanos : negativeTtlNanos;
+                }
+
+                @Override
+                public long expireAfterUpdate(Key key, Optional<ResolvedUrl> value, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, value, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(Key key, Optional<ResolvedUrl> value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Returns the cached resolution for the given domain and short code, calling {@code loader}
+     * on a miss. A {@code null} or blank domain means the default (domain-less) lookup.
+     */
+    public ResolvedUrl get(String customDomain, String shortUrl, Supplier<UrlMapping> loader) {
+        return cache.get(new Key(normalizeDomain(customDomain), shortUrl),
+                key -> Optional.ofNullable(loader.get()).map(ResolvedUrl::of))
+            .orElse(null);
+    }
+
+    public void invalidate(String customDomain, String shortUrl) {
+        cache.invalidate(new Key(normalizeDomain(customDomain), shortUrl));
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void logStats() {
+        CacheStats stats = cache.stats();
+        log.info("Redirect cache: size={}, hitRate={}, evictions={}",
+            cache.estimatedSize(), String.format("%.4f", stats.hitRate()), stats.evictionCount());
+    }
+
+    private static String normalizeDomain(String customDomain) {
+        if (customDomain == null || customDomain.isBlank()) {
+            return DEFAULT_DOMAIN;
+        }
+        return customDomain.toLowerCase(Locale.ROOT);
+    }
+
+    private record Key(String domain, String shortUrl) {}
+
+    /**
+     * Compact, immutable view of a {@link UrlMapping} holding only what the redirect needs.
+     * {@code projectId} is the project's primary key, not its public UUID.
+     */
+    public record ResolvedUrl(Long id, String shortUrl, String originalUrl, Long projectId) {
+        static ResolvedUrl of(UrlMapping urlMapping) {
+            Long projectId = urlMapping.getProject() != null ? urlMapping.getProject().getId() : null;
+            return new ResolvedUrl(urlMapping.getId(), urlMapping.getShortUrl(), urlMapping.getOriginalUrl(), projectId);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.url.analytics.models.User;
 import com.url.analytics.repository.UserRepository;
 import com.url.analytics.security.jwt.JwtAuthenticationResponse;
 import com.url.analytics.security.jwt.JwtUtils;
+import com.url.analytics.service.EntityResolutionCache.EntityType;
 import lombok.AllArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -23,6 +24,7 @@ public class UserService {
     private UserRepository userRepository;
     private AuthenticationManager authenticationManager;
     private JwtUtils jwtUtils;
+    private EntityResolutionCache entityResolutionCache;
 
     public void registerUser(User user) {
         if (userRepository.findByUsername(user.getUsername()).isPresent()) {
@@ -33,6 +35,7 @@ public class UserService {
         }
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         userRepository.save(user);
+        entityResolutionCache.invalidate(EntityType.USER, user.getUsername());
     }
 
     public JwtAuthenticationResponse authenticateUser(LoginRequest loginRequest) {
@@ -62,4 +65,14 @@ public class UserService {
                 () -> new UsernameNotFoundException("User Not Found with username: " + name)
         );
     }
+
+    /**
+     * Like {@link #findByUsername}, but resolved through {@link EntityResolutionCache}: the user
+     * row is only loaded if a field other than the id is read.
+     */
+    public User getUserReference(String name) {
+        return entityResolutionCache.findUser(name).orElseThrow(
+                () -> new UsernameNotFoundException("User Not Found with username: " + name)
+        );
+    }
 }
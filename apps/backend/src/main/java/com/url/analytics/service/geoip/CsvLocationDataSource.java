@@ -1,32 +1,32 @@
 package com.url.analytics.service.geoip;
 
 import com.url.analytics.service.geoip.GeoLocationService.GeoLocation;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
 @Slf4j
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "analytics.geoip.binary.enabled", havingValue = "false", matchIfMissing = true)
 public class CsvLocationDataSource implements LocationDataSource {
+    // Per-thread buffer for parsed IPv6 addresses, so lookups stay allocation-free
+    private static final ThreadLocal<long[]> V6_SCRATCH = ThreadLocal.withInitial(() -> new long[2]);
+
     private final GeoLocationDataValidator validator;
     private final GeoLocationBackupService backupService;
     
     @Value("${analytics.geoip.csv-path:src/main/resources/geoip/ip-ranges.csv}")
     private String csvPath;
     
-    private List<IpRange> ipRanges = new ArrayList<>();
+    private volatile IpRangeIndex index = IpRangeIndex.EMPTY;
     private final AtomicBoolean isAvailable = new AtomicBoolean(false);
     private final AtomicBoolean isUpdating = new AtomicBoolean(false);
 
@@ -45,6 +45,11 @@ public class CsvLocationDataSource implements LocationDataSource {
         return "CSV_DATABASE";
     }
 
+    @PostConstruct
+    public void init() {
+        updateData();
+    }
+
     @Override
     public void refresh() {
         updateData();
@@ -53,21 +58,23 @@ public class CsvLocationDataSource implements LocationDataSource {
     @Override
     public GeoLocation getLocation(String ipAddress) {
         if (!isAvailable.get()) {
-            return new GeoLocation("Unknown", "Unknown", "Unknown", "Unknown", 0.0, 0.0, "Unknown");
+            return GeoLocation.UNKNOWN;
         }
 
-        long ipLong = ipToLong(ipAddress);
-        int index = Collections.binarySearch(ipRanges, new IpRange(ipLong, ipLong, null),
-            (a, b) -> {
-                if (ipLong >= a.start && ipLong <= a.end) return 0;
-                return Long.compare(a.start, ipLong);
-            });
-
-        if (index >= 0) {
-            return ipRanges.get(index).location;
+        IpRangeIndex current = index;
+        GeoLocation location;
+        long ip = IpAddresses.parseIpv4(ipAddress);
+        if (ip != IpAddresses.INVALID) {
+            location = current.find(ip);
+        } else {
+            long[] v6 = V6_SCRATCH.get();
+            if (!IpAddresses.parseIpv6(ipAddress, v6)) {
+                return GeoLocation.UNKNOWN;
+            }
+            long mapped = IpAddresses.mappedIpv4(v6[0], v6[1]);
+            location = mapped != IpAddresses.INVALID ? current.find(mapped) : current.findV6(v6[0], v6[1]);
         }
-
-        return new GeoLocation("Unknown", "Unknown", "Unknown", "Unknown", 0.0, 0.0, "Unknown");
+        return location != null ? location : GeoLocation.UNKNOWN;
     }
 
     @Scheduled(cron = "${analytics.geoip.update-cron:0 0 1 * * ?}") // Daily at 1 AM
@@ -77,8 +84,10 @@ public class CsvLocationDataSource implements LocationDataSource {
                 log.info("Starting CSV data update");
                 Path csvFilePath = Path.of(csvPath);
                 
-                // Validate the CSV file
-                GeoLocationDataValidator.ValidationResult validationResult = validator.validateCsvFile(csvFilePath);
+                // Parse, validate and index in a single pass
+                IpRangeIndex.Builder builder = new IpRangeIndex.Builder();
+                GeoLocationDataValidator.ValidationResult validationResult =
+                    GeoIpCsvReader.read(csvFilePath, validator, builder);
                 if (!validationResult.isValid()) {
                     log.error("CSV validation failed: {}", validationResult.message());
                     return;
@@ -87,13 +96,12 @@ public class CsvLocationDataSource implements LocationDataSource {
                 // Create backup before update
                 backupService.performBackup();
 
-                // Load and sort the data
-                List<IpRange> newRanges = loadIpRanges(csvFilePath);
-                Collections.sort(newRanges, (a, b) -> Long.compare(a.start, b.start));
-                
+                IpRangeIndex newIndex = builder.build();
+
                 // Update the data
-                ipRanges = newRanges;
+                index = newIndex;
                 isAvailable.set(true);
+                logIndexFootprint(newIndex);
                 
                 // Log metrics
                 GeoLocationDataValidator.DataQualityMetrics metrics = validator.getMetrics();
@@ -109,38 +117,18 @@ public class CsvLocationDataSource implements LocationDataSource {
         }
     }
 
-    private List<IpRange> loadIpRanges(Path csvPath) throws IOException {
-        List<IpRange> ranges = new ArrayList<>();
-        try (BufferedReader reader = Files.newBufferedReader(csvPath)) {
-            // Skip header
-            reader.readLine();
-            
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 9) {
-                    long start = Long.parseLong(parts[0]);
-                    long end = Long.parseLong(parts[1]);
-                    GeoLocation location = new GeoLocation(
-                        parts[2], parts[3], parts[4], parts[5],
-                        Double.parseDouble(parts[6]), Double.parseDouble(parts[7]),
-                        parts[8]
-                    );
-                    ranges.add(new IpRange(start, end, location));
-                }
-            }
-        }
-        return ranges;
+    private void logIndexFootprint(IpRangeIndex newIndex) {
+        Runtime runtime = Runtime.getRuntime();
+        log.info("IP range index loaded: ranges={}, rangesV6={}, distinctLocations={}, estimatedIndexBytes={}, heapUsedBytes={}",
+            newIndex.rangeCount(), newIndex.rangeCountV6(), newIndex.locationCount(), newIndex.estimatedHeapBytes(),
+            runtime.totalMemory() - runtime.freeMemory());
     }
 
-    private long ipToLong(String ipAddress) {
-        String[] parts = ipAddress.split("\\.");
-        long result = 0;
-        for (int i = 0; i < 4; i++) {
-            result = (result << 8) | Integer.parseInt(parts[i]);
-        }
-        return result;
+    public IndexStats getIndexStats() {
+        IpRangeIndex current = index;
+        return new IndexStats(current.rangeCount(), current.rangeCountV6(), current.locationCount(),
+            current.estimatedHeapBytes());
     }
 
-    private record IpRange(long start, long end, GeoLocation location) {}
-} 
\ No newline at end of file
+    public record IndexStats(int ranges, int rangesV6, int distinctLocations, long estimatedHeapBytes) {}
+}
@@ -0,0 +1,144 @@
+package com.url.analytics.service.geoip;
+
+import com.url.analytics.service.geoip.GeoLocationDataValidator.ValidationResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Single-pass reader for {@code ip-ranges.csv}: each line is split, parsed and validated once
+ * and valid rows are handed to a {@link RowHandler}. Blank lines and lines starting with
+ * {@code #} are skipped.
+ *
+ * Range bounds may be unsigned decimal IPv4 values (the original format), dotted IPv4
+ * literals or IPv6 literals. IPv4-mapped IPv6 bounds are stored as IPv4; both bounds of a
+ * range must be of the same family.
+ */
+final class GeoIpCsvReader {
+    private static final int FIELDS = 9;
+    private static final int INVALID = 0;
+    private static final int IPV4 = 4;
+    private static final int IPV6 = 6;
+
+    private GeoIpCsvReader() {}
+
+    static ValidationResult read(Path csvPath, GeoLocationDataValidator validator, RowHandler handler) throws IOException {
+        validator.reset();
+        try (BufferedReader reader = Files.newBufferedReader(csvPath)) {
+            if (!validator.validateHeader(reader.readLine())) {
+                return new ValidationResult(false, "Invalid CSV header format");
+            }
+
+            String[] fields = new String[FIELDS];
+            long[] start = new long[2];
+            long[] end = new long[2];
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.charAt(0) == '#') {
+                    continue;
+                }
+                if (split(line, fields) != FIELDS) {
+                    validator.rejectRecord("Invalid number of fields in record: " + line);
+                    continue;
+                }
+                int family = parseBound(fields[0], start);
+                double latitude;
+                double longitude;
+                try {
+                    latitude = Double.parseDouble(fields[6]);
+                    longitude = Double.parseDouble(fields[7]);
+                } catch (NumberFormatException e) {
+                    validator.rejectRecord("Invalid number format in record: " + line);
+                    continue;
+                }
+                if (family == INVALID || family != parseBound(fields[1], end)) {
+                    validator.rejectRecord("Invalid IP range bounds in record: " + line);
+                    continue;
+                }
+                boolean ordered = family == IPV4
+                    ? start[1] <= end[1]
+                    : IpRangeIndex.compare128(start[0], start[1], end[0], end[1]) <= 0;
+                if (!validator.validateRecord(ordered, fields[2], fields[3], latitude, longitude)) {
+                    continue;
+                }
+                if (family == IPV4) {
+                    handler.add(start[1], end[1], fields[2], fields[3], fields[4], fields[5],
+                        latitude, longitude, fields[8]);
+                } else {
+                    handler.addV6(start[0], start[1], end[0], end[1], fields[2], fields[3], fields[4], fields[5],
+                        latitude, longitude, fields[8]);
+                }
+            }
+        }
+        return validator.result();
+    }
+
+    // Parses a range bound into out (IPv4 in out[1]); returns its family or INVALID
+    private static int parseBound(String field, long[] out) {
+        String text = field.trim();
+        if (!text.isEmpty() && text.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            try {
+                long value = Long.parseLong(text);
+                if (value > 0xFFFFFFFFL) {
+                    return INVALID;
+                }
+                out[1] = value;
+                return IPV4;
+            } catch (NumberFormatException e) {
+                return INVALID;
+            }
+        }
+        long ipv4 = IpAddresses.parseIpv4(text);
+        if (ipv4 != IpAddresses.INVALID) {
+            out[1] = ipv4;
+            return IPV4;
+        }
+        if (!IpAddresses.parseIpv6(text, out)) {
+            return INVALID;
+        }
+        long mapped = IpAddresses.mappedIpv4(out[0], out[1]);
+        if (mapped != IpAddresses.INVALID) {
+            out[1] = mapped;
+            return IPV4;
+        }
+        return IPV6;
+    }
+
+    // Splits on commas into the reused array; returns the field count (which may exceed its length)
+    private static int split(String line, String[] fields) {
+        int count = 0;
+        int from = 0;
+        while (true) {
+            int comma = line.indexOf(',', from);
+            int to = comma < 0 ? line.length() : comma;
+            if (count < fields.length) {
+                fields[count] = line.substring(from, to);
+            }
+            count++;
+            if (comma < 0) {
+                return count;
+            }
+            from = comma + 1;
+        }
+    }
+
+    interface RowHandler {
+        RowHandler NONE = new RowHandler() {
+            @Override
+            public void add(long start, long end, String country, String city, String region, String postalCode,
+                            double latitude, double longitude, String timezone) {}
+
+            @Override
+            public void addV6(long startHi, long startLo, long endHi, long endLo, String country, String city,
+                              String region, String postalCode, double latitude, double longitude, String timezone) {}
+        };
+
+        void add(long start, long end, String country, String city, String region, String postalCode,
+                 double latitude, double longitude, String timezone);
+
+        void addV6(long startHi, long startLo, long endHi, long endLo, String country, String city,
+                   String region, String postalCode, double latitude, double longitude, String timezone);
+    }
+}
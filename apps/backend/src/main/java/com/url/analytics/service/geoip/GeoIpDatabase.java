@@ -0,0 +1,204 @@
+package com.url.analytics.service.geoip;
+
+import com.url.analytics.service.geoip.GeoLocationService.GeoLocation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of a compiled GeoIP database file, memory-mapped so the range table lives in
+ * the OS page cache rather than on the heap and is shared by every JVM mapping the same file.
+ *
+ * File layout (big-endian), as written by {@link GeoIpDatabaseCompiler}:
+ * <pre>
+ * header        magic "GEOIPDB1", int version, int rangeCount, int locationCount,
+ *               int stringPoolBytes, long createdAtMillis, int rangeCountV6,
+ *               int reserved                                              (40 bytes)
+ * starts        long[rangeCount], IPv4, sorted ascending
+ * ends          long[rangeCount]
+ * locationIds   int[rangeCount]
+ * startsV6      rangeCountV6 x (long high, long low), sorted ascending as unsigned 128-bit
+ * endsV6        rangeCountV6 x (long high, long low)
+ * locationIdsV6 int[rangeCountV6]
+ * locations     locationCount x (int country, city, region, postalCode, timezone
+ *               string offsets; double latitude, longitude)                (36 bytes each)
+ * string pool   per string: unsigned short byte length + UTF-8 bytes
+ * </pre>
+ * Locations are decoded into {@link GeoLocation} objects on first use and then reused, so
+ * lookups allocate nothing once the common locations have been seen.
+ */
+final class GeoIpDatabase {
+    static final byte[] MAGIC = "GEOIPDB1".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 40;
+    static final int LOCATION_BYTES = 36;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final int rangeCount;
+    private final int rangeCountV6;
+    private final int locationCount;
+    private final long createdAtMillis;
+    private final int startsOffset;
+    private final int endsOffset;
+    private final int locationIdsOffset;
+    private final int startsV6Offset;
+    private final int endsV6Offset;
+    private final int locationIdsV6Offset;
+    private final int locationsOffset;
+    private final int stringPoolOffset;
+    private final GeoLocation[] decoded;
+
+    private GeoIpDatabase(Path path, ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES) {
+            throw new IOException("GeoIP database too small: " + path);
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                throw new IOException("Not a GeoIP database: " + path);
+            }
+        }
+        int version = buffer.getInt(8);
+        if (version != VERSION) {
+            throw new IOException("Unsupported GeoIP database version " + version + ": " + path);
+        }
+        this.rangeCount = buffer.getInt(12);
+        this.locationCount = buffer.getInt(16);
+        int stringPoolBytes = buffer.getInt(20);
+        this.createdAtMillis = buffer.getLong(24);
+        this.rangeCountV6 = buffer.getInt(32);
+        long expectedBytes = HEADER_BYTES + rangeCount * 20L + rangeCountV6 * 36L
+            + locationCount * (long) LOCATION_BYTES + stringPoolBytes;
+        if (rangeCount < 0 || rangeCountV6 < 0 || locationCount < 0 || stringPoolBytes < 0
+                || expectedBytes != buffer.capacity()) {
+            throw new IOException("Truncated or corrupt GeoIP database: " + path);
+        }
+        this.startsOffset = HEADER_BYTES;
+        this.endsOffset = startsOffset + rangeCount * 8;
+        this.locationIdsOffset = endsOffset + rangeCount * 8;
+        this.startsV6Offset = locationIdsOffset + rangeCount * 4;
+        this.endsV6Offset = startsV6Offset + rangeCountV6 * 16;
+        this.locationIdsV6Offset = endsV6Offset + rangeCountV6 * 16;
+        this.locationsOffset = locationIdsV6Offset + rangeCountV6 * 4;
+        this.stringPoolOffset = locationsOffset + locationCount * LOCATION_BYTES;
+        this.decoded = new GeoLocation[locationCount];
+    }
+
+    static GeoIpDatabase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("GeoIP database larger than 2 GB: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new GeoIpDatabase(path, mapped);
+        }
+    }
+
+    /**
+     * Location of the IPv4 range containing {@code ip}, or {@code null}.
+     */
+    GeoLocation find(long ip) {
+        int low = 0;
+        int high = rangeCount - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getLong(startsOffset + mid * 8) <= ip) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (candidate < 0 || ip > buffer.getLong(endsOffset + candidate * 8)) {
+            return null;
+        }
+        return location(buffer.getInt(locationIdsOffset + candidate * 4));
+    }
+
+    /**
+     * Location of the IPv6 range containing {@code hi:lo}, or {@code null}.
+     */
+    GeoLocation findV6(long hi, long lo) {
+        int low = 0;
+        int high = rangeCountV6 - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = startsV6Offset + mid * 16;
+            if (IpRangeIndex.compare128(buffer.getLong(offset), buffer.getLong(offset + 8), hi, lo) <= 0) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (candidate < 0) {
+            return null;
+        }
+        int end = endsV6Offset + candidate * 16;
+        if (IpRangeIndex.compare128(hi, lo, buffer.getLong(end), buffer.getLong(end + 8)) > 0) {
+            return null;
+        }
+        return location(buffer.getInt(locationIdsV6Offset + candidate * 4));
+    }
+
+    private GeoLocation location(int id) {
+        // Racy but benign: GeoLocation is immutable, so a duplicate decode is harmless
+        GeoLocation location = decoded[id];
+        if (location == null) {
+            int offset = locationsOffset + id * LOCATION_BYTES;
+            location = new GeoLocation(
+                string(buffer.getInt(offset)),
+                string(buffer.getInt(offset + 4)),
+                string(buffer.getInt(offset + 8)),
+                string(buffer.getInt(offset + 12)),
+                buffer.getDouble(offset + 20),
+                buffer.getDouble(offset + 28),
+                string(buffer.getInt(offset + 16))
+            );
+            decoded[id] = location;
+        }
+        return location;
+    }
+
+    private String string(int poolOffset) {
+        int offset = stringPoolOffset + poolOffset;
+        int length = Short.toUnsignedInt(buffer.getShort(offset));
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int rangeCount() {
+        return rangeCount;
+    }
+
+    int rangeCountV6() {
+        return rangeCountV6;
+    }
+
+    int locationCount() {
+        return locationCount;
+    }
+
+    long createdAtMillis() {
+        return createdAtMillis;
+    }
+
+    long sizeBytes() {
+        return buffer.capacity();
+    }
+}
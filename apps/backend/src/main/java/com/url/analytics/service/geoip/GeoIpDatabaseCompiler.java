@@ -0,0 +1,140 @@
+package com.url.analytics.service.geoip;
+
+import com.url.analytics.service.geoip.GeoLocationDataValidator.ValidationResult;
+import com.url.analytics.service.geoip.GeoLocationService.GeoLocation;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compiles {@code ip-ranges.csv} into the binary format read by {@link GeoIpDatabase}.
+ *
+ * The output is written to a temporary file next to the target and moved into place
+ * atomically, so a process mapping the previous file keeps a consistent view until it
+ * reopens. Run offline with:
+ * <pre>
+ * java -cp app.jar com.url.analytics.service.geoip.GeoIpDatabaseCompiler ip-ranges.csv ip-ranges.bin
+ * </pre>
+ */
+public final class GeoIpDatabaseCompiler {
+
+    private GeoIpDatabaseCompiler() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: GeoIpDatabaseCompiler <ip-ranges.csv> <output.bin>");
+            System.exit(2);
+        }
+        CompileResult result = compile(Path.of(args[0]), Path.of(args[1]), new GeoLocationDataValidator());
+        System.out.println(result.validation().message());
+        if (!result.validation().isValid()) {
+            System.exit(1);
+        }
+        System.out.printf("Wrote %s: %d IPv4 ranges, %d IPv6 ranges, %d locations, %d bytes%n",
+            args[1], result.ranges(), result.rangesV6(), result.locations(), result.bytes());
+    }
+
+    /**
+     * Parses and validates the CSV in one pass and, if every record is valid, writes the
+     * database to {@code output}. On validation failure nothing is written.
+     */
+    public static CompileResult compile(Path csv, Path output, GeoLocationDataValidator validator) throws IOException {
+        IpRangeIndex.Builder builder = new IpRangeIndex.Builder();
+        ValidationResult validation = GeoIpCsvReader.read(csv, validator, builder);
+        if (!validation.isValid()) {
+            return new CompileResult(validation, 0, 0, 0, 0);
+        }
+        IpRangeIndex index = builder.build();
+
+        // String pool, each distinct string stored once
+        ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        DataOutputStream poolOut = new DataOutputStream(pool);
+        Map<String, Integer> stringOffsets = new HashMap<>();
+        int[][] locationStrings = new int[index.locationCount()][];
+        for (int id = 0; id < index.locationCount(); id++) {
+            GeoLocation location = index.location(id);
+            locationStrings[id] = new int[] {
+                poolOffset(location.getCountry(), stringOffsets, poolOut),
+                poolOffset(location.getCity(), stringOffsets, poolOut),
+                poolOffset(location.getRegion(), stringOffsets, poolOut),
+                poolOffset(location.getPostalCode(), stringOffsets, poolOut),
+                poolOffset(location.getTimezone(), stringOffsets, poolOut)
+            };
+        }
+
+        Path absolute = output.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.write(GeoIpDatabase.MAGIC);
+                out.writeInt(GeoIpDatabase.VERSION);
+                out.writeInt(index.rangeCount());
+                out.writeInt(index.locationCount());
+                out.writeInt(pool.size());
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(index.rangeCountV6());
+                out.writeInt(0);
+                for (int i = 0; i < index.rangeCount(); i++) {
+                    out.writeLong(index.start(i));
+                }
+                for (int i = 0; i < index.rangeCount(); i++) {
+                    out.writeLong(index.end(i));
+                }
+                for (int i = 0; i < index.rangeCount(); i++) {
+                    out.writeInt(index.locationId(i));
+                }
+                for (int i = 0; i < index.rangeCountV6(); i++) {
+                    out.writeLong(index.startHiV6(i));
+                    out.writeLong(index.startLoV6(i));
+                }
+                for (int i = 0; i < index.rangeCountV6(); i++) {
+                    out.writeLong(index.endHiV6(i));
+                    out.writeLong(index.endLoV6(i));
+                }
+                for (int i = 0; i < index.rangeCountV6(); i++) {
+                    out.writeInt(index.locationIdV6(i));
+                }
+                for (int id = 0; id < index.locationCount(); id++) {
+                    for (int offset : locationStrings[id]) {
+                        out.writeInt(offset);
+                    }
+                    out.writeDouble(index.location(id).getLatitude());
+                    out.writeDouble(index.location(id).getLongitude());
+                }
+                pool.writeTo(out);
+            }
+            Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return new CompileResult(validation, index.rangeCount(), index.rangeCountV6(), index.locationCount(),
+            Files.size(absolute));
+    }
+
+    private static int poolOffset(String value, Map<String, Integer> offsets, DataOutputStream pool) throws IOException {
+        String text = value != null ? value : "";
+        Integer offset = offsets.get(text);
+        if (offset == null) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IOException("String too long for GeoIP database: " + text.substring(0, 64) + "...");
+            }
+            offset = pool.size();
+            pool.writeShort(bytes.length);
+            pool.write(bytes);
+            offsets.put(text, offset);
+        }
+        return offset;
+    }
+
+    public record CompileResult(ValidationResult validation, int ranges, int rangesV6, int locations, long bytes) {}
+}
@@ -1,14 +1,17 @@
 package com.url.analytics.service.geoip;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Comparator;
+import java.time.Duration;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Objects;
 
 /**
  * Service for IP-based geolocation lookups.
@@ -47,37 +50,57 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class GeoLocationService {
     private final List<LocationDataSource> dataSources;
-    private final Map<String, GeoLocation> locationCache = new ConcurrentHashMap<>();
-    private static final int MAX_CACHE_SIZE = 10000;
+    private final LocationResolver locationResolver;
 
-    public GeoLocation getLocation(String ipAddress) {
-        // Check cache first
-        return locationCache.computeIfAbsent(ipAddress, this::lookupLocation);
-    }
+    /*
+     * Results keyed by the parsed address rather than its text, so "::ffff:1.2.3.4" and
+     * "1.2.3.4" share an entry and keys are a fixed 32 bytes. Bounded by size; "Unknown"
+     * results are cached with a shorter TTL so a crawler sweeping unmapped space cannot pin
+     * the cache but repeated misses still skip the sources.
+     */
+    private final Cache<IpKey, GeoLocation> locationCache;
+
+    public GeoLocationService(
+            List<LocationDataSource> dataSources,
+            LocationResolver locationResolver,
+            @Value("${analytics.geoip.cache.max-size:100000}") long maxSize,
+            @Value("${analytics.geoip.cache.ttl-minutes:360}") long ttlMinutes,
+            @Value("${analytics.geoip.cache.negative-ttl-seconds:300}") long negativeTtlSeconds) {
+        this.dataSources = dataSources;
+        this.locationResolver = locationResolver;
+        long ttlNanos = Duration.ofMinutes(ttlMinutes).toNanos();
+        long negativeTtlNanos = Duration.ofSeconds(negativeTtlSeconds).toNanos();
+        this.locationCache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new Expiry<IpKey, GeoLocation>() {
+                @Override
+                public long expireAfterCreate(IpKey key, GeoLocation value, long currentTime) {
+                    return GeoLocation.UNKNOWN.equals(value) ? negativeTtlNanos : ttlNanos;
+                }
+
+                @Override
+                public long expireAfterUpdate(IpKey key, GeoLocation value, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, value, currentTime);
+                }
 
-    private GeoLocation lookupLocation(String ipAddress) {
-        // Try all available data sources
-        return dataSources.stream()
-            .filter(LocationDataSource::isAvailable)
-            .map(source -> {
-                try {
-                    return source.getLocation(ipAddress);
-                } catch (Exception e) {
-                    log.error("Error getting location from {}: {}", 
-                             source.getSourceName(), e.getMessage());
-                    return null;
+                @Override
+                public long expireAfterRead(IpKey key, GeoLocation value, long currentTime, long currentDuration) {
+                    return currentDuration;
                 }
             })
-            .filter(location -> location != null && !location.getCountry().equals("Unknown"))
-            .max(Comparator.comparing(location -> 
-                dataSources.stream()
-                    .filter(source -> source.getLocation(ipAddress).equals(location))
-                    .mapToDouble(LocationDataSource::getConfidence)
-                    .sum()))
-            .orElse(new GeoLocation("Unknown", "Unknown", "Unknown", "Unknown", 0.0, 0.0, "Unknown"));
+            .recordStats()
+            .build();
+    }
+
+    public GeoLocation getLocation(String ipAddress) {
+        IpKey key = IpKey.parse(ipAddress);
+        if (key == null) {
+            // Not an IP literal; no source can resolve it and it must not take a cache slot
+            return GeoLocation.UNKNOWN;
+        }
+        return locationCache.get(key, k -> locationResolver.resolve(ipAddress));
     }
 
     @Scheduled(cron = "0 0 1 * * ?") // Run at 1 AM daily
@@ -96,27 +119,46 @@ public class GeoLocationService {
     }
 
     private void clearCache() {
-        locationCache.clear();
+        locationCache.invalidateAll();
         log.info("Cleared location cache");
     }
 
-    // Cache maintenance
-    @Scheduled(fixedRate = 3600000) // Every hour
-    public void maintainCache() {
-        if (locationCache.size() > MAX_CACHE_SIZE) {
-            // Remove oldest entries
-            locationCache.entrySet().stream()
-                .sorted(Map.Entry.comparingByValue(Comparator.comparing(
-                    location -> location.getCountry() + location.getCity())))
-                .limit(locationCache.size() - MAX_CACHE_SIZE)
-                .forEach(entry -> locationCache.remove(entry.getKey()));
-            
-            log.info("Reduced cache size to {}", locationCache.size());
+    public CacheStats getCacheStats() {
+        return locationCache.stats();
+    }
+
+    public long getCacheSize() {
+        return locationCache.estimatedSize();
+    }
+
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void logCacheStats() {
+        CacheStats stats = locationCache.stats();
+        log.info("GeoIP cache: size={}, hitRate={}, misses={}, evictions={}",
+            locationCache.estimatedSize(), String.format("%.4f", stats.hitRate()),
+            stats.missCount(), stats.evictionCount());
+    }
+
+    /**
+     * IPv6 form of an address (IPv4 as {@code ::ffff:a.b.c.d}), used as the cache key.
+     */
+    record IpKey(long hi, long lo) {
+        static IpKey parse(String ipAddress) {
+            long ipv4 = IpAddresses.parseIpv4(ipAddress);
+            if (ipv4 != IpAddresses.INVALID) {
+                return new IpKey(0, 0xFFFF_0000_0000L | ipv4);
+            }
+            long[] v6 = new long[2];
+            return IpAddresses.parseIpv6(ipAddress, v6) ? new IpKey(v6[0], v6[1]) : null;
         }
     }
 
     // Data class for location information
     public static class GeoLocation {
+        public static final GeoLocation UNKNOWN =
+            new GeoLocation("Unknown", "Unknown", "Unknown", "Unknown", 0.0, 0.0, "Unknown");
+
+
         private final String country;
         private final String city;
         private final String region;
@@ -144,5 +186,23 @@ public class GeoLocationService {
         public double getLatitude() { return latitude; }
         public double getLongitude() { return longitude; }
         public String getTimezone() { return timezone; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof GeoLocation other)) return false;
+            return Double.compare(latitude, other.latitude) == 0
+                && Double.compare(longitude, other.longitude) == 0
+                && Objects.equals(country, other.country)
+                && Objects.equals(city, other.city)
+                && Objects.equals(region, other.region)
+                && Objects.equals(postalCode, other.postalCode)
+                && Objects.equals(timezone, other.timezone);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(country, city, region, postalCode, latitude, longitude, timezone);
+        }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,206 @@
+package com.url.analytics.service.geoip;
+
+/**
+ * Allocation-free parsing of IP address literals for the lookup hot path.
+ *
+ * IPv4 addresses are returned as an unsigned 32-bit value in a long; IPv6 addresses as two
+ * longs (high and low 64 bits) written into a caller-supplied array.
+ */
+public final class IpAddresses {
+    public static final long INVALID = -1L;
+
+    private IpAddresses() {}
+
+    /**
+     * Parses a dotted-quad IPv4 address, or returns {@link #INVALID}. Surrounding whitespace
+     * is ignored.
+     */
+    public static long parseIpv4(CharSequence address) {
+        if (address == null) {
+            return INVALID;
+        }
+        int start = 0;
+        int end = address.length();
+        while (start < end && address.charAt(start) <= ' ') start++;
+        while (end > start && address.charAt(end - 1) <= ' ') end--;
+        return parseIpv4(address, start, end);
+    }
+
+    private static long parseIpv4(CharSequence address, int start, int end) {
+        long result = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = start; i < end; i++) {
+            char c = address.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) {
+                    return INVALID;
+                }
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                result = (result << 8) | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return INVALID;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return INVALID;
+        }
+        return (result << 8) | octet;
+    }
+
+    /**
+     * Parses an IPv6 address (RFC 4291 text forms: full, {@code ::}-compressed and with a
+     * trailing dotted quad) into {@code out[0]} (high bits) and {@code out[1]} (low bits).
+     * Square brackets and a {@code %zone} suffix are accepted and ignored.
+     *
+     * @return {@code false} if the text is not a valid IPv6 address; {@code out} is then
+     *         left unchanged
+     */
+    public static boolean parseIpv6(CharSequence address, long[] out) {
+        if (address == null) {
+            return false;
+        }
+        int start = 0;
+        int end = address.length();
+        while (start < end && address.charAt(start) <= ' ') start++;
+        while (end > start && address.charAt(end - 1) <= ' ') end--;
+        if (start < end && address.charAt(start) == '[') {
+            if (address.charAt(end - 1) != ']') {
+                return false;
+            }
+            start++;
+            end--;
+        }
+        for (int i = start; i < end; i++) {
+            if (address.charAt(i) == '%') {
+                end = i;
+                break;
+            }
+        }
+        if (end - start < 2) {
+            return false;
+        }
+
+        // Groups before "::" accumulate in head, groups after it in tail
+        long headHi = 0, headLo = 0, tailHi = 0, tailLo = 0;
+        int headGroups = 0, tailGroups = 0;
+        boolean compressed = false;
+        int i = start;
+        if (address.charAt(i) == ':') {
+            if (address.charAt(i + 1) != ':') {
+                return false;
+            }
+            compressed = true;
+            i += 2;
+        }
+        while (i < end) {
+            int tokenEnd = i;
+            boolean dotted = false;
+            while (tokenEnd < end && address.charAt(tokenEnd) != ':') {
+                if (address.charAt(tokenEnd) == '.') {
+                    dotted = true;
+                }
+                tokenEnd++;
+            }
+            if (tokenEnd == i) {
+                return false;
+            }
+            long value;
+            int bits;
+            if (dotted) {
+                if (tokenEnd != end) {
+                    return false;
+                }
+                value = parseIpv4(address, i, tokenEnd);
+                if (value == INVALID) {
+                    return false;
+                }
+                bits = 32;
+            } else {
+                if (tokenEnd - i > 4) {
+                    return false;
+                }
+                value = 0;
+                for (int j = i; j < tokenEnd; j++) {
+                    int digit = hexDigit(address.charAt(j));
+                    if (digit < 0) {
+                        return false;
+                    }
+                    value = (value << 4) | digit;
+                }
+                bits = 16;
+            }
+            if (compressed) {
+                tailHi = (tailHi << bits) | (tailLo >>> (64 - bits));
+                tailLo = (tailLo << bits) | value;
+                tailGroups += bits / 16;
+            } else {
+                headHi = (headHi << bits) | (headLo >>> (64 - bits));
+                headLo = (headLo << bits) | value;
+                headGroups += bits / 16;
+            }
+            if (headGroups + tailGroups > 8) {
+                return false;
+            }
+            if (tokenEnd == end) {
+                break;
+            }
+            i = tokenEnd + 1;
+            if (i < end && address.charAt(i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+            } else if (i == end) {
+                return false;
+            }
+        }
+
+        if (compressed) {
+            if (headGroups + tailGroups > 7) {
+                return false;
+            }
+            int shift = 16 * (8 - headGroups);
+            if (shift >= 128) {
+                headHi = 0;
+                headLo = 0;
+            } else if (shift >= 64) {
+                headHi = headLo << (shift - 64);
+                headLo = 0;
+            } else {
+                headHi = (headHi << shift) | (headLo >>> (64 - shift));
+                headLo <<= shift;
+            }
+            out[0] = headHi | tailHi;
+            out[1] = headLo | tailLo;
+        } else {
+            if (headGroups != 8) {
+                return false;
+            }
+            out[0] = headHi;
+            out[1] = headLo;
+        }
+        return true;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    /**
+     * The embedded IPv4 address of an IPv4-mapped IPv6 address ({@code ::ffff:a.b.c.d}), or
+     * {@link #INVALID}.
+     */
+    public static long mappedIpv4(long hi, long lo) {
+        return hi == 0 && (lo >>> 32) == 0xFFFFL ? lo & 0xFFFFFFFFL : INVALID;
+    }
+}
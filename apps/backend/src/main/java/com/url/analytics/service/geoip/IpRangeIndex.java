@@ -0,0 +1,281 @@
+package com.url.analytics.service.geoip;
+
+import com.url.analytics.service.geoip.GeoLocationService.GeoLocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable IP range table held in parallel primitive arrays: sorted range starts, range
+ * ends and an index into a dictionary of distinct locations. Many ranges share a location,
+ * so each {@link GeoLocation} (and each repeated string inside it) is stored once.
+ *
+ * IPv4 ranges take one long per bound. IPv6 ranges live in a separate table with two longs
+ * per bound (high and low 64 bits, compared unsigned) and share the location dictionary.
+ * A lookup is a binary search and allocates nothing.
+ */
+final class IpRangeIndex {
+    static final IpRangeIndex EMPTY = new Builder().build();
+
+    private final long[] starts;
+    private final long[] ends;
+    private final int[] locationIds;
+    private final long[] startsHi6;
+    private final long[] startsLo6;
+    private final long[] endsHi6;
+    private final long[] endsLo6;
+    private final int[] locationIds6;
+    private final GeoLocation[] locations;
+
+    private IpRangeIndex(long[] starts, long[] ends, int[] locationIds,
+                         long[] startsHi6, long[] startsLo6, long[] endsHi6, long[] endsLo6, int[] locationIds6,
+                         GeoLocation[] locations) {
+        this.starts = starts;
+        this.ends = ends;
+        this.locationIds = locationIds;
+        this.startsHi6 = startsHi6;
+        this.startsLo6 = startsLo6;
+        this.endsHi6 = endsHi6;
+        this.endsLo6 = endsLo6;
+        this.locationIds6 = locationIds6;
+        this.locations = locations;
+    }
+
+    /**
+     * Location of the IPv4 range containing {@code ip}, or {@code null}. Ranges are expected not
+     * to overlap; if they do, only the one with the greatest start not above {@code ip} is checked.
+     */
+    GeoLocation find(long ip) {
+        int low = 0;
+        int high = starts.length - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= ip) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (candidate >= 0 && ip <= ends[candidate]) {
+            return locations[locationIds[candidate]];
+        }
+        return null;
+    }
+
+    /**
+     * Location of the IPv6 range containing {@code hi:lo}, or {@code null}.
+     */
+    GeoLocation findV6(long hi, long lo) {
+        int low = 0;
+        int high = startsHi6.length - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare128(startsHi6[mid], startsLo6[mid], hi, lo) <= 0) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (candidate >= 0 && compare128(hi, lo, endsHi6[candidate], endsLo6[candidate]) <= 0) {
+            return locations[locationIds6[candidate]];
+        }
+        return null;
+    }
+
+    static int compare128(long aHi, long aLo, long bHi, long bLo) {
+        int byHigh = Long.compareUnsigned(aHi, bHi);
+        return byHigh != 0 ? byHigh : Long.compareUnsigned(aLo, bLo);
+    }
+
+    int rangeCount() {
+        return starts.length;
+    }
+
+    int rangeCountV6() {
+        return startsHi6.length;
+    }
+
+    int locationCount() {
+        return locations.length;
+    }
+
+    long start(int range) {
+        return starts[range];
+    }
+
+    long end(int range) {
+        return ends[range];
+    }
+
+    int locationId(int range) {
+        return locationIds[range];
+    }
+
+    long startHiV6(int range) {
+        return startsHi6[range];
+    }
+
+    long startLoV6(int range) {
+        return startsLo6[range];
+    }
+
+    long endHiV6(int range) {
+        return endsHi6[range];
+    }
+
+    long endLoV6(int range) {
+        return endsLo6[range];
+    }
+
+    int locationIdV6(int range) {
+        return locationIds6[range];
+    }
+
+    GeoLocation location(int locationId) {
+        return locations[locationId];
+    }
+
+    /**
+     * Approximate retained heap of the index: the range arrays plus the location dictionary
+     * (object headers, fields and distinct strings), assuming compressed oops.
+     */
+    long estimatedHeapBytes() {
+        long bytes = arrayBytes(starts.length, 8) * 2 + arrayBytes(locationIds.length, 4)
+            + arrayBytes(startsHi6.length, 8) * 4 + arrayBytes(locationIds6.length, 4)
+            + arrayBytes(locations.length, 4);
+        Map<String, Boolean> seen = new HashMap<>();
+        for (GeoLocation location : locations) {
+            bytes += 48; // header + 5 references + 2 doubles
+            for (String value : new String[] {location.getCountry(), location.getCity(), location.getRegion(),
+                    location.getPostalCode(), location.getTimezone()}) {
+                if (value != null && seen.putIfAbsent(value, Boolean.TRUE) == null) {
+                    bytes += 24 + arrayBytes(value.length(), 1);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static long arrayBytes(long length, int elementSize) {
+        return (16 + length * elementSize + 7) & ~7L;
+    }
+
+    static final class Builder implements GeoIpCsvReader.RowHandler {
+        private long[] starts = new long[1024];
+        private long[] ends = new long[1024];
+        private int[] locationIds = new int[1024];
+        private int size;
+        private long[] bounds6 = new long[4 * 64]; // startHi, startLo, endHi, endLo per range
+        private int[] locationIds6 = new int[64];
+        private int size6;
+        private final Map<GeoLocation, Integer> locationIndex = new HashMap<>();
+        private final List<GeoLocation> locations = new ArrayList<>();
+        private final Map<String, String> strings = new HashMap<>();
+
+        @Override
+        public void add(long start, long end, String country, String city, String region, String postalCode,
+                        double latitude, double longitude, String timezone) {
+            int id = locationId(country, city, region, postalCode, latitude, longitude, timezone);
+            if (size == starts.length) {
+                int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                locationIds = Arrays.copyOf(locationIds, capacity);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            locationIds[size] = id;
+            size++;
+        }
+
+        @Override
+        public void addV6(long startHi, long startLo, long endHi, long endLo, String country, String city,
+                          String region, String postalCode, double latitude, double longitude, String timezone) {
+            int id = locationId(country, city, region, postalCode, latitude, longitude, timezone);
+            if (size6 == locationIds6.length) {
+                bounds6 = Arrays.copyOf(bounds6, bounds6.length * 2);
+                locationIds6 = Arrays.copyOf(locationIds6, size6 * 2);
+            }
+            bounds6[4 * size6] = startHi;
+            bounds6[4 * size6 + 1] = startLo;
+            bounds6[4 * size6 + 2] = endHi;
+            bounds6[4 * size6 + 3] = endLo;
+            locationIds6[size6] = id;
+            size6++;
+        }
+
+        private int locationId(String country, String city, String region, String postalCode,
+                               double latitude, double longitude, String timezone) {
+            GeoLocation location = new GeoLocation(intern(country), intern(city), intern(region),
+                intern(postalCode), latitude, longitude, intern(timezone));
+            Integer id = locationIndex.get(location);
+            if (id == null) {
+                id = locations.size();
+                locations.add(location);
+                locationIndex.put(location, id);
+            }
+            return id;
+        }
+
+        // Dictionary-local interning; unlike String.intern() it is dropped with the builder
+        private String intern(String value) {
+            return value == null ? null : strings.computeIfAbsent(value, v -> v);
+        }
+
+        IpRangeIndex build() {
+            int[] order = sortedOrder(size, (a, b) -> Long.compare(starts[a], starts[b]));
+            long[] sortedStarts = new long[size];
+            long[] sortedEnds = new long[size];
+            int[] sortedIds = new int[size];
+            for (int i = 0; i < size; i++) {
+                sortedStarts[i] = starts[order[i]];
+                sortedEnds[i] = ends[order[i]];
+                sortedIds[i] = locationIds[order[i]];
+            }
+
+            int[] order6 = sortedOrder(size6, (a, b) ->
+                compare128(bounds6[4 * a], bounds6[4 * a + 1], bounds6[4 * b], bounds6[4 * b + 1]));
+            long[] startsHi = new long[size6];
+            long[] startsLo = new long[size6];
+            long[] endsHi = new long[size6];
+            long[] endsLo = new long[size6];
+            int[] sortedIds6 = new int[size6];
+            for (int i = 0; i < size6; i++) {
+                int from = 4 * order6[i];
+                startsHi[i] = bounds6[from];
+                startsLo[i] = bounds6[from + 1];
+                endsHi[i] = bounds6[from + 2];
+                endsLo[i] = bounds6[from + 3];
+                sortedIds6[i] = locationIds6[order6[i]];
+            }
+            return new IpRangeIndex(sortedStarts, sortedEnds, sortedIds,
+                startsHi, startsLo, endsHi, endsLo, sortedIds6, locations.toArray(new GeoLocation[0]));
+        }
+
+        // Row permutation that orders ranges by start; input is usually sorted already
+        private static int[] sortedOrder(int count, Comparator<Integer> byStart) {
+            Integer[] order = new Integer[count];
+            boolean sorted = true;
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+                sorted &= i == 0 || byStart.compare(i - 1, i) <= 0;
+            }
+            if (!sorted) {
+                Arrays.sort(order, byStart);
+            }
+            int[] result = new int[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = order[i];
+            }
+            return result;
+        }
+    }
+}
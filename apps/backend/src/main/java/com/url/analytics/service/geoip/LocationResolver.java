@@ -0,0 +1,244 @@
+package com.url.analytics.service.geoip;
+
+import com.url.analytics.service.geoip.GeoLocationService.GeoLocation;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Resolves an address against every available {@link LocationDataSource} and merges the answers.
+ *
+ * Each source is queried exactly once. With a single available source (the usual deployment)
+ * it runs on the caller's thread; with several, they run in parallel and share one timeout
+ * budget, so a slow source costs at most {@code analytics.geoip.source-timeout-ms} rather than
+ * adding to every lookup. Answers are merged field by field, each value weighted by the summed
+ * {@link LocationDataSource#getConfidence() confidence} of the sources reporting it.
+ */
+@Component
+@Slf4j
+public class LocationResolver {
+    private static final String UNKNOWN = "Unknown";
+
+    private final List<LocationDataSource> dataSources;
+    private final Map<LocationDataSource, SourceMetrics> metrics = new HashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final long timeoutNanos;
+
+    public LocationResolver(
+            List<LocationDataSource> dataSources,
+            @Value("${analytics.geoip.source-timeout-ms:50}") long timeoutMs,
+            @Value("${analytics.geoip.resolver-threads:4}") int threads,
+            @Value("${analytics.geoip.resolver-queue-size:1024}") int queueSize) {
+        this.dataSources = List.copyOf(dataSources);
+        this.dataSources.forEach(source -> metrics.put(source, new SourceMetrics()));
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        AtomicInteger threadCount = new AtomicInteger();
+        // Full queue rejects rather than running on the caller, which would defeat the timeout
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize), runnable -> {
+                Thread thread = new Thread(runnable, "geoip-resolver-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Merged location for {@code ipAddress}, or {@link GeoLocation#UNKNOWN} if no source knows it.
+     */
+    public GeoLocation resolve(String ipAddress) {
+        List<LocationDataSource> available = new ArrayList<>(dataSources.size());
+        for (LocationDataSource source : dataSources) {
+            if (source.isAvailable()) {
+                available.add(source);
+            } else {
+                metrics.get(source).unavailable.increment();
+            }
+        }
+        if (available.isEmpty()) {
+            return GeoLocation.UNKNOWN;
+        }
+        if (available.size() == 1) {
+            GeoLocation location = query(available.get(0), ipAddress);
+            return isKnown(location) ? location : GeoLocation.UNKNOWN;
+        }
+
+        List<Future<GeoLocation>> futures = new ArrayList<>(available.size());
+        for (LocationDataSource source : available) {
+            try {
+                futures.add(executor.submit(() -> query(source, ipAddress)));
+            } catch (RejectedExecutionException e) {
+                metrics.get(source).rejected.increment();
+                futures.add(null);
+            }
+        }
+
+        List<GeoLocation> answers = new ArrayList<>(available.size());
+        List<Double> weights = new ArrayList<>(available.size());
+        long deadline = System.nanoTime() + timeoutNanos;
+        for (int i = 0; i < available.size(); i++) {
+            Future<GeoLocation> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+            LocationDataSource source = available.get(i);
+            try {
+                GeoLocation location = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (isKnown(location)) {
+                    answers.add(location);
+                    weights.add(source.getConfidence());
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                metrics.get(source).timeouts.increment();
+            } catch (ExecutionException e) {
+                // query() records its own failures; this is only reached on an Error
+                metrics.get(source).failures.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> {
+                    if (pending != null) pending.cancel(true);
+                });
+                break;
+            }
+        }
+        return merge(answers, weights);
+    }
+
+    private GeoLocation query(LocationDataSource source, String ipAddress) {
+        SourceMetrics sourceMetrics = metrics.get(source);
+        long started = System.nanoTime();
+        try {
+            GeoLocation location = source.getLocation(ipAddress);
+            if (!isKnown(location)) {
+                sourceMetrics.unknowns.increment();
+            }
+            return location;
+        } catch (Exception e) {
+            sourceMetrics.failures.increment();
+            log.error("Error getting location from {}: {}", source.getSourceName(), e.getMessage());
+            return null;
+        } finally {
+            sourceMetrics.calls.increment();
+            sourceMetrics.latencyNanos.add(System.nanoTime() - started);
+        }
+    }
+
+    /*
+     * Country is voted first, then city among the answers that agree on the country, then the
+     * remaining text fields among the answers that agree on both. Coordinates come from the
+     * most confident agreeing answer so they stay consistent with each other.
+     */
+    static GeoLocation merge(List<GeoLocation> answers, List<Double> weights) {
+        if (answers.isEmpty()) {
+            return GeoLocation.UNKNOWN;
+        }
+        if (answers.size() == 1) {
+            return answers.get(0);
+        }
+        String country = vote(answers, weights, GeoLocation::getCountry);
+        keepMatching(answers, weights, GeoLocation::getCountry, country);
+        String city = vote(answers, weights, GeoLocation::getCity);
+        keepMatching(answers, weights, GeoLocation::getCity, city);
+
+        int bestIndex = 0;
+        for (int i = 1; i < answers.size(); i++) {
+            if (weights.get(i) > weights.get(bestIndex)) {
+                bestIndex = i;
+            }
+        }
+        GeoLocation best = answers.get(bestIndex);
+        String region = vote(answers, weights, GeoLocation::getRegion);
+        String postalCode = vote(answers, weights, GeoLocation::getPostalCode);
+        String timezone = vote(answers, weights, GeoLocation::getTimezone);
+        GeoLocation merged = new GeoLocation(country, city, region, postalCode,
+            best.getLatitude(), best.getLongitude(), timezone);
+        return merged.equals(best) ? best : merged;
+    }
+
+    // Value with the highest summed weight; ties go to the value seen first
+    private static String vote(List<GeoLocation> answers, List<Double> weights, Function<GeoLocation, String> field) {
+        Map<String, Double> totals = new HashMap<>();
+        String winner = null;
+        double winnerWeight = -1;
+        for (int i = 0; i < answers.size(); i++) {
+            String value = field.apply(answers.get(i));
+            double total = totals.merge(value == null ? "" : value, weights.get(i), Double::sum);
+            if (total > winnerWeight) {
+                winner = value;
+                winnerWeight = total;
+            }
+        }
+        return winner;
+    }
+
+    private static void keepMatching(List<GeoLocation> answers, List<Double> weights,
+                                     Function<GeoLocation, String> field, String value) {
+        for (int i = answers.size() - 1; i >= 0; i--) {
+            if (!Objects.equals(field.apply(answers.get(i)), value)) {
+                answers.remove(i);
+                weights.remove(i);
+            }
+        }
+    }
+
+    private static boolean isKnown(GeoLocation location) {
+        return location != null && location.getCountry() != null && !UNKNOWN.equals(location.getCountry());
+    }
+
+    public List<SourceStats> getSourceStats() {
+        List<SourceStats> stats = new ArrayList<>(dataSources.size());
+        for (LocationDataSource source : dataSources) {
+            SourceMetrics m = metrics.get(source);
+            long calls = m.calls.sum();
+            stats.add(new SourceStats(source.getSourceName(), source.isAvailable(), calls, m.unknowns.sum(),
+                m.failures.sum(), m.timeouts.sum(), m.rejected.sum(), m.unavailable.sum(),
+                calls == 0 ? 0 : m.latencyNanos.sum() / calls / 1000));
+        }
+        return stats;
+    }
+
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void logStats() {
+        getSourceStats().forEach(stats -> log.info(
+            "GeoIP source {}: available={}, calls={}, unknowns={}, failures={}, timeouts={}, rejected={}, "
+                + "skippedUnavailable={}, avgLatencyMicros={}",
+            stats.source(), stats.available(), stats.calls(), stats.unknowns(), stats.failures(),
+            stats.timeouts(), stats.rejected(), stats.skippedUnavailable(), stats.avgLatencyMicros()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class SourceMetrics {
+        final LongAdder calls = new LongAdder();
+        final LongAdder unknowns = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder unavailable = new LongAdder();
+        final LongAdder latencyNanos = new LongAdder();
+    }
+
+    public record SourceStats(String source, boolean available, long calls, long unknowns, long failures,
+                              long timeouts, long rejected, long skippedUnavailable, long avgLatencyMicros) {}
+}
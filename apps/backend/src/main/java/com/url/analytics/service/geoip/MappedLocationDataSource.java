@@ -0,0 +1,147 @@
+package com.url.analytics.service.geoip;
+
+import com.url.analytics.service.geoip.GeoLocationService.GeoLocation;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * GeoIP source backed by a compiled, memory-mapped database (see {@link GeoIpDatabaseCompiler}).
+ * Replaces {@link CsvLocationDataSource} when {@code analytics.geoip.binary.enabled=true}.
+ *
+ * Opening the file only maps it, so startup and refresh take milliseconds and the range table
+ * stays off-heap. A refresh maps the new file and swaps a volatile reference; lookups in flight
+ * finish on the old mapping, which is released when it becomes unreachable.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "analytics.geoip.binary.enabled", havingValue = "true")
+public class MappedLocationDataSource implements LocationDataSource {
+    // Per-thread buffer for parsed IPv6 addresses, so lookups stay allocation-free
+    private static final ThreadLocal<long[]> V6_SCRATCH = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final GeoLocationDataValidator validator;
+    private final Path databasePath;
+    private final Path csvPath;
+    private final boolean compileFromCsv;
+
+    private volatile GeoIpDatabase database;
+    private final AtomicBoolean isUpdating = new AtomicBoolean(false);
+
+    public MappedLocationDataSource(
+            GeoLocationDataValidator validator,
+            @Value("${analytics.geoip.binary.path:geoip/ip-ranges.bin}") String databasePath,
+            @Value("${analytics.geoip.csv-path:src/main/resources/geoip/ip-ranges.csv}") String csvPath,
+            @Value("${analytics.geoip.binary.compile-from-csv:true}") boolean compileFromCsv) {
+        this.validator = validator;
+        this.databasePath = Path.of(databasePath);
+        this.csvPath = Path.of(csvPath);
+        this.compileFromCsv = compileFromCsv;
+    }
+
+    @PostConstruct
+    public void init() {
+        refresh();
+    }
+
+    @Override
+    public GeoLocation getLocation(String ipAddress) {
+        GeoIpDatabase current = database;
+        if (current == null) {
+            return GeoLocation.UNKNOWN;
+        }
+        GeoLocation location;
+        long ip = IpAddresses.parseIpv4(ipAddress);
+        if (ip != IpAddresses.INVALID) {
+            location = current.find(ip);
+        } else {
+            long[] v6 = V6_SCRATCH.get();
+            if (!IpAddresses.parseIpv6(ipAddress, v6)) {
+                return GeoLocation.UNKNOWN;
+            }
+            long mapped = IpAddresses.mappedIpv4(v6[0], v6[1]);
+            location = mapped != IpAddresses.INVALID ? current.find(mapped) : current.findV6(v6[0], v6[1]);
+        }
+        return location != null ? location : GeoLocation.UNKNOWN;
+    }
+
+    @Override
+    public double getConfidence() {
+        return 0.8; // Same data as the CSV source
+    }
+
+    @Override
+    public String getSourceName() {
+        return "BINARY_DATABASE";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return database != null;
+    }
+
+    /**
+     * Recompiles the database if the CSV is newer (when enabled), then maps the file and swaps
+     * it in. On failure the current database stays in use.
+     */
+    @Override
+    public void refresh() {
+        if (!isUpdating.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (compileFromCsv && isStale() && !compile()) {
+                return;
+            }
+            long started = System.nanoTime();
+            GeoIpDatabase opened;
+            try {
+                opened = GeoIpDatabase.open(databasePath);
+            } catch (IOException e) {
+                // e.g. a file written by an older version of the compiler
+                if (!compileFromCsv || !Files.exists(csvPath)) {
+                    throw e;
+                }
+                log.warn("Cannot open GeoIP database {} ({}), recompiling from {}", databasePath, e.getMessage(), csvPath);
+                if (!compile()) {
+                    return;
+                }
+                opened = GeoIpDatabase.open(databasePath);
+            }
+            database = opened;
+            log.info("Mapped GeoIP database {}: ranges={}, rangesV6={}, locations={}, bytes={}, tookMs={}",
+                databasePath, opened.rangeCount(), opened.rangeCountV6(), opened.locationCount(), opened.sizeBytes(),
+                (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException e) {
+            log.error("Failed to load GeoIP database {}: {}", databasePath, e.getMessage());
+        } finally {
+            isUpdating.set(false);
+        }
+    }
+
+    private boolean compile() throws IOException {
+        GeoIpDatabaseCompiler.CompileResult result = GeoIpDatabaseCompiler.compile(csvPath, databasePath, validator);
+        if (!result.validation().isValid()) {
+            log.error("GeoIP CSV validation failed, keeping current database: {}", result.validation().message());
+            return false;
+        }
+        log.info("Compiled {} to {}: {} IPv4 ranges, {} IPv6 ranges, {} locations, {} bytes",
+            csvPath, databasePath, result.ranges(), result.rangesV6(), result.locations(), result.bytes());
+        return true;
+    }
+
+    private boolean isStale() throws IOException {
+        if (!Files.exists(csvPath)) {
+            return false;
+        }
+        return !Files.exists(databasePath)
+            || Files.getLastModifiedTime(csvPath).compareTo(Files.getLastModifiedTime(databasePath)) > 0;
+    }
+}
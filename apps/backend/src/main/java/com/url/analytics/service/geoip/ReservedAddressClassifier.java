@@ -0,0 +1,150 @@
+package com.url.analytics.service.geoip;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recognises addresses that can never be geolocated: loopback, private, CGNAT, link-local,
+ * multicast, documentation and other reserved blocks, plus any internal ranges configured in
+ * {@code analytics.geoip.internal-ranges} (comma-separated CIDRs, e.g. load balancer subnets).
+ *
+ * Each block is a (network, mask) pair in primitive arrays; a check is a few AND/compare
+ * operations per block, and IPv4-mapped IPv6 addresses are checked against the IPv4 set.
+ */
+@Component
+@Slf4j
+public class ReservedAddressClassifier {
+    static final String[] RESERVED_RANGES = {
+        "0.0.0.0/8",          // "this" network
+        "10.0.0.0/8",         // RFC 1918
+        "100.64.0.0/10",      // carrier-grade NAT
+        "127.0.0.0/8",        // loopback
+        "169.254.0.0/16",     // link-local
+        "172.16.0.0/12",      // RFC 1918
+        "192.0.0.0/24",       // IETF protocol assignments
+        "192.0.2.0/24",       // TEST-NET-1
+        "192.168.0.0/16",     // RFC 1918
+        "198.18.0.0/15",      // benchmarking
+        "198.51.100.0/24",    // TEST-NET-2
+        "203.0.113.0/24",     // TEST-NET-3
+        "224.0.0.0/4",        // multicast
+        "240.0.0.0/4",        // reserved, includes broadcast
+        "::/128",             // unspecified
+        "::1/128",            // loopback
+        "fc00::/7",           // unique local
+        "fe80::/10",          // link-local
+        "ff00::/8",           // multicast
+        "2001:db8::/32"       // documentation
+    };
+
+    // Per-thread buffer for parsed IPv6 addresses, so checks stay allocation-free
+    private static final ThreadLocal<long[]> V6_SCRATCH = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final int[] networks4;
+    private final int[] masks4;
+    private final long[] networks6;  // hi, lo pairs
+    private final long[] masks6;
+
+    public ReservedAddressClassifier(@Value("${analytics.geoip.internal-ranges:}") List<String> internalRanges) {
+        List<String> ranges = new ArrayList<>(List.of(RESERVED_RANGES));
+        for (String range : internalRanges) {
+            if (!range.isBlank()) {
+                ranges.add(range.trim());
+            }
+        }
+        List<long[]> v4 = new ArrayList<>();
+        List<long[]> v6 = new ArrayList<>();
+        long[] parsed = new long[2];
+        for (String range : ranges) {
+            int slash = range.indexOf('/');
+            if (slash < 0) {
+                throw new IllegalArgumentException("Invalid CIDR range (missing prefix length): " + range);
+            }
+            String address = range.substring(0, slash);
+            int prefix;
+            try {
+                prefix = Integer.parseInt(range.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid CIDR prefix length: " + range);
+            }
+            long ipv4 = IpAddresses.parseIpv4(address);
+            if (ipv4 != IpAddresses.INVALID) {
+                if (prefix < 0 || prefix > 32) {
+                    throw new IllegalArgumentException("Invalid IPv4 prefix length: " + range);
+                }
+                long mask = prefix == 0 ? 0 : (0xFFFFFFFFL << (32 - prefix)) & 0xFFFFFFFFL;
+                v4.add(new long[] {ipv4 & mask, mask});
+            } else if (IpAddresses.parseIpv6(address, parsed)) {
+                if (prefix < 0 || prefix > 128) {
+                    throw new IllegalArgumentException("Invalid IPv6 prefix length: " + range);
+                }
+                long maskHi = prefix >= 64 ? -1L : prefix == 0 ? 0 : -1L << (64 - prefix);
+                long maskLo = prefix <= 64 ? 0 : prefix == 128 ? -1L : -1L << (128 - prefix);
+                v6.add(new long[] {parsed[0] & maskHi, parsed[1] & maskLo, maskHi, maskLo});
+            } else {
+                throw new IllegalArgumentException("Invalid CIDR address: " + range);
+            }
+        }
+
+        networks4 = new int[v4.size()];
+        masks4 = new int[v4.size()];
+        for (int i = 0; i < v4.size(); i++) {
+            networks4[i] = (int) v4.get(i)[0];
+            masks4[i] = (int) v4.get(i)[1];
+        }
+        networks6 = new long[v6.size() * 2];
+        masks6 = new long[v6.size() * 2];
+        for (int i = 0; i < v6.size(); i++) {
+            long[] block = v6.get(i);
+            networks6[2 * i] = block[0];
+            networks6[2 * i + 1] = block[1];
+            masks6[2 * i] = block[2];
+            masks6[2 * i + 1] = block[3];
+        }
+        log.info("Reserved address classifier: {} IPv4 and {} IPv6 blocks ({} configured internal ranges)",
+            networks4.length, v6.size(), ranges.size() - RESERVED_RANGES.length);
+    }
+
+    /**
+     * Whether {@code ipAddress} is in a reserved or internal block. {@code null} counts as
+     * internal (the click came from inside the cluster); text that is not an IP literal does not.
+     */
+    public boolean isReserved(String ipAddress) {
+        if (ipAddress == null) {
+            return true;
+        }
+        long ipv4 = IpAddresses.parseIpv4(ipAddress);
+        if (ipv4 != IpAddresses.INVALID) {
+            return isReservedIpv4(ipv4);
+        }
+        long[] v6 = V6_SCRATCH.get();
+        return IpAddresses.parseIpv6(ipAddress, v6) && isReservedIpv6(v6[0], v6[1]);
+    }
+
+    public boolean isReservedIpv4(long ipv4) {
+        int ip = (int) ipv4;
+        for (int i = 0; i < networks4.length; i++) {
+            if ((ip & masks4[i]) == networks4[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isReservedIpv6(long hi, long lo) {
+        long mapped = IpAddresses.mappedIpv4(hi, lo);
+        if (mapped != IpAddresses.INVALID) {
+            return isReservedIpv4(mapped);
+        }
+        for (int i = 0; i < networks6.length; i += 2) {
+            if ((hi & masks6[i]) == networks6[i] && (lo & masks6[i + 1]) == networks6[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
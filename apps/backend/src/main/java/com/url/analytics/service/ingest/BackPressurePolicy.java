@@ -0,0 +1,7 @@
+package com.url.analytics.service.ingest;
+
+public enum BackPressurePolicy {
+    BLOCK,          // wait up to the configured timeout for space, then drop the new click
+    DROP_OLDEST,    // evict the oldest queued click to make room
+    SPILL_TO_DISK   // append the click to a spill file that is replayed when the queue drains
+}
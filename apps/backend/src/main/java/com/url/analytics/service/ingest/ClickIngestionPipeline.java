@@ -0,0 +1,268 @@
+package com.url.analytics.service.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.url.analytics.models.ClickEvent;
+import com.url.analytics.repository.ProjectRepository;
+import com.url.analytics.service.AnalyticsService;
+import com.url.analytics.service.ClickRollupService;
+import com.url.analytics.service.HeavyHitterTracker;
+import com.url.analytics.service.UrlMappingService;
+import com.url.analytics.service.UrlResolutionCache.ResolvedUrl;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decouples click enrichment and persistence from the redirect response.
+ *
+ * The redirect handler calls {@link #submit}, which only enqueues a {@link RawClick};
+ * a fixed pool of workers registers the click, enriches it (user agent, GeoIP), saves it and
+ * counts it towards the rollups and top-N sketches.
+ * When the queue is full the configured {@link BackPressurePolicy} decides what happens.
+ */
+@Component
+@Slf4j
+public class ClickIngestionPipeline {
+    private final UrlMappingService urlMappingService;
+    private final AnalyticsService analyticsService;
+    private final ClickRollupService clickRollupService;
+    private final HeavyHitterTracker heavyHitterTracker;
+    private final ProjectRepository projectRepository;
+    private final BlockingQueue<RawClick> queue;
+    private final int workerCount;
+    private final BackPressurePolicy backPressurePolicy;
+    private final long blockTimeoutMs;
+    private final ClickSpillFile spillFile;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    public ClickIngestionPipeline(
+            UrlMappingService urlMappingService,
+            AnalyticsService analyticsService,
+            ClickRollupService clickRollupService,
+            HeavyHitterTracker heavyHitterTracker,
+            ProjectRepository projectRepository,
+            ObjectMapper objectMapper,
+            @Value("${analytics.ingest.queue-capacity:10000}") int queueCapacity,
+            @Value("${analytics.ingest.workers:4}") int workerCount,
+            @Value("${analytics.ingest.back-pressure:BLOCK}") BackPressurePolicy backPressurePolicy,
+            @Value("${analytics.ingest.block-timeout-ms:50}") long blockTimeoutMs,
+            @Value("${analytics.ingest.spill-dir:spill/clicks}") String spillDir) throws IOException {
+        this.urlMappingService = urlMappingService;
+        this.analyticsService = analyticsService;
+        this.clickRollupService = clickRollupService;
+        this.heavyHitterTracker = heavyHitterTracker;
+        this.projectRepository = projectRepository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workerCount = workerCount;
+        this.backPressurePolicy = backPressurePolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.spillFile = backPressurePolicy == BackPressurePolicy.SPILL_TO_DISK
+            ? new ClickSpillFile(Path.of(spillDir), objectMapper)
+            : null;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, "click-ingest-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("Click ingestion pipeline started: workers={}, capacity={}, policy={}",
+            workerCount, queue.remainingCapacity(), backPressurePolicy);
+    }
+
+    /**
+     * Hands a click to the pipeline. Never does I/O on the caller's thread except when
+     * spilling to disk under overload.
+     */
+    public void submit(RawClick click) {
+        if (queue.offer(click)) {
+            enqueued.increment();
+            return;
+        }
+        switch (backPressurePolicy) {
+            case BLOCK -> {
+                try {
+                    if (queue.offer(click, blockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        enqueued.increment();
+                    } else {
+                        dropped.increment();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!queue.offer(click)) {
+                    if (queue.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                enqueued.increment();
+            }
+            case SPILL_TO_DISK -> {
+                if (spillFile.append(click)) {
+                    spilled.increment();
+                } else {
+                    dropped.increment();
+                }
+            }
+        }
+    }
+
+    private void runWorker() {
+        while (running || !queue.isEmpty()) {
+            try {
+                RawClick click = queue.poll(1, TimeUnit.SECONDS);
+                if (click != null) {
+                    process(click);
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void process(RawClick click) {
+        try {
+            ResolvedUrl resolvedUrl = click.resolvedUrl();
+            urlMappingService.registerClick(resolvedUrl, click.ipAddress(), click.userAgent());
+
+            ClickEvent clickEvent = new ClickEvent();
+            clickEvent.setUrlMapping(urlMappingService.getReference(resolvedUrl));
+            if (resolvedUrl.projectId() != null) {
+                clickEvent.setProject(projectRepository.getReferenceById(resolvedUrl.projectId()));
+            }
+            clickEvent.setIpAddress(click.ipAddress());
+            clickEvent.setUserAgent(click.userAgent());
+            clickEvent.setReferrer(click.referrer());
+            clickEvent.setClickDate(click.clickDate());
+            analyticsService.processClickEvent(clickEvent);
+            clickRollupService.record(resolvedUrl.projectId(), resolvedUrl.originalUrl(), clickEvent);
+            heavyHitterTracker.record(resolvedUrl.projectId(), resolvedUrl.originalUrl(), click.referrer(), click.clickDate());
+            processed.increment();
+        } catch (Exception e) {
+            failed.increment();
+            log.error("Failed to ingest click for {}: {}", click.resolvedUrl().shortUrl(), e.getMessage(), e);
+        } finally {
+            long lag = System.currentTimeMillis() - click.capturedAt();
+            lastLagMillis.set(lag);
+            maxLagMillis.accumulateAndGet(lag, Math::max);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.ingest.spill-replay-ms:1000}")
+    public void replaySpilled() {
+        if (spillFile == null || !running || !spillFile.hasPending()) {
+            return;
+        }
+        // Only replay into a mostly empty queue so live traffic keeps priority
+        if (queue.size() > queue.remainingCapacity()) {
+            return;
+        }
+        int replayed = spillFile.replay(click -> {
+            if (queue.size() >= queue.remainingCapacity()) {
+                return false;
+            }
+            boolean accepted = queue.offer(click);
+            if (accepted) {
+                enqueued.increment();
+            }
+            return accepted;
+        });
+        if (replayed > 0) {
+            log.info("Replayed {} spilled clicks", replayed);
+        }
+    }
+
+    public PipelineStats getStats() {
+        return new PipelineStats(
+            queue.size(),
+            queue.size() + queue.remainingCapacity(),
+            enqueued.sum(),
+            processed.sum(),
+            failed.sum(),
+            dropped.sum(),
+            spilled.sum(),
+            lastLagMillis.get(),
+            maxLagMillis.get()
+        );
+    }
+
+    @Scheduled(fixedRate = 60000) // Every minute
+    public void logStats() {
+        PipelineStats stats = getStats();
+        maxLagMillis.set(0);
+        log.info("Click ingestion: depth={}/{}, enqueued={}, processed={}, failed={}, dropped={}, spilled={}, lagMs={}, maxLagMs={}",
+            stats.queueDepth(), stats.capacity(), stats.enqueued(), stats.processed(), stats.failed(),
+            stats.dropped(), stats.spilled(), stats.lastLagMillis(), stats.maxLagMillis());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        int remaining = queue.size();
+        if (remaining > 0) {
+            if (spillFile != null) {
+                RawClick click;
+                while ((click = queue.poll()) != null) {
+                    spillFile.append(click);
+                }
+                log.warn("Spilled {} queued clicks on shutdown", remaining);
+            } else {
+                log.warn("Discarding {} queued clicks on shutdown", remaining);
+            }
+        }
+        if (spillFile != null) {
+            spillFile.close();
+        }
+    }
+
+    public record PipelineStats(
+        int queueDepth,
+        int capacity,
+        long enqueued,
+        long processed,
+        long failed,
+        long dropped,
+        long spilled,
+        long lastLagMillis,
+        long maxLagMillis
+    ) {}
+}
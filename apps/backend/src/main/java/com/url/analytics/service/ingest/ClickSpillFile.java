@@ -0,0 +1,121 @@
+package com.url.analytics.service.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Predicate;
+
+/**
+ * Append-only JSON-lines overflow file for {@link ClickIngestionPipeline}.
+ * Writers append under a lock; {@link #replay} moves the file aside before reading it,
+ * so new spills keep going to a fresh file while the old one is drained.
+ */
+@Slf4j
+class ClickSpillFile {
+    private final Path spillFile;
+    private final Path drainingFile;
+    private final ObjectMapper objectMapper;
+    private final Object lock = new Object();
+    private BufferedWriter writer;
+
+    ClickSpillFile(Path spillDir, ObjectMapper objectMapper) throws IOException {
+        Files.createDirectories(spillDir);
+        this.spillFile = spillDir.resolve("clicks.spill");
+        this.drainingFile = spillDir.resolve("clicks.spill.draining");
+        this.objectMapper = objectMapper;
+    }
+
+    boolean append(RawClick click) {
+        try {
+            String line = objectMapper.writeValueAsString(click);
+            synchronized (lock) {
+                if (writer == null) {
+                    writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                writer.write(line);
+                writer.newLine();
+                writer.flush();
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to spill click to {}: {}", spillFile, e.getMessage());
+            return false;
+        }
+    }
+
+    boolean hasPending() {
+        return Files.exists(drainingFile) || Files.exists(spillFile);
+    }
+
+    /**
+     * Feeds spilled clicks to {@code sink} until it refuses one; whatever is left is appended
+     * back to the spill file. Returns the number of clicks accepted by the sink.
+     */
+    int replay(Predicate<RawClick> sink) {
+        try {
+            if (!Files.exists(drainingFile)) {
+                synchronized (lock) {
+                    closeWriter();
+                    if (!Files.exists(spillFile)) {
+                        return 0;
+                    }
+                    Files.move(spillFile, drainingFile, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            int replayed = 0;
+            boolean accepting = true;
+            try (BufferedReader reader = Files.newBufferedReader(drainingFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    RawClick click;
+                    try {
+                        click = objectMapper.readValue(line, RawClick.class);
+                    } catch (IOException e) {
+                        log.warn("Skipping unreadable spilled click: {}", e.getMessage());
+                        continue;
+                    }
+                    if (accepting && sink.test(click)) {
+                        replayed++;
+                    } else {
+                        accepting = false;
+                        append(click);
+                    }
+                }
+            }
+            Files.delete(drainingFile);
+            return replayed;
+        } catch (IOException e) {
+            log.error("Failed to replay spilled clicks: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    void close() {
+        synchronized (lock) {
+            closeWriter();
+        }
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Failed to close spill writer: {}", e.getMessage());
+            }
+            writer = null;
+        }
+    }
+}
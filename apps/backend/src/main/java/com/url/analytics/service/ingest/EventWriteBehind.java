@@ -0,0 +1,73 @@
+package com.url.analytics.service.ingest;
+
+import com.url.analytics.models.ClickEvent;
+import com.url.analytics.models.CustomEvent;
+import com.url.analytics.models.LinkClick;
+import com.url.analytics.repository.EventBatchRepository;
+import com.url.analytics.service.DimensionDictionary;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Write-behind buffers for click events, custom events and link clicks.
+ * Buffered records are flushed on graceful shutdown, before the datasource closes.
+ */
+@Component
+@Slf4j
+public class EventWriteBehind {
+    private final WriteBehindBuffer<ClickEvent> clickEvents;
+    private final WriteBehindBuffer<CustomEvent> customEvents;
+    private final WriteBehindBuffer<LinkClick> linkClicks;
+
+    public EventWriteBehind(
+            EventBatchRepository eventBatchRepository,
+            DimensionDictionary dimensionDictionary,
+            @Value("${analytics.batch.flush-size:500}") int flushSize,
+            @Value("${analytics.batch.flush-interval-ms:1000}") long flushIntervalMs,
+            @Value("${analytics.batch.max-pending:50000}") int maxPending,
+            @Value("${analytics.batch.max-attempts:3}") int maxAttempts) {
+        this.clickEvents = new WriteBehindBuffer<>("click_event", flushSize, flushIntervalMs, maxPending, maxAttempts, events -> {
+            dimensionDictionary.encode(events);
+            eventBatchRepository.insertClickEvents(events);
+        });
+        this.customEvents = new WriteBehindBuffer<>("custom_events", flushSize, flushIntervalMs, maxPending, maxAttempts,
+            eventBatchRepository::insertCustomEvents);
+        this.linkClicks = new WriteBehindBuffer<>("link_click", flushSize, flushIntervalMs, maxPending, maxAttempts,
+            eventBatchRepository::insertLinkClicks);
+    }
+
+    public void write(ClickEvent clickEvent) {
+        clickEvents.add(clickEvent);
+    }
+
+    public void write(CustomEvent customEvent) {
+        customEvents.add(customEvent);
+    }
+
+    public void write(LinkClick linkClick) {
+        linkClicks.add(linkClick);
+    }
+
+    public List<WriteBehindBuffer.BufferStats> getStats() {
+        return List.of(clickEvents.getStats(), customEvents.getStats(), linkClicks.getStats());
+    }
+
+    @Scheduled(fixedRate = 60000) // Every minute
+    public void logStats() {
+        getStats().forEach(stats -> log.info("Write-behind {}: pending={}, written={}, batches={}, failedBatches={}, dropped={}, rejected={}",
+            stats.name(), stats.pending(), stats.written(), stats.batches(), stats.failedBatches(), stats.dropped(),
+            stats.rejected()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        clickEvents.close();
+        customEvents.close();
+        linkClicks.close();
+    }
+}
@@ -0,0 +1,18 @@
+package com.url.analytics.service.ingest;
+
+import com.url.analytics.service.UrlResolutionCache.ResolvedUrl;
+
+import java.time.LocalDateTime;
+
+/**
+ * A click as captured on the redirect path, before any enrichment.
+ * {@code capturedAt} is epoch millis and is used to measure pipeline lag.
+ */
+public record RawClick(
+    ResolvedUrl resolvedUrl,
+    String ipAddress,
+    String userAgent,
+    String referrer,
+    LocalDateTime clickDate,
+    long capturedAt
+) {}
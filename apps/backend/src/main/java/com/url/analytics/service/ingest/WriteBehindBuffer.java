@@ -0,0 +1,224 @@
+package com.url.analytics.service.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Buffers records and hands them to a batch writer every {@code flushSize} records or every
+ * {@code flushIntervalMs}, whichever comes first. Flushing runs on a dedicated thread so
+ * callers never wait on the database.
+ *
+ * A batch that fails for a transient reason (lost connection, lock timeout, pool exhausted) is
+ * re-queued as long as the buffer stays under {@code maxPending}; beyond that records are dropped
+ * and counted. Any other failure is usually one bad record (a value too long for its column, say)
+ * failing the whole multi-row INSERT, so the batch is split in halves until the failing records
+ * are isolated and the rest is written. A failing record is retried on later flushes and dropped
+ * after {@code maxAttempts} attempts.
+ */
+@Slf4j
+public class WriteBehindBuffer<T> implements AutoCloseable {
+    private final String name;
+    private final int flushSize;
+    private final int maxPending;
+    private final int maxAttempts;
+    private final Consumer<List<T>> writer;
+    private final ConcurrentLinkedQueue<T> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    // Failed attempts of records isolated by a non-transient failure; only touched under flush()
+    private final Map<T, Integer> attempts = new IdentityHashMap<>();
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public WriteBehindBuffer(String name, int flushSize, long flushIntervalMs, int maxPending, int maxAttempts,
+                             Consumer<List<T>> writer) {
+        this.name = name;
+        this.flushSize = flushSize;
+        this.maxPending = maxPending;
+        this.maxAttempts = maxAttempts;
+        this.writer = writer;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void add(T record) {
+        if (pendingCount.get() >= maxPending) {
+            dropped.increment();
+            return;
+        }
+        pending.add(record);
+        if (pendingCount.incrementAndGet() >= flushSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * Writes everything currently buffered, one batch of at most {@code flushSize} at a time.
+     */
+    public synchronized void flush() {
+        flushRequested.set(false);
+        Flush flush = new Flush();
+        List<T> batch = new ArrayList<>(flushSize);
+        T record;
+        try {
+            while (true) {
+                while (batch.size() < flushSize && (record = pending.poll()) != null) {
+                    batch.add(record);
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+                pendingCount.addAndGet(-batch.size());
+                if (!write(batch, flush)) {
+                    return;
+                }
+                batch = new ArrayList<>(flushSize);
+            }
+        } finally {
+            // Records that failed on their own wait for the next flush
+            requeue(flush.retry);
+            if (flush.rejected > 0) {
+                log.warn("Write-behind {} dropped {} records rejected {} times by the database: {}",
+                    name, flush.rejected, maxAttempts, flush.firstError);
+            }
+        }
+    }
+
+    /**
+     * Writes the batch, isolating records that fail for a non-transient reason. Returns false
+     * after a transient failure, with the batch re-queued, to end this flush.
+     */
+    private boolean write(List<T> batch, Flush flush) {
+        try {
+            writer.accept(batch);
+            written.add(batch.size());
+            batches.increment();
+            if (!attempts.isEmpty()) {
+                batch.forEach(attempts::remove);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            failedBatches.increment();
+            if (isTransient(e)) {
+                log.error("Write-behind flush for {} failed ({} records), will retry: {}", name, batch.size(), e.getMessage());
+                requeue(batch);
+                return false;
+            }
+            if (batch.size() > 1) {
+                int middle = batch.size() / 2;
+                List<T> second = batch.subList(middle, batch.size());
+                if (!write(batch.subList(0, middle), flush)) {
+                    requeue(second);
+                    return false;
+                }
+                return write(second, flush);
+            }
+            T record = batch.get(0);
+            int failures = attempts.merge(record, 1, Integer::sum);
+            if (failures >= maxAttempts) {
+                attempts.remove(record);
+                rejected.increment();
+                flush.rejected++;
+                if (flush.firstError == null) {
+                    flush.firstError = e.getMessage();
+                }
+                log.debug("Write-behind {} dropped a record: {}", name, e.getMessage());
+            } else {
+                flush.retry.add(record);
+            }
+            return true;
+        }
+    }
+
+    static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Unexpected error flushing {}: {}", name, e.getMessage(), e);
+        }
+    }
+
+    private void requeue(List<T> batch) {
+        for (T record : batch) {
+            if (pendingCount.get() >= maxPending) {
+                dropped.increment();
+                attempts.remove(record);
+            } else {
+                pending.add(record);
+                pendingCount.incrementAndGet();
+            }
+        }
+    }
+
+    public BufferStats getStats() {
+        return new BufferStats(name, pendingCount.get(), written.sum(), batches.sum(), failedBatches.sum(),
+            dropped.sum(), rejected.sum());
+    }
+
+    /**
+     * Stops the periodic flush and writes whatever is still buffered on the calling thread.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (pendingCount.get() > 0) {
+            log.error("Write-behind buffer {} closed with {} unwritten records", name, pendingCount.get());
+        }
+    }
+
+    public record BufferStats(String name, int pending, long written, long batches, long failedBatches, long dropped,
+                              long rejected) {}
+
+    private final class Flush {
+        final List<T> retry = new ArrayList<>();
+        int rejected;
+        String firstError;
+    }
+}
@@ -0,0 +1,170 @@
+package com.url.analytics.service.live;
+
+import com.url.analytics.dtos.ClickUpdateDTO;
+import com.url.analytics.dtos.ClickUpdateDTO.LinkClicks;
+import com.url.analytics.models.Project;
+import com.url.analytics.repository.ProjectRepository;
+import com.url.analytics.service.UrlResolutionCache.ResolvedUrl;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes live click counts to dashboards without a message per click.
+ *
+ * Clicks are counted per link in memory; every {@code analytics.live.coalesce-interval-ms} each
+ * project with new clicks gets one {@link ClickUpdateDTO} on
+ * {@code /topic/projects/{projectId}/clicks} (the public project id), carrying one delta per
+ * link. Outbound traffic is therefore bounded by projects × subscribers × tick rate, however
+ * hot a link is. Links without a project are published on {@code /topic/clicks}.
+ *
+ * Updates go out through the configured {@link LiveUpdatePublisher}, so with the relay enabled
+ * dashboards see clicks handled by every node.
+ *
+ * Idle counters are retired the same way as in {@code ClickCounterAggregator}: removed, then
+ * drained once more on the next tick so a click racing with the removal is still sent.
+ */
+@Component
+@Slf4j
+public class ClickBroadcaster {
+    static final String UNASSIGNED_TOPIC = "/topic/clicks";
+
+    private final LiveUpdatePublisher publisher;
+    private final ProjectRepository projectRepository;
+    private final ConcurrentHashMap<Long, LinkCounter> pending = new ConcurrentHashMap<>();
+    private final Map<Long, String> publicProjectIds = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker;
+    private List<LinkCounter> retired = new ArrayList<>();
+
+    private final LongAdder clicks = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder failedMessages = new LongAdder();
+
+    public ClickBroadcaster(
+            LiveUpdatePublisher publisher,
+            ProjectRepository projectRepository,
+            @Value("${analytics.live.coalesce-interval-ms:250}") long intervalMs) {
+        this.publisher = publisher;
+        this.projectRepository = projectRepository;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "click-broadcaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleWithFixedDelay(this::publishQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void record(ResolvedUrl resolvedUrl) {
+        pending.computeIfAbsent(resolvedUrl.id(), id -> new LinkCounter(resolvedUrl)).clicks.increment();
+        clicks.increment();
+    }
+
+    /**
+     * Sends one update per project with the clicks counted since the previous call.
+     */
+    public synchronized void publish() {
+        Map<Long, List<LinkClicks>> byProject = new HashMap<>();
+        for (LinkCounter counter : retired) {
+            addDelta(byProject, counter, counter.clicks.sumThenReset());
+        }
+        retired = new ArrayList<>();
+        for (Map.Entry<Long, LinkCounter> entry : pending.entrySet()) {
+            long delta = entry.getValue().clicks.sumThenReset();
+            if (delta > 0) {
+                addDelta(byProject, entry.getValue(), delta);
+            } else if (pending.remove(entry.getKey(), entry.getValue())) {
+                retired.add(entry.getValue());
+            }
+        }
+        byProject.forEach(this::send);
+    }
+
+    private static void addDelta(Map<Long, List<LinkClicks>> byProject, LinkCounter counter, long delta) {
+        if (delta > 0) {
+            // HashMap accepts the null key used for links without a project
+            byProject.computeIfAbsent(counter.projectId, id -> new ArrayList<>())
+                .add(new LinkClicks(counter.id, counter.shortUrl, delta));
+        }
+    }
+
+    private void send(Long projectId, List<LinkClicks> links) {
+        String publicId = projectId != null ? publicProjectId(projectId) : null;
+        if (projectId != null && publicId == null) {
+            return; // project deleted since the link was resolved
+        }
+        String topic = publicId != null ? "/topic/projects/" + publicId + "/clicks" : UNASSIGNED_TOPIC;
+        try {
+            publisher.publish(topic, new ClickUpdateDTO(publicId, links));
+            messages.increment();
+        } catch (RuntimeException e) {
+            failedMessages.increment();
+            log.warn("Failed to publish click update to {}: {}", topic, e.getMessage());
+        }
+    }
+
+    // The public id never changes, so it is looked up once per project
+    private String publicProjectId(Long projectId) {
+        String publicId = publicProjectIds.get(projectId);
+        if (publicId == null) {
+            Optional<String> found = projectRepository.findById(projectId).map(Project::getProjectId);
+            if (found.isEmpty()) {
+                return null;
+            }
+            publicId = found.get();
+            publicProjectIds.put(projectId, publicId);
+        }
+        return publicId;
+    }
+
+    private void publishQuietly() {
+        try {
+            publish();
+        } catch (Exception e) {
+            log.error("Unexpected error publishing click updates: {}", e.getMessage(), e);
+        }
+    }
+
+    public BroadcastStats getStats() {
+        return new BroadcastStats(clicks.sum(), messages.sum(), failedMessages.sum(), pending.size());
+    }
+
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void logStats() {
+        BroadcastStats stats = getStats();
+        log.info("Click broadcaster: clicks={}, messages={}, failedMessages={}, activeLinks={}",
+            stats.clicks(), stats.messages(), stats.failedMessages(), stats.activeLinks());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    private static final class LinkCounter {
+        final Long id;
+        final String shortUrl;
+        final Long projectId;
+        final LongAdder clicks = new LongAdder();
+
+        LinkCounter(ResolvedUrl resolvedUrl) {
+            this.id = resolvedUrl.id();
+            this.shortUrl = resolvedUrl.shortUrl();
+            this.projectId = resolvedUrl.projectId();
+        }
+    }
+
+    public record BroadcastStats(long clicks, long messages, long failedMessages, int activeLinks) {}
+}
@@ -0,0 +1,16 @@
+package com.url.analytics.service.live;
+
+/**
+ * Fans live dashboard updates out to subscribed WebSocket clients.
+ *
+ * {@link LocalLiveUpdatePublisher} only reaches clients connected to this node;
+ * {@link RelayLiveUpdatePublisher} also reaches clients on the other nodes through a
+ * {@link LiveUpdateRelay}. Delivery is best effort: live updates are deltas on top of counts
+ * the dashboard loads over REST, so a lost update is corrected on the next load.
+ */
+public interface LiveUpdatePublisher {
+    /**
+     * Sends {@code payload} (serialized as JSON) to subscribers of the STOMP {@code destination}.
+     */
+    void publish(String destination, Object payload);
+}
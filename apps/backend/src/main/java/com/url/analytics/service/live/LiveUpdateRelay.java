@@ -0,0 +1,271 @@
+package com.url.analytics.service.live;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Minimal TCP hub for {@link RelayLiveUpdatePublisher}: every frame a node sends is forwarded to
+ * all other connected nodes. Frames are opaque here (a length-prefixed batch of updates), so the
+ * relay has no dependency on the payloads and can run anywhere.
+ *
+ * Each node gets a bounded outbox drained by its own writer thread; when a node stops reading,
+ * frames for it are dropped instead of slowing the others down.
+ *
+ * A node's first frame must be the shared secret {@code analytics.live.relay.secret}; until it
+ * is, the node neither sends nor receives updates, and a wrong secret closes the connection.
+ * {@code analytics.live.relay.server.bind-address} limits the interface listened on (all by
+ * default).
+ *
+ * Runs inside the application when {@code analytics.live.relay.server.enabled=true}, or on its
+ * own, taking the secret from {@code ANALYTICS_LIVE_RELAY_SECRET}, with:
+ * <pre>
+ * java -Dloader.main=com.url.analytics.service.live.LiveUpdateRelay \
+ *      -cp app.jar org.springframework.boot.loader.launch.PropertiesLauncher [port [bind-address]]
+ * </pre>
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "analytics.live.relay.server.enabled", havingValue = "true")
+public class LiveUpdateRelay implements AutoCloseable {
+    static final int MAX_FRAME_BYTES = 8 * 1024 * 1024;
+    private static final int HANDSHAKE_TIMEOUT_MS = 10000;
+
+    private final String bindAddress;
+    private final int port;
+    private final byte[] secret;
+    private final int peerQueueFrames;
+    private final Set<Peer> peers = ConcurrentHashMap.newKeySet();
+    private volatile ServerSocket serverSocket;
+    private volatile Thread acceptThread;
+
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder framesForwarded = new LongAdder();
+    private final LongAdder framesDropped = new LongAdder();
+    private final LongAdder rejectedNodes = new LongAdder();
+
+    public LiveUpdateRelay(
+            @Value("${analytics.live.relay.server.bind-address:}") String bindAddress,
+            @Value("${analytics.live.relay.server.port:7700}") int port,
+            @Value("${analytics.live.relay.server.peer-queue-frames:1000}") int peerQueueFrames,
+            @Value("${analytics.live.relay.secret:}") String secret) {
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.peerQueueFrames = peerQueueFrames;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        if (secret.isEmpty()) {
+            log.warn("analytics.live.relay.secret is not set; any client reaching the relay can publish updates");
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String secret = System.getenv("ANALYTICS_LIVE_RELAY_SECRET");
+        LiveUpdateRelay relay = new LiveUpdateRelay(args.length > 1 ? args[1] : "",
+            args.length > 0 ? Integer.parseInt(args[0]) : 7700, 1000, secret != null ? secret : "");
+        relay.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(relay::close));
+        // All relay threads are daemons, so keep the JVM alive until the socket is closed
+        relay.acceptThread.join();
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        ServerSocket socket = new ServerSocket();
+        socket.setReuseAddress(true);
+        socket.bind(bindAddress.isEmpty() ? new InetSocketAddress(port) : new InetSocketAddress(bindAddress, port));
+        serverSocket = socket;
+        acceptThread = startThread(this::acceptLoop, "live-relay-accept");
+        log.info("Live update relay listening on {}", socket.getLocalSocketAddress());
+    }
+
+    /** The bound port, which differs from the configured one when that is 0. */
+    public int getPort() {
+        ServerSocket socket = serverSocket;
+        return socket != null ? socket.getLocalPort() : port;
+    }
+
+    private void acceptLoop() {
+        ServerSocket socket = serverSocket;
+        while (!socket.isClosed()) {
+            try {
+                new Peer(socket.accept()).start();
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    log.warn("Live relay accept failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void forward(Peer from, byte[] frame) {
+        framesReceived.increment();
+        for (Peer peer : peers) {
+            if (peer == from) {
+                continue;
+            }
+            if (peer.outbox.offer(frame)) {
+                framesForwarded.increment();
+            } else {
+                framesDropped.increment();
+            }
+        }
+    }
+
+    public RelayStats getStats() {
+        return new RelayStats(peers.size(), framesReceived.sum(), framesForwarded.sum(), framesDropped.sum(),
+            rejectedNodes.sum());
+    }
+
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void logStats() {
+        RelayStats stats = getStats();
+        log.info("Live update relay: nodes={}, framesReceived={}, framesForwarded={}, framesDropped={}, rejectedNodes={}",
+            stats.nodes(), stats.framesReceived(), stats.framesForwarded(), stats.framesDropped(), stats.rejectedNodes());
+    }
+
+    @Override
+    @PreDestroy
+    public void close() {
+        try {
+            ServerSocket socket = serverSocket;
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            log.debug("Error closing live relay socket: {}", e.getMessage());
+        }
+        peers.forEach(Peer::close);
+    }
+
+    static void writeFrame(DataOutputStream out, byte[] frame) throws IOException {
+        out.writeInt(frame.length);
+        out.write(frame);
+        out.flush();
+    }
+
+    /** Reads one frame, or returns null at end of stream. */
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid live relay frame length: " + length);
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return frame;
+    }
+
+    private static Thread startThread(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private final class Peer {
+        final Socket socket;
+        final String name;
+        final BlockingQueue<byte[]> outbox = new ArrayBlockingQueue<>(peerQueueFrames);
+        private volatile Thread writer;
+
+        Peer(Socket socket) {
+            this.socket = socket;
+            this.name = String.valueOf(socket.getRemoteSocketAddress());
+        }
+
+        void start() {
+            startThread(this::readLoop, "live-relay-read-" + name);
+            writer = startThread(this::writeLoop, "live-relay-write-" + name);
+        }
+
+        private void readLoop() {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                if (!authenticate(in)) {
+                    rejectedNodes.increment();
+                    log.warn("Live relay rejected node {}: wrong or missing secret", name);
+                    return;
+                }
+                peers.add(this);
+                log.info("Live relay node connected: {}", name);
+                byte[] frame;
+                while ((frame = readFrame(in)) != null) {
+                    forward(this, frame);
+                }
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    log.warn("Live relay node {} failed: {}", name, e.getMessage());
+                }
+            } finally {
+                close();
+            }
+        }
+
+        private boolean authenticate(DataInputStream in) throws IOException {
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+            byte[] hello = readFrame(in);
+            socket.setSoTimeout(0);
+            return hello != null && MessageDigest.isEqual(hello, secret);
+        }
+
+        private void writeLoop() {
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                while (!socket.isClosed()) {
+                    writeFrame(out, outbox.take());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (SocketException e) {
+                // closed by the reader or by shutdown
+            } catch (IOException e) {
+                log.warn("Live relay write to {} failed: {}", name, e.getMessage());
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            if (peers.remove(this)) {
+                log.info("Live relay node disconnected: {}", name);
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Error closing live relay connection {}: {}", name, e.getMessage());
+            }
+            Thread thread = writer;
+            if (thread != null && thread != Thread.currentThread()) {
+                thread.interrupt(); // wake it from an empty outbox
+            }
+        }
+    }
+
+    public record RelayStats(int nodes, long framesReceived, long framesForwarded, long framesDropped,
+                             long rejectedNodes) {}
+}
@@ -0,0 +1,24 @@
+package com.url.analytics.service.live;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes to the in-process STOMP broker, reaching only clients connected to this node.
+ * Used unless {@code analytics.live.relay.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "analytics.live.relay.enabled", havingValue = "false", matchIfMissing = true)
+public class LocalLiveUpdatePublisher implements LiveUpdatePublisher {
+    private final SimpMessagingTemplate messagingTemplate;
+
+    public LocalLiveUpdatePublisher(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @Override
+    public void publish(String destination, Object payload) {
+        messagingTemplate.convertAndSend(destination, payload);
+    }
+}
@@ -0,0 +1,255 @@
+package com.url.analytics.service.live;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes to this node's STOMP broker and, through a {@link LiveUpdateRelay}, to every other
+ * node, so a dashboard sees clicks handled by any pod. Enabled with
+ * {@code analytics.live.relay.enabled=true}; the relay is found at
+ * {@code analytics.live.relay.host}:{@code analytics.live.relay.port}, and each connection opens
+ * with the shared secret {@code analytics.live.relay.secret}.
+ *
+ * Updates bound for other nodes are queued (at most {@code max-pending-updates}) and sent by a
+ * single thread as one frame per batch: it waits {@code batch-linger-ms} after the first update
+ * so the updates of one broadcast tick travel together, then takes up to
+ * {@code max-batch-updates}. Updates from other nodes are delivered to local subscribers only.
+ *
+ * While the relay is unreachable, local delivery continues and relayed updates are dropped;
+ * the connection is retried every {@code reconnect-delay-ms}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "analytics.live.relay.enabled", havingValue = "true")
+public class RelayLiveUpdatePublisher implements LiveUpdatePublisher {
+    private static final TypeReference<List<RelayedUpdate>> BATCH_TYPE = new TypeReference<>() {};
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final String host;
+    private final int port;
+    private final byte[] secret;
+    private final long batchLingerMs;
+    private final int maxBatchUpdates;
+    private final long reconnectDelayMs;
+    private final BlockingQueue<RelayedUpdate> outbound;
+
+    private volatile boolean running = true;
+    private volatile Socket socket;
+    private volatile DataOutputStream output;
+    private Thread linkThread;
+    private Thread senderThread;
+
+    private final LongAdder relayedUpdates = new LongAdder();
+    private final LongAdder relayedFrames = new LongAdder();
+    private final LongAdder receivedUpdates = new LongAdder();
+    private final LongAdder droppedUpdates = new LongAdder();
+
+    public RelayLiveUpdatePublisher(
+            SimpMessagingTemplate messagingTemplate,
+            ObjectMapper objectMapper,
+            @Value("${analytics.live.relay.host:localhost}") String host,
+            @Value("${analytics.live.relay.port:7700}") int port,
+            @Value("${analytics.live.relay.secret:}") String secret,
+            @Value("${analytics.live.relay.batch-linger-ms:20}") long batchLingerMs,
+            @Value("${analytics.live.relay.max-batch-updates:500}") int maxBatchUpdates,
+            @Value("${analytics.live.relay.max-pending-updates:10000}") int maxPendingUpdates,
+            @Value("${analytics.live.relay.reconnect-delay-ms:2000}") long reconnectDelayMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.host = host;
+        this.port = port;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.batchLingerMs = batchLingerMs;
+        this.maxBatchUpdates = maxBatchUpdates;
+        this.reconnectDelayMs = reconnectDelayMs;
+        this.outbound = new ArrayBlockingQueue<>(maxPendingUpdates);
+    }
+
+    @PostConstruct
+    public void start() {
+        linkThread = startThread(this::linkLoop, "live-relay-link");
+        senderThread = startThread(this::sendLoop, "live-relay-sender");
+    }
+
+    @Override
+    public void publish(String destination, Object payload) {
+        if (output == null || !outbound.offer(new RelayedUpdate(destination, objectMapper.valueToTree(payload)))) {
+            droppedUpdates.increment();
+        }
+        messagingTemplate.convertAndSend(destination, payload);
+    }
+
+    /** Keeps a connection to the relay open and delivers the batches it forwards. */
+    private void linkLoop() {
+        boolean reportFailure = true;
+        while (running) {
+            try (Socket connection = new Socket()) {
+                connection.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+                connection.setTcpNoDelay(true);
+                socket = connection;
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+                LiveUpdateRelay.writeFrame(out, secret);
+                output = out;
+                log.info("Connected to live update relay at {}:{}", host, port);
+                reportFailure = true;
+
+                DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+                byte[] frame;
+                while ((frame = LiveUpdateRelay.readFrame(in)) != null) {
+                    deliver(frame);
+                }
+                if (running) {
+                    log.warn("Live update relay at {}:{} closed the connection", host, port);
+                }
+            } catch (IOException e) {
+                if (running && reportFailure) {
+                    // Logged once per outage rather than on every retry
+                    log.warn("Live update relay at {}:{} unavailable: {}", host, port, e.getMessage());
+                    reportFailure = false;
+                }
+            } finally {
+                output = null;
+                socket = null;
+            }
+            try {
+                Thread.sleep(reconnectDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void deliver(byte[] frame) {
+        List<RelayedUpdate> updates;
+        try {
+            updates = objectMapper.readValue(frame, BATCH_TYPE);
+        } catch (IOException e) {
+            log.warn("Discarding unreadable live relay frame: {}", e.getMessage());
+            return;
+        }
+        for (RelayedUpdate update : updates) {
+            try {
+                messagingTemplate.convertAndSend(update.destination(), update.payload());
+                receivedUpdates.increment();
+            } catch (RuntimeException e) {
+                log.warn("Failed to deliver relayed update to {}: {}", update.destination(), e.getMessage());
+            }
+        }
+    }
+
+    private void sendLoop() {
+        List<RelayedUpdate> batch = new ArrayList<>(maxBatchUpdates);
+        try {
+            while (running) {
+                batch.add(outbound.take());
+                if (batchLingerMs > 0) {
+                    Thread.sleep(batchLingerMs);
+                }
+                outbound.drainTo(batch, maxBatchUpdates - 1);
+                send(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(List<RelayedUpdate> batch) {
+        DataOutputStream out = output;
+        if (out == null) {
+            droppedUpdates.add(batch.size());
+            return;
+        }
+        try {
+            byte[] frame = objectMapper.writeValueAsBytes(batch);
+            if (frame.length > LiveUpdateRelay.MAX_FRAME_BYTES) {
+                log.warn("Dropping {} live updates: batch of {} bytes exceeds the relay frame limit",
+                    batch.size(), frame.length);
+                droppedUpdates.add(batch.size());
+                return;
+            }
+            LiveUpdateRelay.writeFrame(out, frame);
+            relayedUpdates.add(batch.size());
+            relayedFrames.increment();
+        } catch (IOException e) {
+            droppedUpdates.add(batch.size());
+            log.warn("Failed to send live updates to relay: {}", e.getMessage());
+            closeSocket(); // the link thread reconnects
+        }
+    }
+
+    private void closeSocket() {
+        Socket connection = socket;
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                log.debug("Error closing live relay connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    public RelayPublisherStats getStats() {
+        return new RelayPublisherStats(output != null, relayedUpdates.sum(), relayedFrames.sum(),
+            receivedUpdates.sum(), droppedUpdates.sum(), outbound.size());
+    }
+
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void logStats() {
+        RelayPublisherStats stats = getStats();
+        log.info("Live relay publisher: connected={}, relayedUpdates={}, relayedFrames={}, receivedUpdates={}, "
+                + "droppedUpdates={}, pending={}",
+            stats.connected(), stats.relayedUpdates(), stats.relayedFrames(), stats.receivedUpdates(),
+            stats.droppedUpdates(), stats.pending());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        closeSocket();
+        if (linkThread != null) {
+            linkThread.interrupt();
+        }
+        if (senderThread != null) {
+            senderThread.interrupt();
+        }
+    }
+
+    private static Thread startThread(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    record RelayedUpdate(String destination, JsonNode payload) {}
+
+    public record RelayPublisherStats(boolean connected, long relayedUpdates, long relayedFrames,
+                                      long receivedUpdates, long droppedUpdates, int pending) {}
+}
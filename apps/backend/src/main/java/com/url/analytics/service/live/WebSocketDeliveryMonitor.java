@@ -0,0 +1,198 @@
+package com.url.analytics.service.live;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks outbound STOMP traffic per WebSocket session and enforces the slow-consumer policy.
+ *
+ * As an interceptor on the client outbound channel it counts each broadcast's payload as queued
+ * for its session; the session wrapper installed by {@link #decorate} un-counts it once the frame
+ * is written to the socket. What remains is what the session has waiting in the outbound
+ * executor and in Spring's per-session send buffer. A session over
+ * {@code analytics.websocket.max-queued-bytes} either has the frame dropped ({@code DROP}) or is
+ * closed ({@code DISCONNECT}, the default) so its client reconnects and reloads.
+ *
+ * Spring's own send-time and send-buffer limits (configured in {@code WebSocketConfig}) remain
+ * the backstop for a socket that stops draining altogether.
+ */
+@Component
+@Slf4j
+public class WebSocketDeliveryMonitor implements ChannelInterceptor {
+    private final Map<String, MonitoredSession> sessions = new ConcurrentHashMap<>();
+    private final long maxQueuedBytes;
+    private final SlowConsumerPolicy policy;
+
+    private final LongAdder sentFrames = new LongAdder();
+    private final LongAdder droppedFrames = new LongAdder();
+    private final LongAdder slowConsumerDisconnects = new LongAdder();
+    private final LongAdder limitExceededDisconnects = new LongAdder();
+
+    public WebSocketDeliveryMonitor(
+            @Value("${analytics.websocket.max-queued-bytes:262144}") long maxQueuedBytes,
+            @Value("${analytics.websocket.slow-consumer-policy:DISCONNECT}") SlowConsumerPolicy policy) {
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.policy = policy;
+    }
+
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                MonitoredSession monitored = new MonitoredSession(session);
+                sessions.put(session.getId(), monitored);
+                super.afterConnectionEstablished(monitored);
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                super.handleMessage(monitored(session), message);
+            }
+
+            @Override
+            public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+                super.handleTransportError(monitored(session), exception);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                MonitoredSession monitored = sessions.remove(session.getId());
+                if (CloseStatus.SESSION_NOT_RELIABLE.equalsCode(closeStatus)
+                        && (monitored == null || !monitored.disconnecting.get())) {
+                    // Spring's send-time or send-buffer limit was exceeded
+                    limitExceededDisconnects.increment();
+                }
+                super.afterConnectionClosed(monitored != null ? monitored : session, closeStatus);
+            }
+        };
+    }
+
+    private WebSocketSession monitored(WebSocketSession session) {
+        MonitoredSession monitored = sessions.get(session.getId());
+        return monitored != null ? monitored : session;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        MonitoredSession session = sessions.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        if (session == null) {
+            return message;
+        }
+        if (session.queuedBytes.get() + payload.length > maxQueuedBytes) {
+            droppedFrames.increment();
+            if (policy == SlowConsumerPolicy.DISCONNECT && session.disconnecting.compareAndSet(false, true)) {
+                slowConsumerDisconnects.increment();
+                log.warn("Closing slow WebSocket session {}: {} bytes queued", session.getId(), session.queuedBytes.get());
+                try {
+                    session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (IOException e) {
+                    log.debug("Error closing slow WebSocket session {}: {}", session.getId(), e.getMessage());
+                }
+            }
+            return null;
+        }
+        session.queuedBytes.addAndGet(payload.length);
+        session.queuedPayloads.add(payload.length);
+        return message;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (ex == null) {
+            return;
+        }
+        // Rejected by the outbound executor: its queue is full
+        droppedFrames.increment();
+        if (message.getPayload() instanceof byte[] payload) {
+            MonitoredSession session = sessions.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+            if (session != null) {
+                session.queuedPayloads.remove(Integer.valueOf(payload.length));
+                session.queuedBytes.addAndGet(-payload.length);
+            }
+        }
+    }
+
+    public DeliveryStats getStats() {
+        long queued = 0;
+        long maxQueued = 0;
+        for (MonitoredSession session : sessions.values()) {
+            long bytes = session.queuedBytes.get();
+            queued += bytes;
+            maxQueued = Math.max(maxQueued, bytes);
+        }
+        return new DeliveryStats(sessions.size(), queued, maxQueued, sentFrames.sum(), droppedFrames.sum(),
+            slowConsumerDisconnects.sum(), limitExceededDisconnects.sum());
+    }
+
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void logStats() {
+        DeliveryStats stats = getStats();
+        log.info("WebSocket delivery: sessions={}, queuedBytes={}, maxSessionQueuedBytes={}, sentFrames={}, "
+                + "droppedFrames={}, slowConsumerDisconnects={}, limitExceededDisconnects={}",
+            stats.sessions(), stats.queuedBytes(), stats.maxSessionQueuedBytes(), stats.sentFrames(),
+            stats.droppedFrames(), stats.slowConsumerDisconnects(), stats.limitExceededDisconnects());
+    }
+
+    /**
+     * Un-counts a broadcast once its MESSAGE frame is handed to the socket. Frames are matched
+     * to queued payloads in order; other frames (CONNECTED, heartbeats, errors) aren't counted.
+     */
+    private final class MonitoredSession extends WebSocketSessionDecorator {
+        final AtomicLong queuedBytes = new AtomicLong();
+        final Queue<Integer> queuedPayloads = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean disconnecting = new AtomicBoolean();
+
+        MonitoredSession(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            super.sendMessage(message);
+            if (message instanceof TextMessage text && text.getPayload().startsWith("MESSAGE")) {
+                Integer length = queuedPayloads.poll();
+                if (length != null) {
+                    queuedBytes.addAndGet(-length);
+                }
+                sentFrames.increment();
+            }
+        }
+    }
+
+    public enum SlowConsumerPolicy {
+        /** Drop frames for the session until it catches up. */
+        DROP,
+        /** Close the session; the client reconnects and reloads its data. */
+        DISCONNECT
+    }
+
+    public record DeliveryStats(int sessions, long queuedBytes, long maxSessionQueuedBytes, long sentFrames,
+                                long droppedFrames, long slowConsumerDisconnects, long limitExceededDisconnects) {}
+}
@@ -0,0 +1,7 @@
+package com.url.analytics.service.schema;
+
+/**
+ * A virtual generated column added by a {@link SchemaMigration}, typically so an index can key
+ * on an expression. Virtual columns take no storage and are added without rebuilding the table.
+ */
+public record GeneratedColumn(String table, String name, String type, String expression) {}
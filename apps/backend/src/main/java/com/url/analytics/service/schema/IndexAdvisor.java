@@ -0,0 +1,77 @@
+package com.url.analytics.service.schema;
+
+import com.url.analytics.repository.SchemaRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that each hot repository query has an index it can seek on: one whose leading columns
+ * are the query's key columns, in order. Catches indexes dropped by hand, a migration that has
+ * not been applied, or a new query added without one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IndexAdvisor {
+    static final List<HotQuery> HOT_QUERIES = List.of(
+        new HotQuery("UrlMappingRepository.findByShortUrl", "url_mapping", List.of("short_url")),
+        new HotQuery("UrlMappingRepository.findFirstByShortUrlAndCustomDomainIgnoreCase", "url_mapping",
+            List.of("short_url")),
+        new HotQuery("ClickEventRepository.findByProjectAndClickDateBetween", "click_event",
+            List.of("project_id", "click_date")),
+        new HotQuery("ClickEventRepository.countByDeviceAndOs", "click_event",
+            List.of("project_id", "click_date", "device_type_id", "operating_system_id")),
+        new HotQuery("ClickEventRepository.countByCountryAndCity", "click_event",
+            List.of("project_id", "click_date", "country_id", "city_id")),
+        new HotQuery("ClickEventRepository.countByDay", "click_event", List.of("url_mapping_id", "click_date")),
+        new HotQuery("SessionRepository.findFirstByIpAddressAndUserAgentAndLastActivityTimeAfterAndIsActiveTrue",
+            "sessions", List.of("ip_address", "user_agent", "is_active", "last_activity_time")),
+        new HotQuery("SessionRepository.countSessionsByUrl", "sessions", List.of("entry_page", "start_time")),
+        new HotQuery("SessionRepository.findByProject", "sessions", List.of("project_id")),
+        new HotQuery("SessionBatchRepository.expireIdleSessions", "sessions", List.of("is_active", "last_activity_time")),
+        new HotQuery("CustomEventRepository.findBySessionIdOrderByTimestampAsc", "custom_events",
+            List.of("session_id", "timestamp")),
+        new HotQuery("CustomEventRepository.findByUserIdAndTimestampBetweenOrderByTimestampAsc", "custom_events",
+            List.of("user_id", "timestamp")),
+        new HotQuery("CustomEventRepository.findByProject", "custom_events", List.of("project_id"))
+    );
+
+    private final SchemaRepository schemaRepository;
+
+    /**
+     * Hot queries with no index whose leading columns match their key columns.
+     */
+    public List<HotQuery> findUnindexed() {
+        Map<String, Map<String, List<String>>> indexesByTable = new HashMap<>();
+        List<HotQuery> unindexed = new ArrayList<>();
+        for (HotQuery query : HOT_QUERIES) {
+            Map<String, List<String>> indexes = indexesByTable.computeIfAbsent(query.table(), schemaRepository::findIndexes);
+            boolean covered = indexes.values().stream().anyMatch(columns -> columns.size() >= query.columns().size()
+                && columns.subList(0, query.columns().size()).equals(query.columns()));
+            if (!covered) {
+                unindexed.add(query);
+            }
+        }
+        return unindexed;
+    }
+
+    public void report() {
+        List<HotQuery> unindexed = findUnindexed();
+        for (HotQuery query : unindexed) {
+            log.warn("No index on {}{} for hot query {}; expect full table scans", query.table(), query.columns(),
+                query.name());
+        }
+        log.info("Index check: {} of {} hot queries indexed", HOT_QUERIES.size() - unindexed.size(), HOT_QUERIES.size());
+    }
+
+    /**
+     * A frequently run query and the columns an index must start with for it to seek rather than scan.
+     */
+    public record HotQuery(String name, String table, List<String> columns) {}
+}
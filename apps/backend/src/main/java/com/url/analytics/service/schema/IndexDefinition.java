@@ -0,0 +1,18 @@
+package com.url.analytics.service.schema;
+
+import java.util.List;
+
+/**
+ * A secondary index created by a {@link SchemaMigration}. Columns are in key order: equality
+ * predicates first, then the range column, then any columns only read (to make it covering).
+ */
+public record IndexDefinition(String table, String name, boolean unique, List<String> columns) {
+
+    public static IndexDefinition index(String table, String name, String... columns) {
+        return new IndexDefinition(table, name, false, List.of(columns));
+    }
+
+    public static IndexDefinition uniqueIndex(String table, String name, String... columns) {
+        return new IndexDefinition(table, name, true, List.of(columns));
+    }
+}
@@ -0,0 +1,16 @@
+package com.url.analytics.service.schema;
+
+import java.util.List;
+
+/**
+ * One versioned step of schema changes that {@code ddl-auto=update} can't express. Applied at
+ * most once, in version order, and recorded in {@code schema_version}. Columns are added before
+ * the indexes are built, so indexes can use them.
+ */
+public record SchemaMigration(int version, String description, List<GeneratedColumn> columns,
+                              List<IndexDefinition> indexes) {
+
+    public SchemaMigration(int version, String description, List<IndexDefinition> indexes) {
+        this(version, description, List.of(), indexes);
+    }
+}
@@ -0,0 +1,53 @@
+package com.url.analytics.service.schema;
+
+import java.util.List;
+
+import static com.url.analytics.service.schema.IndexDefinition.index;
+import static com.url.analytics.service.schema.IndexDefinition.uniqueIndex;
+
+/**
+ * Every schema migration, in version order. Append new versions; never edit or reorder one that
+ * has shipped, as nodes that already applied it won't run it again.
+ */
+public final class SchemaMigrations {
+
+    public static final List<SchemaMigration> ALL = List.of(
+        new SchemaMigration(1, "Composite indexes for hot queries", List.of(
+            // Short URL resolution
+            index("url_mapping", "ix_url_mapping_short_url_domain", "short_url", "custom_domain"),
+
+            // Project analytics: range over one project's clicks, covering the grouped id columns
+            index("click_event", "ix_click_event_project_date_device",
+                "project_id", "click_date", "device_type_id", "operating_system_id"),
+            index("click_event", "ix_click_event_project_date_geo",
+                "project_id", "click_date", "country_id", "city_id"),
+            index("click_event", "ix_click_event_mapping_date", "url_mapping_id", "click_date"),
+
+            // Session reuse lookup on every tracked page view
+            index("sessions", "ix_sessions_visitor", "ip_address", "user_agent", "is_active", "last_activity_time"),
+            index("sessions", "ix_sessions_entry_page", "entry_page", "start_time", "bounce_count"),
+            index("sessions", "ix_sessions_project_start", "project_id", "start_time"),
+
+            index("custom_events", "ix_custom_events_session_time", "session_id", "timestamp"),
+            index("custom_events", "ix_custom_events_user_time", "user_id", "timestamp"),
+            index("custom_events", "ix_custom_events_name_time", "event_name", "timestamp"),
+            index("custom_events", "ix_custom_events_project_time", "project_id", "timestamp"),
+
+            index("link_click", "ix_link_click_project_time", "project_id", "timestamp")
+        )),
+        new SchemaMigration(2, "Index for session expiry", List.of(
+            index("sessions", "ix_sessions_active_last_activity", "is_active", "last_activity_time")
+        )),
+        // On its own, after the plain indexes: it fails while duplicate aliases exist, and a failed
+        // version holds back every later one
+        new SchemaMigration(3, "One mapping per alias and domain", List.of(
+            // custom_domain is NULL on the default domain, and a unique index treats NULLs as distinct
+            new GeneratedColumn("url_mapping", "custom_domain_key", "VARCHAR(255)", "COALESCE(custom_domain, '')")
+        ), List.of(
+            uniqueIndex("url_mapping", "ux_url_mapping_short_url_domain_key", "short_url", "custom_domain_key")
+        ))
+    );
+
+    private SchemaMigrations() {
+    }
+}
@@ -0,0 +1,118 @@
+package com.url.analytics.service.schema;
+
+import com.url.analytics.repository.SchemaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies {@link SchemaMigrations} on startup, after Hibernate has created or updated the tables.
+ *
+ * Runs in the background because building an index on a large table takes a while; indexes
+ * are built online, so the application serves traffic meanwhile. A failed migration is logged
+ * and retried on the next start, and later versions wait for it. When done, the
+ * {@link IndexAdvisor} reports any hot query still lacking an index.
+ */
+@Service
+@Slf4j
+public class SchemaMigrator {
+    private static final String LOCK_NAME = "analytics_schema_migration";
+
+    private final SchemaRepository schemaRepository;
+    private final IndexAdvisor indexAdvisor;
+    private final boolean enabled;
+    private final int lockTimeoutSeconds;
+
+    public SchemaMigrator(
+            SchemaRepository schemaRepository,
+            IndexAdvisor indexAdvisor,
+            @Value("${analytics.schema.migrations-enabled:true}") boolean enabled,
+            @Value("${analytics.schema.lock-timeout-seconds:60}") int lockTimeoutSeconds) {
+        this.schemaRepository = schemaRepository;
+        this.indexAdvisor = indexAdvisor;
+        this.enabled = enabled;
+        this.lockTimeoutSeconds = lockTimeoutSeconds;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        Thread thread = new Thread(() -> {
+            try {
+                if (enabled) {
+                    migrate(SchemaMigrations.ALL);
+                }
+                indexAdvisor.report();
+            } catch (RuntimeException e) {
+                log.error("Schema migration failed: {}", e.getMessage(), e);
+            }
+        }, "schema-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void migrate(List<SchemaMigration> migrations) {
+        schemaRepository.createVersionTable();
+        boolean locked = schemaRepository.withLock(LOCK_NAME, lockTimeoutSeconds, () -> {
+            Set<Integer> applied = schemaRepository.findAppliedVersions();
+            for (SchemaMigration migration : migrations) {
+                if (applied.contains(migration.version())) {
+                    continue;
+                }
+                long started = System.currentTimeMillis();
+                log.info("Applying schema migration {}: {}", migration.version(), migration.description());
+                try {
+                    apply(migration);
+                } catch (RuntimeException e) {
+                    log.error("Schema migration {} failed, later migrations are skipped until it succeeds: {}",
+                        migration.version(), e.getMessage(), e);
+                    return;
+                }
+                long elapsed = System.currentTimeMillis() - started;
+                schemaRepository.recordVersion(migration.version(), migration.description(), elapsed);
+                log.info("Applied schema migration {} in {} ms", migration.version(), elapsed);
+            }
+        });
+        if (!locked) {
+            log.warn("Schema migration lock not acquired within {} s; another node is migrating", lockTimeoutSeconds);
+        }
+    }
+
+    // Idempotent, so a migration interrupted halfway can simply be re-run
+    private void apply(SchemaMigration migration) {
+        for (GeneratedColumn column : migration.columns()) {
+            if (!schemaRepository.tableExists(column.table())) {
+                throw new IllegalStateException("Table " + column.table() + " does not exist for column " + column.name());
+            }
+            if (!schemaRepository.columnExists(column.table(), column.name())) {
+                schemaRepository.addGeneratedColumn(column);
+                log.info("Added generated column {}.{} AS ({})", column.table(), column.name(), column.expression());
+            }
+        }
+        for (IndexDefinition index : migration.indexes()) {
+            if (!schemaRepository.tableExists(index.table())) {
+                throw new IllegalStateException("Table " + index.table() + " does not exist for index " + index.name());
+            }
+            Map<String, List<String>> existing = schemaRepository.findIndexes(index.table());
+            if (existing.containsKey(index.name())) {
+                continue;
+            }
+            if (index.unique()) {
+                long duplicates = schemaRepository.countDuplicateKeys(index.table(), index.columns());
+                if (duplicates > 0) {
+                    throw new IllegalStateException("Cannot create unique index " + index.name() + ": " + duplicates
+                        + " duplicate " + index.columns() + " values in " + index.table() + " must be resolved first");
+                }
+            }
+            long started = System.currentTimeMillis();
+            schemaRepository.createIndex(index);
+            log.info("Created index {} on {}{} in {} ms", index.name(), index.table(), index.columns(),
+                System.currentTimeMillis() - started);
+        }
+    }
+}
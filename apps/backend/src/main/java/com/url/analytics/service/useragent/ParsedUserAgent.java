@@ -0,0 +1,9 @@
+package com.url.analytics.service.useragent;
+
+/**
+ * The user-agent fields stored on a click.
+ */
+public record ParsedUserAgent(String deviceType, String operatingSystem, String browser, String browserVersion) {
+    public static final String UNKNOWN = "Unknown";
+    public static final ParsedUserAgent UNKNOWN_AGENT = new ParsedUserAgent(UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN);
+}
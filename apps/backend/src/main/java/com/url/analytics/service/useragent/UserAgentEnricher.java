@@ -0,0 +1,110 @@
+package com.url.analytics.service.useragent;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cached user-agent parsing for click enrichment.
+ *
+ * Real traffic is dominated by a few thousand distinct agents, so results are cached by the
+ * raw header. Field values are interned in a bounded pool, so every cached entry (and every
+ * click built from it) shares one String per distinct browser, OS and version. Headers longer
+ * than {@code analytics.user-agent.max-cached-length} are parsed but not cached; they are
+ * almost always bots with randomised suffixes and would only churn the cache.
+ */
+@Component
+@Slf4j
+public class UserAgentEnricher {
+    private static final int MAX_INTERNED_VALUES = 10_000;
+
+    private final UserAgentParser parser;
+    private final Cache<String, ParsedUserAgent> cache;
+    private final int maxCachedLength;
+    private final Map<String, String> internedValues = new ConcurrentHashMap<>();
+
+    private final LongAdder parses = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder uncacheable = new LongAdder();
+
+    public UserAgentEnricher(
+            UserAgentParser parser,
+            @Value("${analytics.user-agent.cache.max-size:20000}") long maxSize,
+            @Value("${analytics.user-agent.max-cached-length:512}") int maxCachedLength) {
+        this.parser = parser;
+        this.maxCachedLength = maxCachedLength;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .recordStats()
+            .build();
+    }
+
+    public ParsedUserAgent parse(String userAgent) {
+        String key = userAgent != null ? userAgent : "";
+        if (key.length() > maxCachedLength) {
+            uncacheable.increment();
+            return parseUncached(key);
+        }
+        return cache.get(key, this::parseUncached);
+    }
+
+    private ParsedUserAgent parseUncached(String userAgent) {
+        long started = System.nanoTime();
+        try {
+            ParsedUserAgent parsed = parser.parse(userAgent);
+            return new ParsedUserAgent(intern(parsed.deviceType()), intern(parsed.operatingSystem()),
+                intern(parsed.browser()), intern(parsed.browserVersion()));
+        } catch (Exception e) {
+            failures.increment();
+            log.debug("Failed to parse user agent '{}': {}", userAgent, e.getMessage());
+            return ParsedUserAgent.UNKNOWN_AGENT;
+        } finally {
+            parses.increment();
+            parseNanos.add(System.nanoTime() - started);
+        }
+    }
+
+    private String intern(String value) {
+        if (value == null) {
+            return ParsedUserAgent.UNKNOWN;
+        }
+        String interned = internedValues.get(value);
+        if (interned != null) {
+            return interned;
+        }
+        if (internedValues.size() >= MAX_INTERNED_VALUES) {
+            return value;
+        }
+        interned = internedValues.putIfAbsent(value, value);
+        return interned != null ? interned : value;
+    }
+
+    public UserAgentStats getStats() {
+        CacheStats stats = cache.stats();
+        long parseCount = parses.sum();
+        return new UserAgentStats(parser.getName(), cache.estimatedSize(), stats.hitRate(), stats.evictionCount(),
+            parseCount, parseCount == 0 ? 0 : parseNanos.sum() / parseCount / 1000,
+            failures.sum(), uncacheable.sum());
+    }
+
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void logStats() {
+        UserAgentStats stats = getStats();
+        log.info("User-agent cache ({}): size={}, hitRate={}, evictions={}, parses={}, avgParseMicros={}, "
+                + "failures={}, uncacheable={}",
+            stats.parser(), stats.cacheSize(), String.format("%.4f", stats.hitRate()), stats.evictions(),
+            stats.parses(), stats.avgParseMicros(), stats.failures(), stats.uncacheable());
+    }
+
+    public record UserAgentStats(String parser, long cacheSize, double hitRate, long evictions, long parses,
+                                 long avgParseMicros, long failures, long uncacheable) {}
+}
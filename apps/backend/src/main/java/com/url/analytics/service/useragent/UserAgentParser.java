@@ -0,0 +1,17 @@
+package com.url.analytics.service.useragent;
+
+/**
+ * Parses a raw {@code User-Agent} header into the fields stored on a click. Implementations
+ * must be thread-safe; results are cached by {@link UserAgentEnricher}, so an implementation
+ * should not cache itself. To swap engines, register another implementation as the
+ * {@code @Primary} bean.
+ */
+public interface UserAgentParser {
+
+    /**
+     * @param userAgent the raw header, never {@code null} (an absent header is passed as "")
+     */
+    ParsedUserAgent parse(String userAgent);
+
+    String getName();
+}
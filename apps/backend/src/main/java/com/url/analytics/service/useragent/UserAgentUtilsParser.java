@@ -0,0 +1,29 @@
+package com.url.analytics.service.useragent;
+
+import eu.bitwalker.useragentutils.UserAgent;
+import eu.bitwalker.useragentutils.Version;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link UserAgentParser} backed by UserAgentUtils. Accurate enough for our breakdowns but
+ * slow (it walks its browser and OS enums with string matching), hence the cache in front.
+ */
+@Component
+public class UserAgentUtilsParser implements UserAgentParser {
+
+    @Override
+    public ParsedUserAgent parse(String userAgent) {
+        UserAgent parsed = UserAgent.parseUserAgentString(userAgent);
+        Version version = parsed.getBrowserVersion();
+        return new ParsedUserAgent(
+            parsed.getOperatingSystem().getDeviceType().getName(),
+            parsed.getOperatingSystem().getName(),
+            parsed.getBrowser().getName(),
+            version != null ? version.getVersion() : ParsedUserAgent.UNKNOWN);
+    }
+
+    @Override
+    public String getName() {
+        return "UserAgentUtils";
+    }
+}
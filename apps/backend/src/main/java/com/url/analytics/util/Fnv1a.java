@@ -0,0 +1,56 @@
+package com.url.analytics.util;
+
+/**
+ * 64-bit FNV-1a over several fields without building an intermediate string, followed by a
+ * murmur3 finalizer so every output bit depends on every input bit. Used where a hash stands in
+ * for the fields (the click rollup unique key) or indexes a filter (click dedupe), so the steps
+ * must not change: {@code click_rollup.value_hash} is stored.
+ *
+ * <pre>
+ * long h = Fnv1a.addString(Fnv1a.addSeparator(Fnv1a.addString(Fnv1a.OFFSET_BASIS, a)), b);
+ * return Fnv1a.finish(h);
+ * </pre>
+ */
+public final class Fnv1a {
+    public static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private Fnv1a() {}
+
+    /** Adds the UTF-16 chars of {@code value}; a null value adds nothing. */
+    public static long addString(long h, String value) {
+        if (value == null) {
+            return h;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= PRIME;
+        }
+        return h;
+    }
+
+    /** Adds the 8 bytes of {@code value}, least significant first. */
+    public static long addLong(long h, long value) {
+        for (int i = 0; i < 8; i++) {
+            h ^= (value >>> (i * 8)) & 0xff;
+            h *= PRIME;
+        }
+        return h;
+    }
+
+    /** Adds a byte no char produces on its own, so ("ab", "c") and ("a", "bc") differ. */
+    public static long addSeparator(long h) {
+        h ^= 0xff;
+        return h * PRIME;
+    }
+
+    /** The murmur3 64-bit finalizer. */
+    public static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
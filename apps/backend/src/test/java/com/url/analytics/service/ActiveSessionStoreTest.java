@@ -0,0 +1,218 @@
+package com.url.analytics.service;
+
+import com.url.analytics.models.Session;
+import com.url.analytics.repository.SessionBatchRepository;
+import com.url.analytics.repository.SessionBatchRepository.SessionRow;
+import com.url.analytics.repository.SessionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ActiveSessionStoreTest {
+    private static final String IP = "203.0.113.7";
+    private static final String AGENT = "Mozilla/5.0";
+
+    private final SessionRepository sessionRepository = mock(SessionRepository.class);
+    private final SessionBatchRepository sessionBatchRepository = mock(SessionBatchRepository.class);
+    // Stands in for the sessions table, merging writes like the upsert does
+    private final Map<UUID, Session> table = new ConcurrentHashMap<>();
+    private final List<SessionRow> writes = new ArrayList<>();
+    private final List<ActiveSessionStore> stores = new ArrayList<>();
+
+    @BeforeEach
+    void stubRepositories() {
+        doAnswer(invocation -> {
+            List<SessionRow> rows = invocation.getArgument(0);
+            rows.forEach(this::upsert);
+            writes.addAll(rows);
+            return null;
+        }).when(sessionBatchRepository).upsertSessions(anyList());
+        when(sessionRepository.findById(any())).thenAnswer(invocation ->
+            Optional.ofNullable(table.get(invocation.<UUID>getArgument(0))).map(ActiveSessionStoreTest::copy));
+        when(sessionRepository.findFirstByIpAddressAndUserAgentAndLastActivityTimeAfterAndIsActiveTrue(
+                any(), any(), any())).thenAnswer(invocation -> table.values().stream()
+            .filter(s -> s.isActive() && s.getIpAddress().equals(invocation.getArgument(0))
+                && s.getUserAgent().equals(invocation.getArgument(1))
+                && s.getLastActivityTime().isAfter(invocation.getArgument(2)))
+            .findFirst().map(ActiveSessionStoreTest::copy));
+    }
+
+    @AfterEach
+    void shutdown() {
+        stores.forEach(ActiveSessionStore::shutdown);
+    }
+
+    private ActiveSessionStore store() {
+        // Flushed explicitly; the periodic flush never fires during a test
+        ActiveSessionStore store = new ActiveSessionStore(sessionRepository, sessionBatchRepository, 30, 1000, 500, 3_600_000);
+        stores.add(store);
+        return store;
+    }
+
+    @Test
+    void writesChangesOnFlushAndEndImmediately() {
+        ActiveSessionStore store = store();
+        Session session = store.add(newSession(LocalDateTime.now()));
+        assertThat(writes).isEmpty();
+
+        store.flush();
+        assertThat(writes).singleElement().satisfies(row -> assertThat(row.newPageViews()).isEqualTo(1));
+
+        store.update(session.getId(), this::pageView);
+        store.updateActive(IP, AGENT, this::pageView);
+        store.flush();
+        assertThat(writes).hasSize(2);
+        assertThat(writes.get(1).newPageViews()).isEqualTo(2);
+        assertThat(table.get(session.getId()).getPageViews()).isEqualTo(3);
+
+        store.end(session.getId(), s -> s.setActive(false));
+        assertThat(writes).hasSize(3);
+        assertThat(writes.get(2).active()).isFalse();
+        assertThat(writes.get(2).newPageViews()).isZero();
+        assertThat(store.getStats().tracked()).isZero();
+
+        store.flush();
+        assertThat(writes).hasSize(3);
+        assertThat(store.updateActive(IP, AGENT, this::pageView)).isEmpty();
+    }
+
+    @Test
+    void failedEndIsRetriedByNextFlush() {
+        ActiveSessionStore store = store();
+        Session session = store.add(newSession(LocalDateTime.now()));
+        store.flush();
+        store.update(session.getId(), this::pageView);
+        doThrow(new IllegalStateException("database down")).doAnswer(invocation -> {
+            List<SessionRow> rows = invocation.getArgument(0);
+            rows.forEach(this::upsert);
+            writes.addAll(rows);
+            return null;
+        }).when(sessionBatchRepository).upsertSessions(anyList());
+
+        assertThatThrownBy(() -> store.end(session.getId(), s -> s.setActive(false)))
+            .isInstanceOf(IllegalStateException.class);
+
+        // Still known to the store by id and by visitor, so nothing is reloaded as active
+        assertThat(store.updateActive(IP, AGENT, this::pageView)).isEmpty();
+        verify(sessionRepository, never())
+            .findFirstByIpAddressAndUserAgentAndLastActivityTimeAfterAndIsActiveTrue(any(), any(), any());
+        assertThat(store.getStats().tracked()).isEqualTo(1);
+
+        store.flush();
+        Session stored = table.get(session.getId());
+        assertThat(stored.isActive()).isFalse();
+        assertThat(stored.getPageViews()).isEqualTo(2);
+    }
+
+    @Test
+    void reloadsSessionEvictedWhileIdle() {
+        ActiveSessionStore store = store();
+        Session session = store.add(newSession(LocalDateTime.now().minusMinutes(45)));
+        store.flush(); // written
+        store.flush(); // evicted, being idle and clean
+        assertThat(store.getStats().evicted()).isEqualTo(1);
+        assertThat(store.getStats().tracked()).isZero();
+
+        // Idle past the timeout, so the visitor doesn't get it back
+        assertThat(store.updateActive(IP, AGENT, this::pageView)).isEmpty();
+
+        Session updated = store.update(session.getId(), this::pageView);
+        assertThat(updated).isNotSameAs(session);
+        assertThat(store.getStats().loads()).isEqualTo(1);
+
+        store.flush();
+        assertThat(writes.get(writes.size() - 1).newPageViews()).isEqualTo(1);
+        assertThat(table.get(session.getId()).getPageViews()).isEqualTo(2);
+    }
+
+    @Test
+    void storesSharingSessionAddOnlyTheirOwnPageViews() {
+        ActiveSessionStore first = store();
+        ActiveSessionStore second = store();
+        Session session = first.add(newSession(LocalDateTime.now()));
+        first.flush();
+
+        // The other node picks up the visitor's session from the database
+        assertThat(second.updateActive(IP, AGENT, this::pageView)).isPresent();
+        second.updateActive(IP, AGENT, this::pageView);
+        first.update(session.getId(), this::pageView);
+        first.flush();
+        second.flush();
+        assertThat(table.get(session.getId()).getPageViews()).isEqualTo(4);
+
+        // Nothing new: no write, no double counting
+        first.flush();
+        second.flush();
+        second.update(session.getId(), this::pageView);
+        second.flush();
+        first.update(session.getId(), this::pageView);
+        first.flush();
+
+        assertThat(table.get(session.getId()).getPageViews()).isEqualTo(6);
+        assertThat(writes).extracting(SessionRow::newPageViews).containsExactly(1, 1, 2, 1, 1);
+    }
+
+    private void pageView(Session session) {
+        session.setPageViews(session.getPageViews() + 1);
+        session.setLastActivityTime(LocalDateTime.now());
+    }
+
+    private void upsert(SessionRow row) {
+        table.merge(row.id(), toSession(row), (stored, update) -> {
+            stored.setPageViews(stored.getPageViews() + row.newPageViews());
+            if (update.getLastActivityTime().isAfter(stored.getLastActivityTime())) {
+                stored.setLastActivityTime(update.getLastActivityTime());
+            }
+            stored.setActive(stored.isActive() && update.isActive());
+            return stored;
+        });
+    }
+
+    private static Session newSession(LocalDateTime startTime) {
+        Session session = new Session();
+        session.setIpAddress(IP);
+        session.setUserAgent(AGENT);
+        session.setStartTime(startTime);
+        session.setLastActivityTime(startTime);
+        session.setActive(true);
+        session.setPageViews(1);
+        return session;
+    }
+
+    private static Session toSession(SessionRow row) {
+        Session session = new Session();
+        session.setId(row.id());
+        session.setIpAddress(row.ipAddress());
+        session.setUserAgent(row.userAgent());
+        session.setStartTime(row.startTime());
+        session.setLastActivityTime(row.lastActivityTime());
+        session.setActive(row.active());
+        session.setPageViews(row.pageViews());
+        return session;
+    }
+
+    private static Session copy(Session stored) {
+        Session session = toSession(SessionRow.of(stored, 0));
+        session.setPageViews(stored.getPageViews());
+        return session;
+    }
+}
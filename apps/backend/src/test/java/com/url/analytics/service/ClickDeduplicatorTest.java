@@ -0,0 +1,46 @@
+package com.url.analytics.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickDeduplicatorTest {
+
+    @Test
+    void detectsRepeatWithinWindowOnly() {
+        ClickDeduplicator deduplicator = new ClickDeduplicator(10, 5, 1 << 16, 4);
+
+        assertThat(deduplicator.isDuplicate(1, "203.0.113.7", "Mozilla/5.0")).isFalse();
+        assertThat(deduplicator.isDuplicate(1, "203.0.113.7", "Mozilla/5.0")).isTrue();
+        assertThat(deduplicator.isDuplicate(2, "203.0.113.7", "Mozilla/5.0")).isFalse();
+        assertThat(deduplicator.isDuplicate(1, "203.0.113.8", "Mozilla/5.0")).isFalse();
+        assertThat(deduplicator.isDuplicate(1, "203.0.113.7", "curl/8.0")).isFalse();
+        assertThat(deduplicator.getStats().duplicates()).isEqualTo(1);
+    }
+
+    @Test
+    void forgetsClicksOnceTheirFilterRotatesOut() throws InterruptedException {
+        // 1 s window in 500 ms slices: a click is remembered for at most 1.5 s
+        ClickDeduplicator deduplicator = new ClickDeduplicator(1, 2, 1 << 16, 4);
+        deduplicator.isDuplicate(1, "203.0.113.7", "Mozilla/5.0");
+
+        Thread.sleep(1700);
+
+        assertThat(deduplicator.isDuplicate(1, "203.0.113.7", "Mozilla/5.0")).isFalse();
+        assertThat(deduplicator.isDuplicate(1, "203.0.113.7", "Mozilla/5.0")).isTrue();
+    }
+
+    @Test
+    void keepsFalsePositiveRateLowAtCapacity() {
+        ClickDeduplicator deduplicator = new ClickDeduplicator(60, 5, 1 << 20, 4);
+        int falsePositives = 0;
+        for (int i = 0; i < 20_000; i++) {
+            if (deduplicator.isDuplicate(i, "198.51.100." + (i % 256), "agent-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives).isLessThan(20);
+        assertThat(deduplicator.getEstimatedFalsePositiveRate()).isLessThan(0.001);
+    }
+}
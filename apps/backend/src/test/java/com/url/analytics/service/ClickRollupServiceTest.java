@@ -0,0 +1,111 @@
+package com.url.analytics.service;
+
+import com.url.analytics.repository.ClickRollupRepository;
+import com.url.analytics.repository.RollupBatchRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClickRollupServiceTest {
+    private final RollupBatchRepository rollupBatchRepository = mock(RollupBatchRepository.class);
+
+    private ClickRollupService service(int rebuildDays) {
+        return new ClickRollupService(mock(ClickRollupRepository.class), rollupBatchRepository, true, rebuildDays);
+    }
+
+    @Test
+    void rebuildsPartlyCountedFirstDayOnceFinished() {
+        LocalDate firstDay = LocalDate.now().minusDays(2);
+        when(rollupBatchRepository.findCoveredFrom()).thenReturn(firstDay.atTime(15, 0));
+        ClickRollupService service = service(0);
+
+        service.backfill();
+
+        verify(rollupBatchRepository).replace(firstDay.atStartOfDay(), firstDay.plusDays(1).atStartOfDay(), List.of());
+        verify(rollupBatchRepository).lowerCoveredFrom(firstDay.atStartOfDay());
+        assertThat(service.getCoveredFrom()).isEqualTo(firstDay.atStartOfDay());
+    }
+
+    @Test
+    void waitsForTodayToFinish() {
+        LocalDateTime nextHour = LocalDateTime.now().withMinute(0).withSecond(0).withNano(0).plusHours(1);
+        when(rollupBatchRepository.findCoveredFrom()).thenReturn(nextHour);
+        ClickRollupService service = service(0);
+
+        service.backfill();
+
+        verify(rollupBatchRepository, never()).replace(any(), any(), anyList());
+        assertThat(service.getCoveredFrom()).isEqualTo(nextHour);
+    }
+
+    @Test
+    void rebuildsRequestedDaysBeforeWatermark() {
+        LocalDate today = LocalDate.now();
+        when(rollupBatchRepository.findCoveredFrom()).thenReturn(today.minusDays(1).atStartOfDay());
+        ClickRollupService service = service(3);
+
+        service.backfill();
+
+        verify(rollupBatchRepository).lowerCoveredFrom(today.minusDays(2).atStartOfDay());
+        verify(rollupBatchRepository).lowerCoveredFrom(today.minusDays(3).atStartOfDay());
+        verify(rollupBatchRepository, never()).lowerCoveredFrom(today.minusDays(4).atStartOfDay());
+        assertThat(service.getCoveredFrom()).isEqualTo(today.minusDays(3).atStartOfDay());
+    }
+
+    @Test
+    void skipsWhileAnotherBackfillRuns() throws InterruptedException {
+        LocalDate firstDay = LocalDate.now().minusDays(2);
+        when(rollupBatchRepository.findCoveredFrom()).thenReturn(firstDay.atTime(15, 0));
+        CountDownLatch rebuilding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(rollupBatchRepository.countHourly(any(), any(), any())).thenAnswer(invocation -> {
+            rebuilding.countDown();
+            release.await();
+            return List.of();
+        });
+        ClickRollupService service = service(0);
+        Thread running = new Thread(service::backfill);
+        running.start();
+        assertThat(rebuilding.await(5, TimeUnit.SECONDS)).isTrue();
+
+        service.backfill(); // returns at once instead of waiting for the lock
+
+        release.countDown();
+        running.join(5000);
+        verify(rollupBatchRepository, times(1)).findCoveredFrom();
+        verify(rollupBatchRepository, times(1)).lowerCoveredFrom(firstDay.atStartOfDay());
+    }
+
+    @Test
+    void rollupStartSplitsRangeAtWatermark() {
+        LocalDateTime watermark = LocalDate.now().minusDays(5).atTime(10, 0);
+        when(rollupBatchRepository.findCoveredFrom()).thenReturn(watermark);
+        ClickRollupService service = service(0);
+        service.backfill();
+        watermark = service.getCoveredFrom();
+
+        assertThat(service.rollupStart(watermark.minusDays(3), watermark.minusDays(1))).isNull();
+        assertThat(service.rollupStart(watermark.minusDays(3), watermark.plusDays(1))).isEqualTo(watermark);
+        assertThat(service.rollupStart(watermark.plusHours(2), watermark.plusDays(1))).isEqualTo(watermark.plusHours(2));
+    }
+
+    @Test
+    void answersNothingWithoutWatermark() {
+        ClickRollupService service = service(0);
+
+        assertThat(service.rollupStart(LocalDateTime.now().minusDays(1), LocalDateTime.now())).isNull();
+    }
+}
@@ -0,0 +1,67 @@
+package com.url.analytics.service;
+
+import com.url.analytics.models.ClickRollup.Dimension;
+import com.url.analytics.service.HeavyHitterTracker.SpaceSaving;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeavyHitterTrackerTest {
+    // Only days after the tracker was created are fully observed
+    private final LocalDateTime tomorrow = LocalDate.now().plusDays(1).atStartOfDay();
+
+    @Test
+    void disabledByDefaultAndWhenRelayIsEnabled() {
+        assertThat(new HeavyHitterTracker(false, 500, 8, false).covers(tomorrow, tomorrow.plusDays(3), 10)).isFalse();
+        assertThat(new HeavyHitterTracker(true, 500, 8, true).covers(tomorrow, tomorrow.plusDays(3), 10)).isFalse();
+    }
+
+    @Test
+    void coversOnlyWholeDayRanges() {
+        HeavyHitterTracker tracker = new HeavyHitterTracker(true, 500, 8, false);
+
+        assertThat(tracker.covers(tomorrow, tomorrow.plusDays(3), 10)).isTrue();
+        assertThat(tracker.covers(tomorrow, tomorrow.plusDays(3).minusNanos(1), 10)).isTrue();
+        assertThat(tracker.covers(tomorrow.plusHours(6), tomorrow.plusDays(3), 10)).isFalse();
+        assertThat(tracker.covers(tomorrow, tomorrow.plusDays(2).plusHours(12), 10)).isFalse();
+        assertThat(tracker.covers(tomorrow.minusDays(1), tomorrow.plusDays(3), 10)).isFalse();
+        assertThat(tracker.covers(tomorrow, tomorrow.plusDays(3), 51)).isFalse();
+    }
+
+    @Test
+    void rangeEndingAtMidnightExcludesFollowingDay() {
+        HeavyHitterTracker tracker = new HeavyHitterTracker(true, 500, 8, false);
+        tracker.record(1L, "/a", null, tomorrow.plusHours(1));
+        tracker.record(1L, "/b", null, tomorrow.plusDays(1).plusHours(1));
+
+        assertThat(tracker.getTop(1L, Dimension.PAGE, tomorrow, tomorrow.plusDays(1), 10)).containsOnlyKeys("/a");
+    }
+
+    @Test
+    void spaceSavingKeepsHeavyHittersAndBoundsOverestimate() {
+        SpaceSaving sketch = new SpaceSaving(10);
+        Map<String, Long> exact = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            // Three heavy values, the rest a long tail of one-off values
+            String value = i % 4 == 3 ? "tail-" + i : "heavy-" + (i % 4);
+            sketch.offer(value);
+            exact.merge(value, 1L, Long::sum);
+        }
+
+        Map<String, Long> estimates = new HashMap<>();
+        sketch.forEach(estimates::put);
+        long min = estimates.values().stream().mapToLong(Long::longValue).min().orElseThrow();
+
+        assertThat(sketch.size()).isEqualTo(10);
+        assertThat(estimates).containsKeys("heavy-0", "heavy-1", "heavy-2");
+        estimates.forEach((value, estimate) -> {
+            long count = exact.get(value);
+            assertThat(estimate).isBetween(count, count + min);
+        });
+    }
+}
@@ -0,0 +1,97 @@
+package com.url.analytics.service.geoip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IpAddressesTest {
+
+    @Test
+    void parsesIpv4Edges() {
+        assertThat(IpAddresses.parseIpv4("0.0.0.0")).isZero();
+        assertThat(IpAddresses.parseIpv4("255.255.255.255")).isEqualTo(0xFFFFFFFFL);
+        assertThat(IpAddresses.parseIpv4("192.168.1.10")).isEqualTo(0xC0A8010AL);
+        assertThat(IpAddresses.parseIpv4(" 10.0.0.1\t")).isEqualTo(0x0A000001L);
+        assertThat(IpAddresses.parseIpv4("010.000.000.001")).isEqualTo(0x0A000001L);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", " ", "256.0.0.0", "1.2.3.256", "1.2.3", "1.2.3.4.5", "1..2.3", ".1.2.3",
+        "1.2.3.", "0001.2.3.4", "1.2.3.4a", "a.b.c.d", "-1.2.3.4", "1.2.3.4/24", "::1"})
+    void rejectsInvalidIpv4(String address) {
+        assertThat(IpAddresses.parseIpv4(address)).isEqualTo(IpAddresses.INVALID);
+    }
+
+    @Test
+    void rejectsNullIpv4() {
+        assertThat(IpAddresses.parseIpv4(null)).isEqualTo(IpAddresses.INVALID);
+    }
+
+    @Test
+    void parsesCompressedIpv6() {
+        assertIpv6("::", 0L, 0L);
+        assertIpv6("::1", 0L, 1L);
+        assertIpv6("1::", 0x0001000000000000L, 0L);
+        assertIpv6("2001:db8::1", 0x20010DB800000000L, 1L);
+        assertIpv6("2001:db8::ff00:42:8329", 0x20010DB800000000L, 0x0000FF0000428329L);
+        assertIpv6("1:2:3:4:5:6:7::", 0x0001000200030004L, 0x0005000600070000L);
+        assertIpv6("::2:3:4:5:6:7:8", 0x0000000200030004L, 0x0005000600070008L);
+    }
+
+    @Test
+    void parsesFullIpv6() {
+        assertIpv6("2001:0db8:0000:0000:0000:ff00:0042:8329", 0x20010DB800000000L, 0x0000FF0000428329L);
+        assertIpv6("FFFF:FFFF:FFFF:FFFF:FFFF:FFFF:FFFF:FFFF", -1L, -1L);
+        assertIpv6("8000:0:0:0:0:0:0:0", 0x8000000000000000L, 0L);
+    }
+
+    @Test
+    void parsesEmbeddedIpv4() {
+        assertIpv6("::ffff:192.168.1.1", 0L, 0x0000FFFFC0A80101L);
+        assertIpv6("::ffff:0.0.0.0", 0L, 0x0000FFFF00000000L);
+        assertIpv6("::ffff:255.255.255.255", 0L, 0x0000FFFFFFFFFFFFL);
+        assertIpv6("64:ff9b::1.2.3.4", 0x0064FF9B00000000L, 0x0000000001020304L);
+        assertIpv6("0:0:0:0:0:ffff:10.0.0.1", 0L, 0x0000FFFF0A000001L);
+    }
+
+    @Test
+    void ignoresBracketsAndZone() {
+        assertIpv6("[::1]", 0L, 1L);
+        assertIpv6("fe80::1%eth0", 0xFE80000000000000L, 1L);
+        assertIpv6(" [fe80::1%25] ", 0xFE80000000000000L, 1L);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", ":", ":::", "1:::2", "1::2::3", ":1:2:3:4:5:6:7", "1:2:3:4:5:6:7:", "1:2:3:4:5:6:7",
+        "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7::8", "12345::", "g::", "::1.2.3", "::256.0.0.1", "1.2.3.4::",
+        "::1.2.3.4:5", "1:2:3:4:5:6:7:1.2.3.4", "[::1", "::1]", "1.2.3.4"})
+    void rejectsInvalidIpv6(String address) {
+        long[] out = {42L, 43L};
+
+        assertThat(IpAddresses.parseIpv6(address, out)).isFalse();
+        assertThat(out).containsExactly(42L, 43L);
+    }
+
+    @Test
+    void rejectsNullIpv6() {
+        assertThat(IpAddresses.parseIpv6(null, new long[2])).isFalse();
+    }
+
+    @Test
+    void extractsMappedIpv4() {
+        assertThat(IpAddresses.mappedIpv4(0L, 0x0000FFFFC0A80101L)).isEqualTo(0xC0A80101L);
+        assertThat(IpAddresses.mappedIpv4(0L, 0x0000FFFF00000000L)).isZero();
+        assertThat(IpAddresses.mappedIpv4(0L, 0x0000FFFEC0A80101L)).isEqualTo(IpAddresses.INVALID);
+        assertThat(IpAddresses.mappedIpv4(0L, 0x00000000C0A80101L)).isEqualTo(IpAddresses.INVALID);
+        assertThat(IpAddresses.mappedIpv4(1L, 0x0000FFFFC0A80101L)).isEqualTo(IpAddresses.INVALID);
+    }
+
+    private static void assertIpv6(String address, long hi, long lo) {
+        long[] out = new long[2];
+
+        assertThat(IpAddresses.parseIpv6(address, out)).as(address).isTrue();
+        assertThat(out).as(address).containsExactly(hi, lo);
+    }
+}
@@ -0,0 +1,146 @@
+package com.url.analytics.service.geoip;
+
+import com.url.analytics.service.geoip.GeoLocationService.GeoLocation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IpRangeIndexTest {
+    private static final GeoLocation FIRST = new GeoLocation("US", "Ashburn", "Virginia", "20147", 39.0, -77.5, "America/New_York");
+    private static final GeoLocation SECOND = new GeoLocation("DE", "Berlin", "Berlin", "10115", 52.5, 13.4, "Europe/Berlin");
+    private static final GeoLocation TOP = new GeoLocation("JP", "Tokyo", "Tokyo", "100-0001", 35.7, 139.7, "Asia/Tokyo");
+
+    private static IpRangeIndex index() {
+        IpRangeIndex.Builder builder = new IpRangeIndex.Builder();
+        // Added out of order; build() sorts by start
+        add(builder, 0xFFFFFF00L, 0xFFFFFFFFL, TOP);
+        add(builder, 0x0A000100L, 0x0A0001FFL, SECOND);
+        add(builder, 0x0A000000L, 0x0A0000FFL, FIRST);
+        add(builder, 0xC0A80000L, 0xC0A8FFFFL, FIRST);
+        addV6(builder, 0xFFFF000000000000L, 0L, -1L, -1L, TOP);
+        addV6(builder, 0x20010DB800000000L, 0L, 0x20010DB8FFFFFFFFL, -1L, SECOND);
+        addV6(builder, 0x2A00000000000000L, 0L, 0x2A00000000000000L, 0xFFL, FIRST);
+        return builder.build();
+    }
+
+    @Test
+    void findsFirstAndLastAddressOfRange() {
+        IpRangeIndex index = index();
+
+        assertThat(index.find(0x0A000000L)).isEqualTo(FIRST);
+        assertThat(index.find(0x0A0000FFL)).isEqualTo(FIRST);
+        assertThat(index.find(0x0A000100L)).isEqualTo(SECOND);
+        assertThat(index.find(0x0A0001FFL)).isEqualTo(SECOND);
+        assertThat(index.find(0x0A000200L)).isNull();
+        assertThat(index.find(0x09FFFFFFL)).isNull();
+    }
+
+    @Test
+    void handlesAddressSpaceEdges() {
+        IpRangeIndex index = index();
+
+        assertThat(index.find(0L)).isNull();
+        assertThat(index.find(0xFFFFFF00L)).isEqualTo(TOP);
+        assertThat(index.find(0xFFFFFFFFL)).isEqualTo(TOP);
+        assertThat(IpRangeIndex.EMPTY.find(0L)).isNull();
+        assertThat(IpRangeIndex.EMPTY.findV6(0L, 0L)).isNull();
+    }
+
+    @Test
+    void findsIpv6RangeBoundsComparedUnsigned() {
+        IpRangeIndex index = index();
+
+        assertThat(index.findV6(0x20010DB800000000L, 0L)).isEqualTo(SECOND);
+        assertThat(index.findV6(0x20010DB8FFFFFFFFL, -1L)).isEqualTo(SECOND);
+        assertThat(index.findV6(0x20010DB900000000L, 0L)).isNull();
+        assertThat(index.findV6(0x2A00000000000000L, 0xFFL)).isEqualTo(FIRST);
+        assertThat(index.findV6(0x2A00000000000000L, 0x100L)).isNull();
+        // High halves above 0x7fff... are negative as signed longs
+        assertThat(index.findV6(0xFFFF000000000000L, 0L)).isEqualTo(TOP);
+        assertThat(index.findV6(-1L, -1L)).isEqualTo(TOP);
+        assertThat(index.findV6(0x7FFFFFFFFFFFFFFFL, -1L)).isNull();
+    }
+
+    @Test
+    void sharesRepeatedLocations() {
+        IpRangeIndex index = index();
+
+        assertThat(index.rangeCount()).isEqualTo(4);
+        assertThat(index.rangeCountV6()).isEqualTo(3);
+        assertThat(index.locationCount()).isEqualTo(3);
+        assertThat(index.find(0x0A000000L)).isSameAs(index.find(0xC0A80000L));
+    }
+
+    @Test
+    void compare128IsUnsigned() {
+        assertThat(IpRangeIndex.compare128(0L, 0L, 0L, 0L)).isZero();
+        assertThat(IpRangeIndex.compare128(0L, -1L, 1L, 0L)).isNegative();
+        assertThat(IpRangeIndex.compare128(-1L, 0L, 0x7FFFFFFFFFFFFFFFL, -1L)).isPositive();
+        assertThat(IpRangeIndex.compare128(5L, 0x8000000000000000L, 5L, 0x7FFFFFFFFFFFFFFFL)).isPositive();
+    }
+
+    @Test
+    void compiledDatabaseAnswersLikeIndex(@TempDir Path dir) throws IOException {
+        Path csv = dir.resolve("ip-ranges.csv");
+        Files.writeString(csv, String.join("\n",
+            "ip_start,ip_end,country,city,region,postal_code,latitude,longitude,timezone",
+            "10.0.0.0,10.0.0.255,US,Ashburn,Virginia,20147,39.0,-77.5,America/New_York",
+            "167772416,167772671,DE,Berlin,Berlin,10115,52.5,13.4,Europe/Berlin",
+            "::ffff:192.168.0.0,::ffff:192.168.255.255,US,Ashburn,Virginia,20147,39.0,-77.5,America/New_York",
+            "255.255.255.0,255.255.255.255,JP,Tokyo,Tokyo,100-0001,35.7,139.7,Asia/Tokyo",
+            "2001:db8::,2001:db8:ffff:ffff:ffff:ffff:ffff:ffff,DE,Berlin,Berlin,10115,52.5,13.4,Europe/Berlin",
+            "ffff::,ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff,JP,Tokyo,Tokyo,100-0001,35.7,139.7,Asia/Tokyo",
+            ""));
+        Path output = dir.resolve("ip-ranges.db");
+
+        GeoIpDatabaseCompiler.CompileResult result =
+            GeoIpDatabaseCompiler.compile(csv, output, new GeoLocationDataValidator());
+        GeoIpDatabase database = GeoIpDatabase.open(output);
+
+        assertThat(result.validation().isValid()).isTrue();
+        assertThat(database.rangeCount()).isEqualTo(4);
+        assertThat(database.rangeCountV6()).isEqualTo(2);
+        assertThat(database.locationCount()).isEqualTo(3);
+        assertThat(database.sizeBytes()).isEqualTo(result.bytes());
+        assertThat(database.find(0x0A000000L)).isEqualTo(FIRST);
+        assertThat(database.find(0x0A0001FFL)).isEqualTo(SECOND);
+        assertThat(database.find(0xC0A8FFFFL)).isEqualTo(FIRST);
+        assertThat(database.find(0xFFFFFFFFL)).isEqualTo(TOP);
+        assertThat(database.find(0x0A000200L)).isNull();
+        assertThat(database.find(0L)).isNull();
+        assertThat(database.findV6(0x20010DB8FFFFFFFFL, -1L)).isEqualTo(SECOND);
+        assertThat(database.findV6(-1L, -1L)).isEqualTo(TOP);
+        assertThat(database.findV6(0x20010DB900000000L, 0L)).isNull();
+    }
+
+    @Test
+    void compileWritesNothingForInvalidCsv(@TempDir Path dir) throws IOException {
+        Path csv = dir.resolve("ip-ranges.csv");
+        Files.writeString(csv, String.join("\n",
+            "ip_start,ip_end,country,city,region,postal_code,latitude,longitude,timezone",
+            "10.0.0.255,10.0.0.0,US,Ashburn,Virginia,20147,39.0,-77.5,America/New_York"));
+        Path output = dir.resolve("ip-ranges.db");
+
+        GeoIpDatabaseCompiler.CompileResult result =
+            GeoIpDatabaseCompiler.compile(csv, output, new GeoLocationDataValidator());
+
+        assertThat(result.validation().isValid()).isFalse();
+        assertThat(output).doesNotExist();
+    }
+
+    private static void add(IpRangeIndex.Builder builder, long start, long end, GeoLocation location) {
+        builder.add(start, end, location.getCountry(), location.getCity(), location.getRegion(),
+            location.getPostalCode(), location.getLatitude(), location.getLongitude(), location.getTimezone());
+    }
+
+    private static void addV6(IpRangeIndex.Builder builder, long startHi, long startLo, long endHi, long endLo,
+                              GeoLocation location) {
+        builder.addV6(startHi, startLo, endHi, endLo, location.getCountry(), location.getCity(), location.getRegion(),
+            location.getPostalCode(), location.getLatitude(), location.getLongitude(), location.getTimezone());
+    }
+}
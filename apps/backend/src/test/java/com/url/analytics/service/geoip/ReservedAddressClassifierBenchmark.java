@@ -0,0 +1,129 @@
+package com.url.analytics.service.geoip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ReservedAddressClassifier} with the checks it replaced in
+ * {@code AnalyticsService}: the fixed-mask check it directly replaced, and the original
+ * string-prefix check that one replaced in turn. Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.url.analytics.service.geoip.ReservedAddressClassifierBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservedAddressClassifierBenchmark {
+
+    @Param({"8.8.8.8", "192.168.1.20", "172.31.255.1", "100.64.3.7", "2001:4860:4860::8888", "fd12:3456::1"})
+    public String address;
+
+    private ReservedAddressClassifier classifier;
+    private long ipv4;
+    private final long[] ipv6 = new long[2];
+
+    @Setup
+    public void setUp() {
+        classifier = new ReservedAddressClassifier(List.of("10.200.0.0/16", "2600:1f18::/32"));
+        ipv4 = IpAddresses.parseIpv4(address);
+        IpAddresses.parseIpv6(address, ipv6);
+    }
+
+    @Benchmark
+    public boolean classifier() {
+        return classifier.isReserved(address);
+    }
+
+    // Mask checks alone, for callers that already hold the parsed address
+    @Benchmark
+    public boolean classifierParsed() {
+        return ipv4 != IpAddresses.INVALID
+            ? classifier.isReservedIpv4(ipv4)
+            : classifier.isReservedIpv6(ipv6[0], ipv6[1]);
+    }
+
+    @Benchmark
+    public boolean fixedMasks() {
+        return fixedMaskIsLocalhostOrPrivateIP(address);
+    }
+
+    @Benchmark
+    public boolean prefixMatching() {
+        return prefixIsLocalhostOrPrivateIP(address);
+    }
+
+    // AnalyticsService.isLocalhostOrPrivateIP as the classifier found it: the baseline
+    private static boolean fixedMaskIsLocalhostOrPrivateIP(String ipAddress) {
+        if (ipAddress == null) return true;
+
+        long ip = IpAddresses.parseIpv4(ipAddress);
+        if (ip == IpAddresses.INVALID) {
+            long[] v6 = new long[2];
+            if (!IpAddresses.parseIpv6(ipAddress, v6)) {
+                return false;
+            }
+            ip = IpAddresses.mappedIpv4(v6[0], v6[1]);
+            if (ip == IpAddresses.INVALID) {
+                return (v6[0] == 0 && v6[1] == 1)             // ::1
+                    || (v6[0] >>> 54) == 0x3FA                 // fe80::/10 link-local
+                    || (v6[0] >>> 57) == 0x7E;                 // fc00::/7 unique local
+            }
+        }
+
+        return (ip >>> 24) == 127                              // 127.0.0.0/8
+            || (ip >>> 24) == 10                               // 10.0.0.0/8
+            || (ip >>> 20) == 0xAC1                            // 172.16.0.0/12
+            || (ip >>> 16) == 0xC0A8;                          // 192.168.0.0/16
+    }
+
+    // The original string-prefix version, before IPv6 support moved it to fixed masks
+    private static boolean prefixIsLocalhostOrPrivateIP(String ipAddress) {
+        if (ipAddress == null) return true;
+        if (ipAddress.equals("0:0:0:0:0:0:0:1")) return true;
+        if (ipAddress.equals("127.0.0.1")) return true;
+        return ipAddress.startsWith("192.168.") ||
+            ipAddress.startsWith("10.") ||
+            ipAddress.startsWith("172.16.") ||
+            ipAddress.startsWith("172.17.") ||
+            ipAddress.startsWith("172.18.") ||
+            ipAddress.startsWith("172.19.") ||
+            ipAddress.startsWith("172.20.") ||
+            ipAddress.startsWith("172.21.") ||
+            ipAddress.startsWith("172.22.") ||
+            ipAddress.startsWith("172.23.") ||
+            ipAddress.startsWith("172.24.") ||
+            ipAddress.startsWith("172.25.") ||
+            ipAddress.startsWith("172.26.") ||
+            ipAddress.startsWith("172.27.") ||
+            ipAddress.startsWith("172.28.") ||
+            ipAddress.startsWith("172.29.") ||
+            ipAddress.startsWith("172.30.") ||
+            ipAddress.startsWith("172.31.");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(ReservedAddressClassifierBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
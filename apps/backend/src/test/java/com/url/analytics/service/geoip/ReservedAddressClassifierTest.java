@@ -0,0 +1,101 @@
+package com.url.analytics.service.geoip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReservedAddressClassifierTest {
+    private final ReservedAddressClassifier classifier = new ReservedAddressClassifier(List.of());
+
+    // First and last address of every reserved block
+    @ParameterizedTest
+    @ValueSource(strings = {"0.0.0.0", "0.255.255.255", "10.0.0.0", "10.255.255.255", "100.64.0.0", "100.127.255.255",
+        "127.0.0.0", "127.255.255.255", "169.254.0.0", "169.254.255.255", "172.16.0.0", "172.31.255.255",
+        "192.0.0.0", "192.0.0.255", "192.0.2.0", "192.0.2.255", "192.168.0.0", "192.168.255.255", "198.18.0.0",
+        "198.19.255.255", "198.51.100.0", "198.51.100.255", "203.0.113.0", "203.0.113.255", "224.0.0.0",
+        "239.255.255.255", "240.0.0.0", "255.255.255.255", "::", "::1", "fc00::", "fdff:ffff:ffff:ffff:ffff:ffff:ffff:ffff",
+        "fe80::", "febf:ffff:ffff:ffff:ffff:ffff:ffff:ffff", "ff00::", "ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff",
+        "2001:db8::", "2001:db8:ffff:ffff:ffff:ffff:ffff:ffff"})
+    void reservesBlockEdges(String address) {
+        assertThat(classifier.isReserved(address)).isTrue();
+    }
+
+    // The neighbours just outside each block
+    @ParameterizedTest
+    @ValueSource(strings = {"1.0.0.0", "9.255.255.255", "11.0.0.0", "100.63.255.255", "100.128.0.0", "126.255.255.255",
+        "128.0.0.0", "169.253.255.255", "169.255.0.0", "172.15.255.255", "172.32.0.0", "192.0.1.0", "192.0.3.0",
+        "192.167.255.255", "192.169.0.0", "198.17.255.255", "198.20.0.0", "198.51.99.255", "198.51.101.0",
+        "203.0.112.255", "203.0.114.0", "223.255.255.255", "8.8.8.8", "::2", "fbff:ffff:ffff:ffff:ffff:ffff:ffff:ffff",
+        "fe00::", "fe7f:ffff:ffff:ffff:ffff:ffff:ffff:ffff", "fec0::", "feff:ffff:ffff:ffff:ffff:ffff:ffff:ffff",
+        "2001:db7:ffff:ffff:ffff:ffff:ffff:ffff", "2001:db9::", "2606:4700::1111"})
+    void allowsAddressesOutsideBlocks(String address) {
+        assertThat(classifier.isReserved(address)).isFalse();
+    }
+
+    @Test
+    void checksMappedIpv6AgainstIpv4Blocks() {
+        assertThat(classifier.isReserved("::ffff:10.1.2.3")).isTrue();
+        assertThat(classifier.isReserved("::ffff:100.64.0.0")).isTrue();
+        assertThat(classifier.isReserved("::ffff:100.63.255.255")).isFalse();
+        assertThat(classifier.isReserved("::ffff:8.8.8.8")).isFalse();
+        assertThat(classifier.isReserved("[::ffff:192.168.1.1]")).isTrue();
+    }
+
+    @Test
+    void treatsNullAsInternalAndGarbageAsPublic() {
+        assertThat(classifier.isReserved(null)).isTrue();
+        assertThat(classifier.isReserved("")).isFalse();
+        assertThat(classifier.isReserved("unknown")).isFalse();
+        assertThat(classifier.isReserved("10.0.0")).isFalse();
+    }
+
+    @Test
+    void addsConfiguredInternalRanges() {
+        ReservedAddressClassifier configured = new ReservedAddressClassifier(
+            List.of(" 52.94.0.0/22", "", "2600:1f18::/32 ", "8.8.8.8/32"));
+
+        assertThat(configured.isReserved("52.94.0.0")).isTrue();
+        assertThat(configured.isReserved("52.94.3.255")).isTrue();
+        assertThat(configured.isReserved("52.94.4.0")).isFalse();
+        assertThat(configured.isReserved("52.93.255.255")).isFalse();
+        assertThat(configured.isReserved("::ffff:52.94.1.1")).isTrue();
+        assertThat(configured.isReserved("2600:1f18::")).isTrue();
+        assertThat(configured.isReserved("2600:1f18:ffff:ffff:ffff:ffff:ffff:ffff")).isTrue();
+        assertThat(configured.isReserved("2600:1f19::")).isFalse();
+        assertThat(configured.isReserved("8.8.8.8")).isTrue();
+        assertThat(configured.isReserved("8.8.8.9")).isFalse();
+        assertThat(configured.isReserved("10.0.0.1")).isTrue();
+    }
+
+    @Test
+    void masksNonAlignedRangeToItsNetwork() {
+        ReservedAddressClassifier configured = new ReservedAddressClassifier(List.of("52.94.1.77/22", "2600:1f18::1/32"));
+
+        assertThat(configured.isReserved("52.94.0.0")).isTrue();
+        assertThat(configured.isReserved("52.94.3.255")).isTrue();
+        assertThat(configured.isReserved("52.94.4.0")).isFalse();
+        assertThat(configured.isReserved("2600:1f18:abcd::")).isTrue();
+    }
+
+    @Test
+    void matchesEverythingWithZeroPrefix() {
+        ReservedAddressClassifier configured = new ReservedAddressClassifier(List.of("0.0.0.0/0"));
+
+        assertThat(configured.isReserved("8.8.8.8")).isTrue();
+        assertThat(configured.isReserved("2606:4700::1111")).isFalse();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"10.0.0.0", "10.0.0.0/", "10.0.0.0/x", "10.0.0.0/33", "10.0.0.0/-1", "10.0.0/8",
+        "300.0.0.0/8", "fc00::/129", "fc00:::/7", "internal/16"})
+    void rejectsMalformedConfiguredRange(String range) {
+        assertThatThrownBy(() -> new ReservedAddressClassifier(List.of(range)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining(range);
+    }
+}
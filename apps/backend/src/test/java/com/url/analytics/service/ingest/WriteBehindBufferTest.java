@@ -0,0 +1,106 @@
+package com.url.analytics.service.ingest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteBehindBufferTest {
+    private final List<String> stored = new ArrayList<>();
+    private WriteBehindBuffer<String> buffer;
+
+    @AfterEach
+    void close() {
+        buffer.close();
+    }
+
+    private WriteBehindBuffer<String> buffer(Consumer<List<String>> writer) {
+        // Long interval so only the test's explicit flushes run
+        buffer = new WriteBehindBuffer<>("test", 100, 3_600_000, 1000, 3, writer);
+        return buffer;
+    }
+
+    /** Rejects any batch containing a record starting with "bad", like a multi-row INSERT would. */
+    private void rejectBadRecords(List<String> batch) {
+        if (batch.stream().anyMatch(record -> record.startsWith("bad"))) {
+            throw new DataIntegrityViolationException("Data too long for column 'user_agent'");
+        }
+        stored.addAll(batch);
+    }
+
+    @Test
+    void writesGoodRecordsAroundARejectedOne() {
+        buffer(this::rejectBadRecords);
+        for (int i = 0; i < 50; i++) {
+            buffer.add(i == 17 ? "bad" : "ok-" + i);
+        }
+
+        buffer.flush();
+
+        assertThat(stored).hasSize(49).doesNotContain("bad");
+        assertThat(buffer.getStats().pending()).isEqualTo(1);
+        assertThat(buffer.getStats().rejected()).isZero();
+    }
+
+    @Test
+    void dropsRejectedRecordAfterMaxAttempts() {
+        buffer(this::rejectBadRecords);
+        buffer.add("bad");
+        buffer.add("ok");
+
+        buffer.flush();
+        buffer.flush();
+        assertThat(buffer.getStats().pending()).isEqualTo(1);
+        buffer.flush();
+
+        assertThat(stored).containsExactly("ok");
+        assertThat(buffer.getStats().pending()).isZero();
+        assertThat(buffer.getStats().rejected()).isEqualTo(1);
+    }
+
+    @Test
+    void requeuesWholeBatchOnTransientFailure() {
+        int[] calls = {0};
+        buffer(batch -> {
+            if (calls[0]++ == 0) {
+                throw new QueryTimeoutException("Lock wait timeout exceeded");
+            }
+            stored.addAll(batch);
+        });
+        buffer.add("a");
+        buffer.add("b");
+
+        buffer.flush();
+        assertThat(stored).isEmpty();
+        assertThat(buffer.getStats().pending()).isEqualTo(2);
+
+        buffer.flush();
+        assertThat(stored).containsExactly("a", "b");
+        assertThat(buffer.getStats().rejected()).isZero();
+    }
+
+    @Test
+    void recordThatSucceedsOnRetryIsNotDropped() {
+        int[] failures = {0};
+        buffer(batch -> {
+            if (batch.contains("flaky") && failures[0]++ < 2) {
+                throw new DataIntegrityViolationException("Duplicate entry");
+            }
+            stored.addAll(batch);
+        });
+        buffer.add("flaky");
+
+        buffer.flush();
+        buffer.flush();
+        buffer.flush();
+
+        assertThat(stored).containsExactly("flaky");
+        assertThat(buffer.getStats().rejected()).isZero();
+    }
+}
@@ -0,0 +1,155 @@
+package com.url.analytics.service.live;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.url.analytics.dtos.ClickUpdateDTO;
+import com.url.analytics.dtos.ClickUpdateDTO.LinkClicks;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.AbstractMessageChannel;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class LiveUpdateRelayTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final String SECRET = "relay-test-secret";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<RelayLiveUpdatePublisher> publishers = new ArrayList<>();
+    private final List<DestinationCapture> captures = new ArrayList<>();
+    private LiveUpdateRelay relay;
+
+    @BeforeEach
+    void startNodes() throws IOException {
+        relay = new LiveUpdateRelay("127.0.0.1", 0, 100, SECRET);
+        relay.start();
+        for (int i = 0; i < 3; i++) {
+            DestinationCapture capture = new DestinationCapture();
+            RelayLiveUpdatePublisher publisher = publisher(capture, SECRET);
+            publisher.start();
+            captures.add(capture);
+            publishers.add(publisher);
+        }
+        awaitConnected();
+    }
+
+    private RelayLiveUpdatePublisher publisher(DestinationCapture capture, String secret) {
+        SimpMessagingTemplate template = new SimpMessagingTemplate(capture);
+        template.setMessageConverter(new MappingJackson2MessageConverter());
+        return new RelayLiveUpdatePublisher(template, objectMapper, "127.0.0.1", relay.getPort(), secret, 20, 500, 1000, 100);
+    }
+
+    @AfterEach
+    void stopNodes() {
+        publishers.forEach(RelayLiveUpdatePublisher::shutdown);
+        relay.close();
+    }
+
+    @Test
+    void forwardsEachBatchToTheOtherNodesOnly() {
+        for (int node = 0; node < 3; node++) {
+            for (int i = 0; i < 5; i++) {
+                publishers.get(node).publish(topic(node, i), update(node, i));
+            }
+        }
+
+        await().atMost(TIMEOUT).until(() -> publishers.stream().allMatch(p -> p.getStats().receivedUpdates() == 10));
+        for (int node = 0; node < 3; node++) {
+            // Own updates are delivered locally once and never echoed back by the relay
+            assertThat(captures.get(node).destinations).as("node %d", node)
+                .containsExactlyInAnyOrderElementsOf(allTopics());
+            assertThat(publishers.get(node).getStats().relayedUpdates()).isEqualTo(5);
+        }
+        assertThat(relay.getStats().framesForwarded()).isEqualTo(2 * relay.getStats().framesReceived());
+        assertThat(relay.getStats().framesDropped()).isZero();
+    }
+
+    @Test
+    void reconnectsAfterRelayClosesConnection() throws IOException {
+        int port = relay.getPort();
+        relay.close();
+        await().atMost(TIMEOUT).until(() -> publishers.stream().noneMatch(p -> p.getStats().connected()));
+
+        // Relayed updates are dropped while disconnected; local delivery continues
+        publishers.get(0).publish(topic(0, 0), update(0, 0));
+        assertThat(captures.get(0).destinations).containsExactly(topic(0, 0));
+        assertThat(publishers.get(0).getStats().droppedUpdates()).isEqualTo(1);
+
+        relay = new LiveUpdateRelay("127.0.0.1", port, 100, SECRET);
+        relay.start();
+        awaitConnected();
+        publishers.get(0).publish(topic(0, 1), update(0, 1));
+
+        await().atMost(TIMEOUT).until(() -> captures.get(1).destinations.size() == 1
+            && captures.get(2).destinations.size() == 1);
+        assertThat(captures.get(1).destinations).containsExactly(topic(0, 1));
+        assertThat(captures.get(2).destinations).containsExactly(topic(0, 1));
+        assertThat(captures.get(0).destinations).containsExactly(topic(0, 0), topic(0, 1));
+    }
+
+    @Test
+    void rejectsNodeWithWrongSecret() {
+        DestinationCapture capture = new DestinationCapture();
+        RelayLiveUpdatePublisher intruder = publisher(capture, "guessed");
+        intruder.start();
+        try {
+            await().atMost(TIMEOUT).until(() -> relay.getStats().rejectedNodes() > 0);
+            intruder.publish(topic(3, 0), update(3, 0));
+            publishers.get(0).publish(topic(0, 0), update(0, 0));
+
+            await().atMost(TIMEOUT).until(() -> captures.get(1).destinations.size() == 1);
+            assertThat(captures.get(1).destinations).containsExactly(topic(0, 0));
+            assertThat(captures.get(2).destinations).containsExactly(topic(0, 0));
+            // Only its own local delivery
+            assertThat(capture.destinations).containsExactly(topic(3, 0));
+            assertThat(relay.getStats().nodes()).isEqualTo(3);
+        } finally {
+            intruder.shutdown();
+        }
+    }
+
+    private void awaitConnected() {
+        await().atMost(TIMEOUT).until(() -> relay.getStats().nodes() == publishers.size()
+            && publishers.stream().allMatch(p -> p.getStats().connected()));
+    }
+
+    private static String topic(int node, int i) {
+        return "/topic/projects/node" + node + "-" + i + "/clicks";
+    }
+
+    private static ClickUpdateDTO update(int node, int i) {
+        return new ClickUpdateDTO("node" + node + "-" + i, List.of(new LinkClicks((long) i, "abc" + i, i + 1)));
+    }
+
+    private static List<String> allTopics() {
+        List<String> topics = new ArrayList<>();
+        for (int node = 0; node < 3; node++) {
+            for (int i = 0; i < 5; i++) {
+                topics.add(topic(node, i));
+            }
+        }
+        return topics;
+    }
+
+    /** Stands in for the STOMP broker channel, recording where each message was sent. */
+    private static final class DestinationCapture extends AbstractMessageChannel {
+        final List<String> destinations = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected boolean sendInternal(Message<?> message, long timeout) {
+            destinations.add(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.url.analytics.util;
+
+import com.url.analytics.models.ClickRollup;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Fnv1aTest {
+
+    @Test
+    void rollupValueHashIsStable() {
+        // Stored in click_rollup.value_hash; a change would split every existing bucket in two
+        assertThat(ClickRollup.hashValue("https://example.com/a", "Berlin")).isEqualTo(6120810579725567577L);
+        assertThat(ClickRollup.hashValue("Mobile", null)).isEqualTo(-1267480629274415628L);
+        assertThat(ClickRollup.hashValue(null, null)).isEqualTo(1998855519756462295L);
+    }
+
+    @Test
+    void separatorKeepsFieldBoundaries() {
+        assertThat(ClickRollup.hashValue("ab", "c")).isNotEqualTo(ClickRollup.hashValue("a", "bc"));
+        assertThat(ClickRollup.hashValue("a", null)).isNotEqualTo(ClickRollup.hashValue(null, "a"));
+    }
+
+    @Test
+    void addLongTakesEveryByte() {
+        long h = Fnv1a.OFFSET_BASIS;
+        assertThat(Fnv1a.addLong(h, 1L)).isNotEqualTo(Fnv1a.addLong(h, 1L << 56));
+        assertThat(Fnv1a.finish(Fnv1a.addLong(h, 42L))).isNotEqualTo(Fnv1a.finish(Fnv1a.addLong(h, 43L)));
+    }
+}
@@ -131,27 +131,31 @@ export default function MyUrlsPage() {
   const [columnVisibility, setColumnVisibility] = useState<VisibilityState>({});
   const inputRef = useRef<HTMLInputElement>(null);
 
-  useEffect(() => {
-    async function fetchUrls() {
-      setLoading(true);
-      setError("");
-      try {
-        const token = localStorage.getItem("token");
-        const res = await fetch(`${apiUrl}/api/urls/myurls`, {
-          headers: token ? { Authorization: `Bearer ${token}` } : {},
-        });
-        if (!res.ok) throw new Error("Failed to fetch URLs");
-        const urls = await res.json();
-        setData(urls);
-      } catch {
-        setError("Failed to fetch URLs");
-      } finally {
-        setLoading(false);
-      }
+  async function fetchUrls() {
+    setLoading(true);
+    setError("");
+    try {
+      const token = localStorage.getItem("token");
+      const res = await fetch(`${apiUrl}/api/urls/myurls`, {
+        headers: token ? { Authorization: `Bearer ${token}` } : {},
+      });
+      if (!res.ok) throw new Error("Failed to fetch URLs");
+      const urls = await res.json();
+      setData(urls);
+    } catch {
+      setError("Failed to fetch URLs");
+    } finally {
+      setLoading(false);
     }
+  }
+
+  useEffect(() => {
     fetchUrls();
   }, []);
 
+  // Live updates arrive per project; resubscribe only when the set of projects changes
+  const projectIds = Array.from(new Set(data.map((url) => url.projectId).filter(Boolean))).sort().join(",");
+
   useEffect(() => {
     // Only run on client
     if (typeof window === "undefined") return;
@@ -161,17 +165,30 @@ export default function MyUrlsPage() {
       reconnectDelay: 5000,
     });
 
+    // Each update carries the clicks per link since the previous one (sent at most every 250 ms)
+    const applyUpdate = (message: { body: string }) => {
+      const update: { links: { id: number; clicks: number }[] } = JSON.parse(message.body);
+      const deltas = new Map(update.links.map((link) => [link.id, link.clicks]));
+      setData((prevData) =>
+        prevData.map((url) =>
+          deltas.has(url.id)
+            ? { ...url, clickCount: url.clickCount + (deltas.get(url.id) ?? 0) }
+            : url
+        )
+      );
+    };
+
+    // Updates missed while disconnected (e.g. closed by the server as a slow consumer) are not
+    // replayed, so counts are reloaded on every reconnect
+    let connectedBefore = false;
     client.onConnect = () => {
-      client.subscribe("/topic/clicks", (message) => {
-        const updatedUrl = JSON.parse(message.body);
-        setData((prevData) =>
-          prevData.map((url) =>
-            url.id === updatedUrl.id
-              ? { ...url, clickCount: updatedUrl.clickCount }
-              : url
-          )
-        );
+      if (connectedBefore) fetchUrls();
+      connectedBefore = true;
+      projectIds.split(",").filter(Boolean).forEach((projectId) => {
+        client.subscribe(`/topic/projects/${projectId}/clicks`, applyUpdate);
       });
+      // Links not assigned to a project
+      client.subscribe("/topic/clicks", applyUpdate);
     };
 
     client.activate();
@@ -179,7 +196,7 @@ export default function MyUrlsPage() {
     return () => {
       client.deactivate();
     };
-  }, []);
+  }, [projectIds]);
 
   const table = useReactTable({
     data,